@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.doodle.design.messaging.DefaultPacketRequester;
+import org.doodle.design.messaging.PacketBroadcaster;
+import org.doodle.design.messaging.PacketMetadata;
+import org.doodle.design.messaging.PacketStrategies;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.MimeTypeUtils;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+  @Param({"10", "100", "1000"})
+  int members;
+
+  PacketBroadcaster broadcaster;
+  byte[] data;
+
+  @Setup
+  public void setup() {
+    PacketStrategies strategies = PacketStrategies.builder().build();
+    this.broadcaster = new PacketBroadcaster(strategies, MimeTypeUtils.APPLICATION_OCTET_STREAM);
+    for (int i = 0; i < this.members; i++) {
+      this.broadcaster.add(
+          new DefaultPacketRequester(
+              new NoopPacketSocket(),
+              MimeTypeUtils.APPLICATION_OCTET_STREAM,
+              PacketMetadata.MIME_TYPE,
+              strategies));
+    }
+    this.data = new byte[256];
+  }
+
+  @Benchmark
+  public void broadcast() {
+    this.broadcaster.broadcast((short) 9, (short) 1, this.data).block();
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.doodle.design.messaging.PacketStrategies;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Decoder;
+import org.springframework.core.codec.Encoder;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecResolutionBenchmark {
+  static final ResolvableType STRING_TYPE = ResolvableType.forClass(String.class);
+  static final ResolvableType BYTES_TYPE = ResolvableType.forClass(byte[].class);
+  static final MimeType MIME_TYPE = MimeTypeUtils.APPLICATION_OCTET_STREAM;
+
+  PacketStrategies strategies;
+
+  @Setup
+  public void setup() {
+    this.strategies = PacketStrategies.builder().build();
+  }
+
+  @Benchmark
+  public Encoder<Object> stringEncoder() {
+    return this.strategies.encoder(STRING_TYPE, MIME_TYPE);
+  }
+
+  @Benchmark
+  public Decoder<Object> stringDecoder() {
+    return this.strategies.decoder(STRING_TYPE, MIME_TYPE);
+  }
+
+  @Benchmark
+  public Encoder<Object> bytesEncoder() {
+    return this.strategies.encoder(BYTES_TYPE, MIME_TYPE);
+  }
+
+  @Benchmark
+  public Decoder<Object> bytesDecoder() {
+    return this.strategies.decoder(BYTES_TYPE, MIME_TYPE);
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.benchmarks;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.doodle.design.messaging.DefaultPacketRequester;
+import org.doodle.design.messaging.PacketMapping;
+import org.doodle.design.messaging.PacketMetadata;
+import org.doodle.design.messaging.PacketRequester;
+import org.doodle.design.messaging.PacketStrategies;
+import org.doodle.design.messaging.reactive.PacketMappingMessageHandler;
+import org.doodle.design.messaging.reactive.PacketRequesterMethodArgumentResolver;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.MimeTypeUtils;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+  static final short GROUP = 5;
+  static final short CMD = 3;
+
+  @Param({"true", "false"})
+  boolean routeTable;
+
+  @Param({"true", "false"})
+  boolean fastInvocation;
+
+  PacketMappingMessageHandler handler;
+  Message<byte[]> message;
+
+  @Setup
+  public void setup() {
+    PacketStrategies strategies = PacketStrategies.builder().build();
+    this.handler = new PacketMappingMessageHandler();
+    this.handler.setHandlers(Collections.singletonList(new BenchmarkController()));
+    this.handler.setDecoders(strategies.decoders());
+    this.handler.setEncoders(strategies.encoders());
+    this.handler.setRouteTableEnabled(this.routeTable);
+    this.handler.setFastInvocationEnabled(this.fastInvocation);
+    this.handler.setMappingIndexEnabled(false);
+    this.handler.afterPropertiesSet();
+    PacketRequester requester =
+        new DefaultPacketRequester(
+            new NoopPacketSocket(),
+            MimeTypeUtils.APPLICATION_OCTET_STREAM,
+            PacketMetadata.MIME_TYPE,
+            strategies);
+    Map<String, Object> headers = new HashMap<>();
+    headers.put(PacketRequesterMethodArgumentResolver.PACKET_REQUESTER_HEADER, requester);
+    this.message = MessageBuilder.createMessage(new byte[0], new MessageHeaders(headers));
+  }
+
+  @Benchmark
+  public void dispatch() {
+    this.handler.handlePacket(GROUP, CMD, this.message).block();
+  }
+
+  @Controller
+  @PacketMapping(inbound = @PacketMapping.Inbound(GROUP))
+  public static class BenchmarkController {
+    int count;
+
+    @PacketMapping(inbound = @PacketMapping.Inbound(CMD))
+    public void ping(PacketRequester requester) {
+      this.count++;
+    }
+
+    @PacketMapping(inbound = @PacketMapping.Inbound(CMD + 1))
+    public void pong(PacketRequester requester) {
+      this.count--;
+    }
+  }
+}
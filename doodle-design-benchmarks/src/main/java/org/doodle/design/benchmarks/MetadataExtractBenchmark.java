@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.benchmarks;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.doodle.design.messaging.BinaryPacketMetadataExtractor;
+import org.doodle.design.messaging.ByteBufPacketPayload;
+import org.doodle.design.messaging.PacketMetadata;
+import org.doodle.design.messaging.PacketPayload;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetadataExtractBenchmark {
+  BinaryPacketMetadataExtractor extractor;
+  PacketMetadata view;
+  PacketPayload payload;
+
+  @Setup
+  public void setup() {
+    this.extractor = new BinaryPacketMetadataExtractor();
+    this.view = new PacketMetadata();
+    short flags = PacketMetadata.FLAG_TRACE_ID | PacketMetadata.FLAG_CORRELATION_ID;
+    ByteBuf metadata =
+        PacketMetadata.write(
+            PooledByteBufAllocator.DEFAULT.buffer(), (short) 5, (short) 3, flags, 42, 7L, 9);
+    this.payload = ByteBufPacketPayload.create(Unpooled.wrappedBuffer(new byte[16]), metadata);
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.payload.release();
+  }
+
+  @Benchmark
+  public int extractView() {
+    PacketMetadata metadata = this.extractor.extract(this.payload, this.view);
+    int route = metadata.route() + metadata.correlationId();
+    metadata.clear();
+    return route;
+  }
+
+  @Benchmark
+  public int extractThreadLocal() {
+    PacketMetadata metadata = this.extractor.extract(this.payload);
+    return metadata.route() + metadata.correlationId();
+  }
+
+  @Benchmark
+  public Map<String, Object> extractMap() {
+    return this.extractor.extract(this.payload, PacketMetadata.MIME_TYPE);
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.benchmarks;
+
+import com.google.protobuf.ListValue;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.doodle.design.messaging.ByteBufPacketPayload;
+import org.doodle.design.messaging.PacketMetadata;
+import org.doodle.design.messaging.PacketPayload;
+import org.doodle.design.messaging.protobuf.ProtobufPacketCodecSupport;
+import org.doodle.design.messaging.protobuf.ProtobufPacketDecoder;
+import org.doodle.design.messaging.protobuf.ProtobufPacketEncoder;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtobufBenchmark {
+  static final ResolvableType STRUCT_TYPE = ResolvableType.forClass(Struct.class);
+
+  @Param({"4", "64"})
+  int fields;
+
+  NettyDataBufferFactory bufferFactory;
+  ProtobufPacketEncoder encoder;
+  ProtobufPacketDecoder decoder;
+  Struct message;
+  PacketPayload payload;
+
+  @Setup
+  public void setup() {
+    this.bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+    this.encoder = new ProtobufPacketEncoder();
+    this.decoder = new ProtobufPacketDecoder();
+    Struct.Builder builder = Struct.newBuilder();
+    for (int i = 0; i < this.fields; i++) {
+      builder.putFields(
+          "field" + i,
+          Value.newBuilder()
+              .setListValue(
+                  ListValue.newBuilder()
+                      .addValues(Value.newBuilder().setNumberValue(i))
+                      .addValues(Value.newBuilder().setStringValue("value" + i)))
+              .build());
+    }
+    this.message = builder.build();
+    this.payload = encode();
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.payload.release();
+  }
+
+  @Benchmark
+  public int encodePayload() {
+    PacketPayload encoded = encode();
+    int length = encoded.data().readableBytes();
+    encoded.release();
+    return length;
+  }
+
+  @Benchmark
+  public Struct decodePayload() {
+    DataBuffer buffer = this.bufferFactory.wrap(this.payload.data().retainedSlice());
+    return (Struct)
+        this.decoder.decode(
+            buffer,
+            STRUCT_TYPE,
+            ProtobufPacketCodecSupport.PROTOBUF_MIME_TYPE,
+            Collections.emptyMap());
+  }
+
+  private PacketPayload encode() {
+    DataBuffer data =
+        this.encoder.encodeValue(
+            this.message,
+            this.bufferFactory,
+            STRUCT_TYPE,
+            ProtobufPacketCodecSupport.PROTOBUF_MIME_TYPE,
+            Collections.emptyMap());
+    ByteBuf metadata =
+        PacketMetadata.write(
+            PooledByteBufAllocator.DEFAULT.buffer(PacketMetadata.HEADER_LENGTH),
+            (short) 5,
+            (short) 3,
+            (short) 0,
+            0,
+            0L,
+            0);
+    return ByteBufPacketPayload.create(NettyDataBufferFactory.toByteBuf(data), metadata);
+  }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.processor;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+public class PacketMappingProcessor extends AbstractProcessor {
+  public static final String INDEX_LOCATION = "META-INF/doodle.packet-mappings";
+  static final String PACKET_MAPPING = "org.doodle.design.messaging.PacketMapping";
+  static final String ROUTE_SEPARATOR = ".";
+
+  private final Map<String, String> routes = new TreeMap<>();
+  private final Map<String, Element> origins = new HashMap<>();
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return Collections.singleton("*");
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    if (Objects.isNull(processingEnv.getElementUtils().getTypeElement(PACKET_MAPPING))) {
+      return false;
+    }
+    for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+      processType(type);
+    }
+    if (roundEnv.processingOver() && !roundEnv.errorRaised() && !this.routes.isEmpty()) {
+      writeIndex();
+    }
+    return false;
+  }
+
+  private void processType(TypeElement type) {
+    for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+      if (nested.getModifiers().contains(Modifier.STATIC)) {
+        processType(nested);
+      }
+    }
+    if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+      return;
+    }
+    List<TypeElement> hierarchy = getHierarchy(type);
+    for (TypeElement current : hierarchy) {
+      if (isComposed(current)) {
+        return;
+      }
+    }
+    Map<String, String> mappings = new LinkedHashMap<>();
+    Map<String, ExecutableElement> mappedMethods = new HashMap<>();
+    AnnotationMirror typeMapping = findTypeMapping(hierarchy);
+    short group = Objects.nonNull(typeMapping) ? inbound(typeMapping) : 0;
+    for (ExecutableElement method :
+        ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+      if (method.getModifiers().contains(Modifier.STATIC)) {
+        continue;
+      }
+      ExecutableElement annotated = findMappedMethod(type, hierarchy, method);
+      if (Objects.isNull(annotated)) {
+        continue;
+      }
+      if (isComposed(annotated)) {
+        // Composed mappings are resolved by the runtime scan, so leave the whole type to it
+        return;
+      }
+      short cmd = inbound(getMapping(annotated));
+      if (cmd == 0) {
+        continue;
+      }
+      String route = group != 0 ? group + ROUTE_SEPARATOR + cmd : String.valueOf(cmd);
+      ExecutableElement existing = mappedMethods.put(route, method);
+      if (Objects.nonNull(existing)) {
+        error(type, "Duplicate packet route '" + route + "' for " + existing + " and " + method);
+        continue;
+      }
+      mappings.put(route, describe(type, method));
+    }
+    for (Map.Entry<String, String> mapping : mappings.entrySet()) {
+      Element origin = this.origins.putIfAbsent(mapping.getKey(), type);
+      if (Objects.nonNull(origin)) {
+        error(
+            type,
+            "Duplicate packet route '"
+                + mapping.getKey()
+                + "' already mapped by "
+                + this.routes.get(mapping.getKey()));
+        continue;
+      }
+      this.routes.put(mapping.getKey(), mapping.getValue());
+    }
+  }
+
+  private AnnotationMirror findTypeMapping(List<TypeElement> hierarchy) {
+    for (TypeElement current : hierarchy) {
+      AnnotationMirror mapping = getMapping(current);
+      if (Objects.nonNull(mapping)) {
+        return mapping;
+      }
+    }
+    return null;
+  }
+
+  private ExecutableElement findMappedMethod(
+      TypeElement type, List<TypeElement> hierarchy, ExecutableElement method) {
+    for (TypeElement current : hierarchy) {
+      for (ExecutableElement candidate : ElementFilter.methodsIn(current.getEnclosedElements())) {
+        if ((Objects.nonNull(getMapping(candidate)) || isComposed(candidate))
+            && (candidate.equals(method)
+                || processingEnv.getElementUtils().overrides(method, candidate, type))) {
+          return candidate;
+        }
+      }
+    }
+    return null;
+  }
+
+  private List<TypeElement> getHierarchy(TypeElement type) {
+    List<TypeElement> hierarchy = new ArrayList<>();
+    Deque<TypeElement> pending = new ArrayDeque<>();
+    pending.add(type);
+    while (!pending.isEmpty()) {
+      TypeElement current = pending.poll();
+      if (hierarchy.contains(current)) {
+        continue;
+      }
+      hierarchy.add(current);
+      for (TypeMirror supertype : processingEnv.getTypeUtils().directSupertypes(current.asType())) {
+        Element element = processingEnv.getTypeUtils().asElement(supertype);
+        if (element instanceof TypeElement) {
+          pending.add((TypeElement) element);
+        }
+      }
+    }
+    return hierarchy;
+  }
+
+  private AnnotationMirror getMapping(Element element) {
+    for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+      if (isMapping(annotation.getAnnotationType())) {
+        return annotation;
+      }
+    }
+    return null;
+  }
+
+  private boolean isComposed(Element element) {
+    for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+      Element annotationType = annotation.getAnnotationType().asElement();
+      if (!isMapping(annotation.getAnnotationType())
+          && Objects.nonNull(getMapping(annotationType))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean isMapping(DeclaredType annotationType) {
+    return ((TypeElement) annotationType.asElement())
+        .getQualifiedName()
+        .contentEquals(PACKET_MAPPING);
+  }
+
+  private short inbound(AnnotationMirror mapping) {
+    AnnotationValue inbound = getValue(mapping, "inbound");
+    if (Objects.isNull(inbound)) {
+      return 0;
+    }
+    AnnotationValue value = getValue((AnnotationMirror) inbound.getValue(), "value");
+    return Objects.nonNull(value) ? ((Number) value.getValue()).shortValue() : 0;
+  }
+
+  private AnnotationValue getValue(AnnotationMirror annotation, String name) {
+    for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+        annotation.getElementValues().entrySet()) {
+      if (entry.getKey().getSimpleName().contentEquals(name)) {
+        return entry.getValue();
+      }
+    }
+    return null;
+  }
+
+  private String describe(TypeElement type, ExecutableElement method) {
+    StringJoiner parameters = new StringJoiner(",", "(", ")");
+    for (VariableElement parameter : method.getParameters()) {
+      parameters.add(binaryName(processingEnv.getTypeUtils().erasure(parameter.asType())));
+    }
+    return processingEnv.getElementUtils().getBinaryName(type)
+        + "#"
+        + method.getSimpleName()
+        + parameters;
+  }
+
+  private String binaryName(TypeMirror type) {
+    if (type.getKind() == TypeKind.ARRAY) {
+      return binaryName(((ArrayType) type).getComponentType()) + "[]";
+    }
+    if (type.getKind() == TypeKind.DECLARED) {
+      return processingEnv
+          .getElementUtils()
+          .getBinaryName((TypeElement) ((DeclaredType) type).asElement())
+          .toString();
+    }
+    return type.toString();
+  }
+
+  private void writeIndex() {
+    try {
+      FileObject file =
+          processingEnv
+              .getFiler()
+              .createResource(
+                  StandardLocation.CLASS_OUTPUT,
+                  "",
+                  INDEX_LOCATION,
+                  this.origins.values().toArray(new Element[0]));
+      try (Writer writer =
+          new OutputStreamWriter(file.openOutputStream(), StandardCharsets.ISO_8859_1)) {
+        for (Map.Entry<String, String> route : this.routes.entrySet()) {
+          writer.write(route.getKey() + "=" + route.getValue() + "\n");
+        }
+      }
+    } catch (IOException ex) {
+      error(null, "Unable to write packet mapping index: " + ex.getMessage());
+    }
+  }
+
+  private void error(Element element, String message) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+}
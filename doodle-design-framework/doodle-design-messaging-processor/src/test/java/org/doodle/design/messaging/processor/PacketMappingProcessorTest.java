@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PacketMappingProcessorTest {
+  private static final String IMPORTS =
+      "package test;\n"
+          + "import org.doodle.design.messaging.PacketMapping;\n"
+          + "import org.doodle.design.messaging.PacketMapping.Inbound;\n";
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+  @Test
+  public void indexesConcreteControllersByRoute() throws IOException {
+    assertTrue(
+        errors(),
+        compile(
+            source(
+                "RoleController",
+                "@PacketMapping(inbound = @Inbound(3))\n"
+                    + "public class RoleController {\n"
+                    + "  @PacketMapping(inbound = @Inbound(2))\n"
+                    + "  public void bag(int[] slots, java.util.List<String> names) {}\n"
+                    + "  @PacketMapping(inbound = @Inbound(1))\n"
+                    + "  public String login(String name) { return name; }\n"
+                    + "  @PacketMapping\n"
+                    + "  public void unrouted() {}\n"
+                    + "  public static class Nested {\n"
+                    + "    @PacketMapping(inbound = @Inbound(7))\n"
+                    + "    public void ping() {}\n"
+                    + "  }\n"
+                    + "}\n"),
+            source(
+                "AbstractController",
+                "@PacketMapping(inbound = @Inbound(4))\n"
+                    + "public abstract class AbstractController {\n"
+                    + "  @PacketMapping(inbound = @Inbound(1))\n"
+                    + "  public void inherited(long id) {}\n"
+                    + "}\n"),
+            source(
+                "ConcreteController",
+                "public class ConcreteController extends AbstractController {}\n")));
+    assertEquals(
+        List.of(
+            "3.1=test.RoleController#login(java.lang.String)",
+            "3.2=test.RoleController#bag(int[],java.util.List)",
+            "4.1=test.ConcreteController#inherited(long)",
+            "7=test.RoleController$Nested#ping()"),
+        readIndex());
+  }
+
+  @Test
+  public void duplicateRouteInOneControllerFailsCompilation() throws IOException {
+    assertFalse(
+        compile(
+            source(
+                "DuplicateController",
+                "@PacketMapping(inbound = @Inbound(3))\n"
+                    + "public class DuplicateController {\n"
+                    + "  @PacketMapping(inbound = @Inbound(1))\n"
+                    + "  public void first(String name) {}\n"
+                    + "  @PacketMapping(inbound = @Inbound(1))\n"
+                    + "  public void second(String name) {}\n"
+                    + "}\n")));
+    assertTrue(errors(), errors().contains("Duplicate packet route '3.1'"));
+    assertFalse(Files.exists(indexPath()));
+  }
+
+  @Test
+  public void duplicateRouteAcrossControllersFailsCompilation() throws IOException {
+    assertFalse(
+        compile(
+            source(
+                "FirstController",
+                "@PacketMapping(inbound = @Inbound(3))\n"
+                    + "public class FirstController {\n"
+                    + "  @PacketMapping(inbound = @Inbound(1))\n"
+                    + "  public void first(String name) {}\n"
+                    + "}\n"),
+            source(
+                "SecondController",
+                "@PacketMapping(inbound = @Inbound(3))\n"
+                    + "public class SecondController {\n"
+                    + "  @PacketMapping(inbound = @Inbound(1))\n"
+                    + "  public void second(String name) {}\n"
+                    + "}\n")));
+    assertTrue(errors(), errors().contains("Duplicate packet route '3.1' already mapped by"));
+  }
+
+  @Test
+  public void noIndexWithoutMappings() throws IOException {
+    assertTrue(errors(), compile(source("Plain", "public class Plain {}\n")));
+    assertFalse(Files.exists(indexPath()));
+  }
+
+  private boolean compile(JavaFileObject... sources) throws IOException {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    try (StandardJavaFileManager fileManager =
+        compiler.getStandardFileManager(this.diagnostics, Locale.ROOT, StandardCharsets.UTF_8)) {
+      fileManager.setLocation(StandardLocation.CLASS_OUTPUT, List.of(this.folder.getRoot()));
+      List<File> classpath = new ArrayList<>();
+      for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+        classpath.add(new File(entry));
+      }
+      fileManager.setLocation(StandardLocation.CLASS_PATH, classpath);
+      JavaCompiler.CompilationTask task =
+          compiler.getTask(
+              null, fileManager, this.diagnostics, List.of("-proc:only"), null, List.of(sources));
+      task.setProcessors(List.of(new PacketMappingProcessor()));
+      return task.call();
+    }
+  }
+
+  private String errors() {
+    StringBuilder errors = new StringBuilder();
+    for (Diagnostic<? extends JavaFileObject> diagnostic : this.diagnostics.getDiagnostics()) {
+      if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+        errors.append(diagnostic.getMessage(Locale.ROOT)).append('\n');
+      }
+    }
+    return errors.toString();
+  }
+
+  private Path indexPath() {
+    return this.folder.getRoot().toPath().resolve(PacketMappingProcessor.INDEX_LOCATION);
+  }
+
+  private List<String> readIndex() throws IOException {
+    return Files.readAllLines(indexPath(), StandardCharsets.ISO_8859_1);
+  }
+
+  private static JavaFileObject source(String name, String body) {
+    return new SimpleJavaFileObject(
+        URI.create("string:///test/" + name + ".java"), JavaFileObject.Kind.SOURCE) {
+      @Override
+      public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+        return IMPORTS + body;
+      }
+    };
+  }
+}
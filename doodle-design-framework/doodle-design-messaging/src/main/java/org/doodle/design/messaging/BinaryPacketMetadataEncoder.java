@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import java.util.Objects;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Mono;
+
+public class BinaryPacketMetadataEncoder implements PacketMetadataEncoder {
+  private final PacketStrategies strategies;
+  private short group;
+  private short cmd;
+  private short flags;
+  private int sequence;
+  private long traceId;
+  private int correlationId;
+
+  public BinaryPacketMetadataEncoder(PacketStrategies strategies) {
+    this.strategies = Objects.requireNonNull(strategies);
+  }
+
+  @Override
+  public PacketStrategies strategies() {
+    return this.strategies;
+  }
+
+  @Override
+  public BinaryPacketMetadataEncoder route(short group, short cmd) {
+    this.group = group;
+    this.cmd = cmd;
+    return this;
+  }
+
+  public BinaryPacketMetadataEncoder sequence(int sequence) {
+    this.sequence = sequence;
+    return this;
+  }
+
+  public BinaryPacketMetadataEncoder flags(short flags) {
+    this.flags |= flags;
+    return this;
+  }
+
+  public BinaryPacketMetadataEncoder traceId(long traceId) {
+    this.traceId = traceId;
+    this.flags |= PacketMetadata.FLAG_TRACE_ID;
+    return this;
+  }
+
+  public BinaryPacketMetadataEncoder correlationId(int correlationId) {
+    this.correlationId = correlationId;
+    this.flags |= PacketMetadata.FLAG_CORRELATION_ID;
+    return this;
+  }
+
+  @Override
+  public BinaryPacketMetadataEncoder metadata(Object metadata, MimeType metadataMimeType) {
+    if (!(metadata instanceof PacketMetadata)
+        || !PacketMetadata.MIME_TYPE.equalsTypeAndSubtype(metadataMimeType)) {
+      throw new IllegalArgumentException(
+          "Unsupported metadata " + metadata + " with mime type " + metadataMimeType);
+    }
+    PacketMetadata source = (PacketMetadata) metadata;
+    route(source.group(), source.cmd());
+    this.flags = source.flags();
+    this.sequence = source.sequence();
+    this.traceId = source.traceId();
+    this.correlationId = source.correlationId();
+    return this;
+  }
+
+  public ByteBuf encode(ByteBufAllocator allocator) {
+    ByteBuf out = allocator.buffer(PacketMetadata.length(this.flags));
+    return PacketMetadata.write(
+        out, this.group, this.cmd, this.flags, this.sequence, this.traceId, this.correlationId);
+  }
+
+  @Override
+  public Mono<DataBuffer> encode() {
+    return Mono.fromCallable(
+        () -> {
+          DataBufferFactory factory = this.strategies.dataBufferFactory();
+          if (factory instanceof NettyDataBufferFactory) {
+            NettyDataBufferFactory nettyFactory = (NettyDataBufferFactory) factory;
+            return nettyFactory.wrap(encode(nettyFactory.getByteBufAllocator()));
+          }
+          ByteBuf buffer = encode(PooledByteBufAllocator.DEFAULT);
+          try {
+            DataBuffer dataBuffer = factory.allocateBuffer(buffer.readableBytes());
+            dataBuffer.write(buffer.nioBuffer());
+            return dataBuffer;
+          } finally {
+            buffer.release();
+          }
+        });
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import io.netty.util.concurrent.FastThreadLocal;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.util.MimeType;
+
+public class BinaryPacketMetadataExtractor implements PacketMetadataExtractor {
+  private static final FastThreadLocal<PacketMetadata> VIEW =
+      new FastThreadLocal<PacketMetadata>() {
+        @Override
+        protected PacketMetadata initialValue() {
+          return new PacketMetadata();
+        }
+      };
+
+  public PacketMetadata extract(PacketPayload payload) {
+    return extract(payload, VIEW.get());
+  }
+
+  public PacketMetadata extract(PacketPayload payload, PacketMetadata view) {
+    return view.wrap(payload.metadata());
+  }
+
+  @Override
+  public Map<String, Object> extract(PacketPayload payload, MimeType metadataMimeType) {
+    Map<String, Object> result = new HashMap<>();
+    if (!payload.hasMetadata()
+        || !PacketMetadata.MIME_TYPE.equalsTypeAndSubtype(metadataMimeType)) {
+      return result;
+    }
+    PacketMetadata metadata = extract(payload);
+    try {
+      result.put(ROUTE_KEY, PacketRoute.destination(metadata.group(), metadata.cmd()));
+      result.put(SEQUENCE_KEY, metadata.sequence());
+      result.put(FLAGS_KEY, metadata.flags());
+      if (metadata.hasTraceId()) {
+        result.put(TRACE_ID_KEY, metadata.traceId());
+      }
+      if (metadata.hasCorrelationId()) {
+        result.put(CORRELATION_ID_KEY, metadata.correlationId());
+      }
+    } finally {
+      metadata.clear();
+    }
+    return result;
+  }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import org.springframework.lang.Nullable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+// Packets are queued only while the delegate reports !isWritable(), so the budget is enforced
+// for delegates backed by a real outbound buffer such as NettyPacketSocket or
+// PrioritizedPacketSocket. Delegates that keep the default isWritable() never queue.
+// Overload never throws from send(); rejected packets are released and reported to
+// onOverload, which is always called outside the socket lock.
+public class BoundedPacketSocket implements PacketSocket {
+  private final PacketSocket delegate;
+  private final int maxPackets;
+  private final long maxBytes;
+  private final OverloadPolicy policy;
+  private final IntPredicate droppableGroup;
+  private final Deque<PacketPayload> queue = new ArrayDeque<>();
+  private long queuedBytes;
+  private boolean draining;
+  private boolean drainAgain;
+  private Sinks.Empty<Void> writable = newWritableSink();
+  private boolean underPressure;
+  private Consumer<OverloadPolicy> overloadHandler = policy -> {};
+
+  public BoundedPacketSocket(
+      PacketSocket delegate,
+      int maxPackets,
+      long maxBytes,
+      OverloadPolicy policy,
+      IntPredicate droppableGroup) {
+    if (maxPackets <= 0 || maxBytes <= 0) {
+      throw new IllegalArgumentException(
+          "Outbound budget must be positive: " + maxPackets + " packets, " + maxBytes + " bytes");
+    }
+    this.delegate = Objects.requireNonNull(delegate);
+    this.maxPackets = maxPackets;
+    this.maxBytes = maxBytes;
+    this.policy = Objects.requireNonNull(policy);
+    this.droppableGroup = Objects.requireNonNull(droppableGroup);
+    this.delegate.onWritabilityChanged(this::drain);
+  }
+
+  public PacketSocket delegate() {
+    return this.delegate;
+  }
+
+  public BoundedPacketSocket onOverload(Consumer<OverloadPolicy> overloadHandler) {
+    this.overloadHandler = Objects.requireNonNull(overloadHandler);
+    return this;
+  }
+
+  public synchronized int queuedPackets() {
+    return this.queue.size();
+  }
+
+  public synchronized long queuedBytes() {
+    return this.queuedBytes;
+  }
+
+  public synchronized boolean isUnderPressure() {
+    return this.underPressure;
+  }
+
+  public synchronized Mono<Void> whenWritable() {
+    return this.underPressure ? this.writable.asMono() : Mono.empty();
+  }
+
+  @Override
+  public void send(PacketPayload payload) {
+    if (this.delegate.isDisposed()) {
+      payload.release();
+      return;
+    }
+    int bytes = size(payload);
+    OverloadPolicy overload = null;
+    List<PacketPayload> dropped = null;
+    synchronized (this) {
+      if (!fits(bytes)) {
+        dropped = makeRoom(bytes);
+      }
+      if (fits(bytes)) {
+        this.queue.offer(payload);
+        this.queuedBytes += bytes;
+        if (!this.underPressure
+            && (this.queue.size() * 2 >= this.maxPackets
+                || this.queuedBytes * 2 >= this.maxBytes)) {
+          this.underPressure = true;
+        }
+      } else if (this.policy == OverloadPolicy.DISCONNECT) {
+        overload = OverloadPolicy.DISCONNECT;
+        clear();
+      } else {
+        overload = OverloadPolicy.REJECT;
+      }
+    }
+    if (Objects.nonNull(dropped)) {
+      for (PacketPayload queued : dropped) {
+        queued.release();
+        this.overloadHandler.accept(OverloadPolicy.DROP_OLDEST);
+      }
+    }
+    if (Objects.isNull(overload)) {
+      drain();
+      return;
+    }
+    payload.release();
+    this.overloadHandler.accept(overload);
+    if (overload == OverloadPolicy.DISCONNECT) {
+      this.delegate.dispose();
+    }
+  }
+
+  private boolean fits(int bytes) {
+    return this.queue.size() < this.maxPackets && this.queuedBytes + bytes <= this.maxBytes;
+  }
+
+  @Nullable
+  private List<PacketPayload> makeRoom(int bytes) {
+    if (this.policy != OverloadPolicy.DROP_OLDEST) {
+      return null;
+    }
+    List<PacketPayload> dropped = new ArrayList<>();
+    Iterator<PacketPayload> it = this.queue.iterator();
+    while (!fits(bytes) && it.hasNext()) {
+      PacketPayload queued = it.next();
+      if (this.droppableGroup.test(group(queued))) {
+        it.remove();
+        this.queuedBytes -= size(queued);
+        dropped.add(queued);
+      }
+    }
+    return dropped;
+  }
+
+  protected void drain() {
+    synchronized (this) {
+      if (this.draining) {
+        this.drainAgain = true;
+        return;
+      }
+      this.draining = true;
+      this.drainAgain = false;
+    }
+    Sinks.Empty<Void> resumed = null;
+    while (true) {
+      boolean writable = this.delegate.isWritable();
+      PacketPayload payload;
+      synchronized (this) {
+        payload = writable ? this.queue.poll() : null;
+        if (Objects.isNull(payload)) {
+          if (this.drainAgain) {
+            this.drainAgain = false;
+            continue;
+          }
+          this.draining = false;
+          if (this.underPressure && this.queue.isEmpty()) {
+            this.underPressure = false;
+            resumed = this.writable;
+            this.writable = newWritableSink();
+          }
+          break;
+        }
+        this.drainAgain = false;
+        this.queuedBytes -= size(payload);
+      }
+      try {
+        this.delegate.send(payload);
+      } catch (RuntimeException ex) {
+        synchronized (this) {
+          this.draining = false;
+        }
+        throw ex;
+      }
+    }
+    if (Objects.nonNull(resumed)) {
+      resumed.tryEmitEmpty();
+    }
+  }
+
+  private void clear() {
+    PacketPayload payload;
+    while (Objects.nonNull(payload = this.queue.poll())) {
+      payload.release();
+    }
+    this.queuedBytes = 0;
+  }
+
+  private static int size(PacketPayload payload) {
+    return payload.data().readableBytes() + payload.metadata().readableBytes();
+  }
+
+  private static int group(PacketPayload payload) {
+    if (!payload.hasMetadata()
+        || payload.metadata().readableBytes() < PacketMetadata.HEADER_LENGTH) {
+      return 0;
+    }
+    return payload
+        .metadata()
+        .getShort(payload.metadata().readerIndex() + PacketMetadata.GROUP_OFFSET);
+  }
+
+  private static Sinks.Empty<Void> newWritableSink() {
+    return Sinks.empty();
+  }
+
+  @Override
+  public Executor executor() {
+    return this.delegate.executor();
+  }
+
+  @Override
+  public PacketSocket onReadIdle(long idleTimeout, Runnable onReadIdle) {
+    this.delegate.onReadIdle(idleTimeout, onReadIdle);
+    return this;
+  }
+
+  @Override
+  public boolean isWritable() {
+    return !isUnderPressure() && this.delegate.isWritable();
+  }
+
+  @Override
+  public void dispose() {
+    this.delegate.dispose();
+    synchronized (this) {
+      clear();
+    }
+  }
+
+  @Override
+  public boolean isDisposed() {
+    return this.delegate.isDisposed();
+  }
+
+  public enum OverloadPolicy {
+    DROP_OLDEST,
+    REJECT,
+    DISCONNECT
+  }
+}
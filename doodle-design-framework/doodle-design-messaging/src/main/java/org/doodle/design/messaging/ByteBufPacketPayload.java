@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.IllegalReferenceCountException;
+import io.netty.util.Recycler;
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.ResourceLeakDetectorFactory;
+import io.netty.util.ResourceLeakTracker;
+import java.util.Objects;
+import org.springframework.lang.Nullable;
+
+public final class ByteBufPacketPayload extends AbstractReferenceCounted implements PacketPayload {
+  public static final String LEAK_DETECTION_PROPERTY = "org.doodle.design.messaging.leakDetection";
+
+  private static final Recycler<ByteBufPacketPayload> RECYCLER =
+      new Recycler<ByteBufPacketPayload>() {
+        @Override
+        protected ByteBufPacketPayload newObject(Handle<ByteBufPacketPayload> handle) {
+          return new ByteBufPacketPayload(handle);
+        }
+      };
+
+  private static final ResourceLeakDetector<ByteBufPacketPayload> LEAK_DETECTOR =
+      ResourceLeakDetectorFactory.instance().newResourceLeakDetector(ByteBufPacketPayload.class);
+
+  private static volatile boolean leakDetection = Boolean.getBoolean(LEAK_DETECTION_PROPERTY);
+
+  private final Recycler.Handle<ByteBufPacketPayload> handle;
+  @Nullable private ByteBuf data;
+  @Nullable private ByteBuf metadata;
+  @Nullable private ResourceLeakTracker<ByteBufPacketPayload> leak;
+
+  private ByteBufPacketPayload(Recycler.Handle<ByteBufPacketPayload> handle) {
+    this.handle = handle;
+  }
+
+  // When enabled every payload is tracked regardless of the sampling level; otherwise tracking
+  // follows -Dio.netty.leakDetection.level like pooled buffers do.
+  public static void setLeakDetection(boolean enabled) {
+    leakDetection = enabled;
+  }
+
+  public static boolean isLeakDetection() {
+    return leakDetection;
+  }
+
+  public static ByteBufPacketPayload create(ByteBuf data) {
+    return create(data, null);
+  }
+
+  public static ByteBufPacketPayload create(ByteBuf data, @Nullable ByteBuf metadata) {
+    ByteBufPacketPayload payload = RECYCLER.get();
+    payload.data = Objects.requireNonNull(data);
+    payload.metadata = metadata;
+    payload.setRefCnt(1);
+    payload.leak =
+        leakDetection ? LEAK_DETECTOR.trackForcibly(payload) : LEAK_DETECTOR.track(payload);
+    return payload;
+  }
+
+  public static ByteBufPacketPayload create(CharSequence data) {
+    return create(ByteBufUtil.writeUtf8(PooledByteBufAllocator.DEFAULT, data));
+  }
+
+  public static ByteBufPacketPayload create(CharSequence data, CharSequence metadata) {
+    return create(
+        ByteBufUtil.writeUtf8(PooledByteBufAllocator.DEFAULT, data),
+        ByteBufUtil.writeUtf8(PooledByteBufAllocator.DEFAULT, metadata));
+  }
+
+  public static ByteBufPacketPayload composite(
+      ByteBuf header, ByteBuf body, @Nullable ByteBuf metadata) {
+    return composite(PooledByteBufAllocator.DEFAULT, header, body, metadata);
+  }
+
+  public static ByteBufPacketPayload composite(
+      ByteBufAllocator allocator, ByteBuf header, ByteBuf body, @Nullable ByteBuf metadata) {
+    CompositeByteBuf data = allocator.compositeBuffer(2).addComponents(true, header, body);
+    return create(data, metadata);
+  }
+
+  public static ByteBufPacketPayload slice(ByteBuf frame, int metadataLength) {
+    try {
+      ByteBuf metadata = metadataLength > 0 ? frame.readRetainedSlice(metadataLength) : null;
+      ByteBuf data = frame.readRetainedSlice(frame.readableBytes());
+      return create(data, metadata);
+    } finally {
+      frame.release();
+    }
+  }
+
+  @Override
+  public boolean hasMetadata() {
+    ensureAccessible();
+    return Objects.nonNull(this.metadata);
+  }
+
+  @Override
+  public ByteBuf data() {
+    ensureAccessible();
+    return this.data;
+  }
+
+  @Override
+  public ByteBuf sliceData() {
+    return data().slice();
+  }
+
+  @Override
+  public ByteBuf metadata() {
+    ensureAccessible();
+    return Objects.nonNull(this.metadata) ? this.metadata : Unpooled.EMPTY_BUFFER;
+  }
+
+  @Override
+  public ByteBuf sliceMetadata() {
+    return metadata().slice();
+  }
+
+  boolean isTracked() {
+    return Objects.nonNull(this.leak);
+  }
+
+  @Override
+  public ByteBufPacketPayload retain() {
+    record();
+    super.retain();
+    return this;
+  }
+
+  @Override
+  public ByteBufPacketPayload retain(int increment) {
+    record();
+    super.retain(increment);
+    return this;
+  }
+
+  @Override
+  public boolean release() {
+    record();
+    return super.release();
+  }
+
+  @Override
+  public boolean release(int decrement) {
+    record();
+    return super.release(decrement);
+  }
+
+  private void record() {
+    ResourceLeakTracker<ByteBufPacketPayload> leak = this.leak;
+    if (Objects.nonNull(leak)) {
+      leak.record();
+    }
+  }
+
+  @Override
+  public ByteBufPacketPayload touch() {
+    return touch(null);
+  }
+
+  @Override
+  public ByteBufPacketPayload touch(@Nullable Object hint) {
+    ensureAccessible();
+    if (Objects.nonNull(this.leak)) {
+      this.leak.record(hint);
+    }
+    this.data.touch(hint);
+    if (Objects.nonNull(this.metadata)) {
+      this.metadata.touch(hint);
+    }
+    return this;
+  }
+
+  @Override
+  protected void deallocate() {
+    this.data.release();
+    this.data = null;
+    if (Objects.nonNull(this.metadata)) {
+      this.metadata.release();
+      this.metadata = null;
+    }
+    if (Objects.nonNull(this.leak)) {
+      this.leak.close(this);
+      this.leak = null;
+    }
+    this.handle.recycle(this);
+  }
+
+  private void ensureAccessible() {
+    if (refCnt() == 0) {
+      throw new IllegalReferenceCountException(0);
+    }
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.lang.Nullable;
+import reactor.core.scheduler.Scheduler;
+
+public class CoalescingPacketSocket implements PacketSocket {
+  private final PacketSocket delegate;
+  @Nullable private final Scheduler timer;
+  private final long windowNanos;
+  private final int maxBatchSize;
+  private final Queue<PacketPayload> queue = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean scheduled = new AtomicBoolean();
+  private final List<PacketPayload> batch;
+  private final Runnable flushTask = this::flush;
+  private final Runnable windowTask = this::flushOnExecutor;
+
+  public CoalescingPacketSocket(PacketSocket delegate) {
+    this(delegate, null, Duration.ZERO, 64);
+  }
+
+  public CoalescingPacketSocket(
+      PacketSocket delegate, @Nullable Scheduler timer, Duration window, int maxBatchSize) {
+    if (maxBatchSize <= 0) {
+      throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+    }
+    if (!window.isZero() && Objects.isNull(timer)) {
+      throw new IllegalArgumentException("A timer is required for a coalescing window");
+    }
+    this.delegate = Objects.requireNonNull(delegate);
+    this.timer = timer;
+    this.windowNanos = window.toNanos();
+    this.maxBatchSize = maxBatchSize;
+    this.batch = new ArrayList<>(maxBatchSize);
+  }
+
+  public PacketSocket delegate() {
+    return this.delegate;
+  }
+
+  @Override
+  public void send(PacketPayload payload) {
+    if (isDisposed()) {
+      payload.release();
+      return;
+    }
+    this.queue.offer(payload);
+    scheduleFlush();
+  }
+
+  @Override
+  public void send(Iterable<? extends PacketPayload> payloads) {
+    for (PacketPayload payload : payloads) {
+      send(payload);
+    }
+  }
+
+  private void scheduleFlush() {
+    if (!this.scheduled.compareAndSet(false, true)) {
+      return;
+    }
+    if (this.windowNanos > 0) {
+      try {
+        this.timer.schedule(this.windowTask, this.windowNanos, TimeUnit.NANOSECONDS);
+        return;
+      } catch (RejectedExecutionException ignored) {
+        // the timer is gone, flush straight away on the socket executor
+      }
+    }
+    flushOnExecutor();
+  }
+
+  private void flushOnExecutor() {
+    try {
+      this.delegate.executor().execute(this.flushTask);
+    } catch (RejectedExecutionException ex) {
+      this.scheduled.set(false);
+      releaseQueued();
+    }
+  }
+
+  private void releaseQueued() {
+    PacketPayload payload;
+    while (Objects.nonNull(payload = this.queue.poll())) {
+      payload.release();
+    }
+  }
+
+  protected void flush() {
+    try {
+      PacketPayload payload;
+      while (Objects.nonNull(payload = this.queue.poll())) {
+        this.batch.add(payload);
+        if (this.batch.size() == this.maxBatchSize) {
+          drainBatch();
+        }
+      }
+      drainBatch();
+    } finally {
+      this.scheduled.set(false);
+    }
+    if (!this.queue.isEmpty()) {
+      scheduleFlush();
+    }
+  }
+
+  private void drainBatch() {
+    if (this.batch.isEmpty()) {
+      return;
+    }
+    try {
+      if (this.delegate.isDisposed()) {
+        this.batch.forEach(PacketPayload::release);
+      } else {
+        this.delegate.send(this.batch);
+      }
+    } finally {
+      this.batch.clear();
+    }
+  }
+
+  @Override
+  public Executor executor() {
+    return this.delegate.executor();
+  }
+
+  @Override
+  public PacketSocket onReadIdle(long idleTimeout, Runnable onReadIdle) {
+    this.delegate.onReadIdle(idleTimeout, onReadIdle);
+    return this;
+  }
+
+  @Override
+  public boolean isWritable() {
+    return this.delegate.isWritable();
+  }
+
+  @Override
+  public PacketSocket onWritabilityChanged(Runnable onWritabilityChanged) {
+    this.delegate.onWritabilityChanged(onWritabilityChanged);
+    return this;
+  }
+
+  @Override
+  public void dispose() {
+    this.delegate.dispose();
+    releaseQueued();
+  }
+
+  @Override
+  public boolean isDisposed() {
+    return this.delegate.isDisposed();
+  }
+}
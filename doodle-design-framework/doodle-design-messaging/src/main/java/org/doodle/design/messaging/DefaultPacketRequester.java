@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Objects;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Decoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class DefaultPacketRequester implements PacketRequester {
+  public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(10);
+
+  private final PacketSocket socket;
+  private final MimeType dataMimeType;
+  private final MimeType metadataMimeType;
+  private final PacketStrategies strategies;
+  private final Duration timeout;
+  private final PacketCorrelator correlator = new PacketCorrelator();
+
+  public DefaultPacketRequester(
+      PacketSocket socket,
+      MimeType dataMimeType,
+      MimeType metadataMimeType,
+      PacketStrategies strategies) {
+    this(socket, dataMimeType, metadataMimeType, strategies, DEFAULT_TIMEOUT);
+  }
+
+  public DefaultPacketRequester(
+      PacketSocket socket,
+      MimeType dataMimeType,
+      MimeType metadataMimeType,
+      PacketStrategies strategies,
+      Duration timeout) {
+    this.socket = Objects.requireNonNull(socket);
+    this.dataMimeType = Objects.requireNonNull(dataMimeType);
+    this.metadataMimeType = Objects.requireNonNull(metadataMimeType);
+    this.strategies = Objects.requireNonNull(strategies);
+    this.timeout = Objects.requireNonNull(timeout);
+  }
+
+  @Override
+  public PacketSocket socket() {
+    return this.socket;
+  }
+
+  @Override
+  public MimeType dataMimeType() {
+    return this.dataMimeType;
+  }
+
+  @Override
+  public MimeType metadataMimeType() {
+    return this.metadataMimeType;
+  }
+
+  @Override
+  public PacketStrategies strategies() {
+    return this.strategies;
+  }
+
+  public PacketCorrelator correlator() {
+    return this.correlator;
+  }
+
+  public boolean handleReply(PacketMetadata metadata, PacketPayload payload) {
+    return this.correlator.handleReply(metadata, payload);
+  }
+
+  @Override
+  public RequestSpec route(short group, short cmd) {
+    return new DefaultRequestSpec(group, cmd);
+  }
+
+  @Override
+  public void dispose() {
+    this.correlator.dispose();
+    this.socket.dispose();
+  }
+
+  protected <T> T decodeData(PacketPayload payload, Class<T> dataType) {
+    ResolvableType elementType = ResolvableType.forClass(dataType);
+    Decoder<T> decoder = this.strategies.decoder(elementType, this.dataMimeType);
+    return decoder.decode(
+        retainData(payload), elementType, this.dataMimeType, Collections.emptyMap());
+  }
+
+  // The decoder owns the returned buffer and releases it, or hands it to the caller when
+  // decoding to DataBuffer, so it must not share memory with the payload released here.
+  protected DataBuffer retainData(PacketPayload payload) {
+    try {
+      DataBufferFactory factory = this.strategies.dataBufferFactory();
+      if (factory instanceof NettyDataBufferFactory) {
+        return ((NettyDataBufferFactory) factory).wrap(payload.data().retainedSlice());
+      }
+      ByteBuffer data = ByteBuffer.allocate(payload.data().readableBytes());
+      payload.data().getBytes(payload.data().readerIndex(), data);
+      return factory.wrap(data.flip());
+    } finally {
+      payload.release();
+    }
+  }
+
+  protected PacketPayload createPayload(
+      short group, short cmd, @Nullable Object data, short flags, int correlationId) {
+    return PacketPayloads.create(
+        this.strategies, this.dataMimeType, group, cmd, data, flags, correlationId);
+  }
+
+  private class DefaultRequestSpec implements RequestSpec {
+    private final short group;
+    private final short cmd;
+    @Nullable private Object data;
+    private Duration timeout = DefaultPacketRequester.this.timeout;
+    private short flags;
+    private int correlationId;
+
+    DefaultRequestSpec(short group, short cmd) {
+      this.group = group;
+      this.cmd = cmd;
+    }
+
+    @Override
+    public RequestSpec data(Object data) {
+      this.data = data;
+      return this;
+    }
+
+    @Override
+    public RequestSpec timeout(Duration timeout) {
+      this.timeout = Objects.requireNonNull(timeout);
+      return this;
+    }
+
+    @Override
+    public RequestSpec flags(short flags) {
+      this.flags |= flags;
+      return this;
+    }
+
+    @Override
+    public RequestSpec correlationId(int correlationId) {
+      this.correlationId = correlationId;
+      this.flags |= PacketMetadata.FLAG_CORRELATION_ID;
+      return this;
+    }
+
+    @Override
+    public Mono<Void> send() {
+      return Mono.fromRunnable(
+          () ->
+              socket.send(
+                  createPayload(this.group, this.cmd, this.data, this.flags, this.correlationId)));
+    }
+
+    @Override
+    public <T> Mono<T> retrieveMono(Class<T> dataType) {
+      return retrieve(dataType, true).next();
+    }
+
+    @Override
+    public <T> Flux<T> retrieveFlux(Class<T> dataType) {
+      return retrieve(dataType, false);
+    }
+
+    private <T> Flux<T> retrieve(Class<T> dataType, boolean single) {
+      return Flux.defer(
+          () -> {
+            PacketCorrelator.Pending pending = correlator.register(single);
+            try {
+              socket.send(
+                  createPayload(
+                      this.group,
+                      this.cmd,
+                      this.data,
+                      (short) (this.flags | PacketMetadata.FLAG_CORRELATION_ID),
+                      pending.id()));
+            } catch (Throwable ex) {
+              correlator.remove(pending.id());
+              return Flux.error(ex);
+            }
+            return pending
+                .replies()
+                .map(payload -> decodeData(payload, dataType))
+                .timeout(this.timeout)
+                .doOnDiscard(PacketPayload.class, PacketPayload::release)
+                .doFinally(signal -> correlator.remove(pending.id()));
+          });
+    }
+  }
+
+  static final class DefaultBuilder implements PacketRequester.Builder {
+    @Nullable private PacketStrategies strategies;
+    private MimeType dataMimeType = MimeTypeUtils.APPLICATION_OCTET_STREAM;
+    private MimeType metadataMimeType = PacketMetadata.MIME_TYPE;
+    private Duration timeout = DEFAULT_TIMEOUT;
+
+    @Override
+    public Builder strategies(PacketStrategies strategies) {
+      this.strategies = strategies;
+      return this;
+    }
+
+    @Override
+    public Builder dataMimeType(MimeType dataMimeType) {
+      this.dataMimeType = Objects.requireNonNull(dataMimeType);
+      return this;
+    }
+
+    @Override
+    public Builder metadataMimeType(MimeType metadataMimeType) {
+      this.metadataMimeType = Objects.requireNonNull(metadataMimeType);
+      return this;
+    }
+
+    @Override
+    public Builder timeout(Duration timeout) {
+      this.timeout = Objects.requireNonNull(timeout);
+      return this;
+    }
+
+    @Override
+    public PacketRequester wrap(PacketSocket socket) {
+      PacketStrategies strategies =
+          Objects.nonNull(this.strategies) ? this.strategies : PacketStrategies.builder().build();
+      return new DefaultPacketRequester(
+          socket, this.dataMimeType, this.metadataMimeType, strategies, this.timeout);
+    }
+  }
+}
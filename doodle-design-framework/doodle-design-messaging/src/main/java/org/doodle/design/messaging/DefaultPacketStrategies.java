@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.doodle.design.messaging.protobuf.ProtobufPacketDecoder;
+import org.doodle.design.messaging.protobuf.ProtobufPacketEncoder;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.*;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.MimeType;
+import org.springframework.util.RouteMatcher;
+import org.springframework.util.SimpleRouteMatcher;
+
+final class DefaultPacketStrategies implements PacketStrategies {
+  private static final boolean PROTOBUF_PRESENT =
+      ClassUtils.isPresent(
+          "com.google.protobuf.Message", DefaultPacketStrategies.class.getClassLoader());
+
+  private static final Object NO_CODEC = new Object();
+
+  private final List<Encoder<?>> encoders;
+  private final List<Decoder<?>> decoders;
+  private final RouteMatcher routeMatcher;
+  private final DataBufferFactory dataBufferFactory;
+  private final PacketMetadataExtractor metadataExtractor;
+  private final ConcurrentMap<CodecKey, Object> encoderCache = new ConcurrentHashMap<>();
+  private final ConcurrentMap<CodecKey, Object> decoderCache = new ConcurrentHashMap<>();
+
+  private DefaultPacketStrategies(
+      List<Encoder<?>> encoders,
+      List<Decoder<?>> decoders,
+      RouteMatcher routeMatcher,
+      DataBufferFactory dataBufferFactory,
+      PacketMetadataExtractor metadataExtractor) {
+    this.encoders = Collections.unmodifiableList(encoders);
+    this.decoders = Collections.unmodifiableList(decoders);
+    this.routeMatcher = routeMatcher;
+    this.dataBufferFactory = dataBufferFactory;
+    this.metadataExtractor = metadataExtractor;
+  }
+
+  @Override
+  public List<Encoder<?>> encoders() {
+    return this.encoders;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> Encoder<T> encoder(ResolvableType elementType, @Nullable MimeType mimeType) {
+    Object encoder =
+        this.encoderCache.computeIfAbsent(
+            new CodecKey(elementType, mimeType), key -> findEncoder(elementType, mimeType));
+    if (encoder == NO_CODEC) {
+      throw new IllegalArgumentException("No encoder for " + elementType);
+    }
+    return (Encoder<T>) encoder;
+  }
+
+  private Object findEncoder(ResolvableType elementType, @Nullable MimeType mimeType) {
+    for (Encoder<?> encoder : this.encoders) {
+      if (encoder.canEncode(elementType, mimeType)) {
+        return encoder;
+      }
+    }
+    return NO_CODEC;
+  }
+
+  @Override
+  public List<Decoder<?>> decoders() {
+    return this.decoders;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> Decoder<T> decoder(ResolvableType elementType, @Nullable MimeType mimeType) {
+    Object decoder =
+        this.decoderCache.computeIfAbsent(
+            new CodecKey(elementType, mimeType), key -> findDecoder(elementType, mimeType));
+    if (decoder == NO_CODEC) {
+      throw new IllegalArgumentException("No decoder for " + elementType);
+    }
+    return (Decoder<T>) decoder;
+  }
+
+  private Object findDecoder(ResolvableType elementType, @Nullable MimeType mimeType) {
+    for (Decoder<?> decoder : this.decoders) {
+      if (decoder.canDecode(elementType, mimeType)) {
+        return decoder;
+      }
+    }
+    return NO_CODEC;
+  }
+
+  @Override
+  public RouteMatcher routeMatcher() {
+    return this.routeMatcher;
+  }
+
+  @Override
+  public DataBufferFactory dataBufferFactory() {
+    return this.dataBufferFactory;
+  }
+
+  @Override
+  public PacketMetadataExtractor metadataExtractor() {
+    return this.metadataExtractor;
+  }
+
+  private static final class CodecKey {
+    private final ResolvableType elementType;
+    @Nullable private final MimeType mimeType;
+    private final int hash;
+
+    CodecKey(ResolvableType elementType, @Nullable MimeType mimeType) {
+      this.elementType = elementType;
+      this.mimeType = mimeType;
+      this.hash = 31 * elementType.hashCode() + Objects.hashCode(mimeType);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof CodecKey)) {
+        return false;
+      }
+      CodecKey that = (CodecKey) other;
+      return this.elementType.equals(that.elementType)
+          && Objects.equals(this.mimeType, that.mimeType);
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hash;
+    }
+  }
+
+  static final class DefaultBuilder implements PacketStrategies.Builder {
+    private final List<Encoder<?>> encoders = new ArrayList<>();
+    private final List<Decoder<?>> decoders = new ArrayList<>();
+    @Nullable private RouteMatcher routeMatcher;
+    @Nullable private DataBufferFactory dataBufferFactory;
+    @Nullable private PacketMetadataExtractor metadataExtractor;
+
+    DefaultBuilder() {
+      this.encoders.add(CharSequenceEncoder.allMimeTypes());
+      this.encoders.add(new ByteBufferEncoder());
+      this.encoders.add(new ByteArrayEncoder());
+      this.encoders.add(new DataBufferEncoder());
+      if (PROTOBUF_PRESENT) {
+        this.encoders.add(new ProtobufPacketEncoder());
+      }
+
+      this.decoders.add(StringDecoder.allMimeTypes());
+      this.decoders.add(new ByteBufferDecoder());
+      this.decoders.add(new ByteArrayDecoder());
+      this.decoders.add(new DataBufferDecoder());
+      if (PROTOBUF_PRESENT) {
+        this.decoders.add(new ProtobufPacketDecoder());
+      }
+    }
+
+    @Override
+    public Builder encoder(Encoder<?>... encoder) {
+      this.encoders.addAll(Arrays.asList(encoder));
+      return this;
+    }
+
+    @Override
+    public Builder decoder(Decoder<?>... decoder) {
+      this.decoders.addAll(Arrays.asList(decoder));
+      return this;
+    }
+
+    @Override
+    public Builder routeMatcher(@Nullable RouteMatcher routeMatcher) {
+      this.routeMatcher = routeMatcher;
+      return this;
+    }
+
+    @Override
+    public Builder dataBufferFactory(@Nullable DataBufferFactory dataBufferFactory) {
+      this.dataBufferFactory = dataBufferFactory;
+      return this;
+    }
+
+    @Override
+    public Builder metadataExtractor(@Nullable PacketMetadataExtractor metadataExtractor) {
+      this.metadataExtractor = metadataExtractor;
+      return this;
+    }
+
+    @Override
+    public PacketStrategies build() {
+      return new DefaultPacketStrategies(
+          new ArrayList<>(this.encoders),
+          new ArrayList<>(this.decoders),
+          Objects.nonNull(this.routeMatcher) ? this.routeMatcher : initRouteMatcher(),
+          Objects.nonNull(this.dataBufferFactory)
+              ? this.dataBufferFactory
+              : new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT),
+          Objects.nonNull(this.metadataExtractor)
+              ? this.metadataExtractor
+              : new BinaryPacketMetadataExtractor());
+    }
+
+    private RouteMatcher initRouteMatcher() {
+      AntPathMatcher pathMatcher = new AntPathMatcher();
+      pathMatcher.setPathSeparator(PacketRoute.SEPARATOR);
+      return new SimpleRouteMatcher(pathMatcher);
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Mono;
+
+public class PacketBroadcaster {
+  private final PacketStrategies strategies;
+  private final MimeType dataMimeType;
+  private final ConcurrentMap<Executor, Set<PacketRequester>> partitions =
+      new ConcurrentHashMap<>();
+  private final ConcurrentMap<PacketRequester, Executor> members = new ConcurrentHashMap<>();
+
+  public PacketBroadcaster(PacketStrategies strategies, MimeType dataMimeType) {
+    this.strategies = Objects.requireNonNull(strategies);
+    this.dataMimeType = Objects.requireNonNull(dataMimeType);
+  }
+
+  // A member stays in the partition of the executor it had when added; socket executors may
+  // change later (e.g. a resumed PacketSession), so removal goes through the members map.
+  public synchronized boolean add(PacketRequester requester) {
+    Executor executor = requester.socket().executor();
+    if (Objects.nonNull(this.members.putIfAbsent(requester, executor))) {
+      return false;
+    }
+    this.partitions.compute(
+        executor,
+        (key, partition) -> {
+          Set<PacketRequester> target =
+              Objects.nonNull(partition) ? partition : ConcurrentHashMap.newKeySet();
+          target.add(requester);
+          return target;
+        });
+    return true;
+  }
+
+  public synchronized boolean remove(PacketRequester requester) {
+    Executor executor = this.members.remove(requester);
+    if (Objects.isNull(executor)) {
+      return false;
+    }
+    this.partitions.computeIfPresent(
+        executor,
+        (key, partition) -> {
+          partition.remove(requester);
+          return partition.isEmpty() ? null : partition;
+        });
+    return true;
+  }
+
+  public boolean contains(PacketRequester requester) {
+    return this.members.containsKey(requester);
+  }
+
+  public int size() {
+    return this.members.size();
+  }
+
+  int partitionCount() {
+    return this.partitions.size();
+  }
+
+  public Mono<Void> broadcast(short group, short cmd, @Nullable Object data) {
+    return Mono.fromRunnable(
+        () ->
+            broadcast(
+                PacketPayloads.create(
+                    this.strategies, this.dataMimeType, group, cmd, data, (short) 0, 0)));
+  }
+
+  public void broadcast(PacketPayload payload) {
+    try {
+      for (Map.Entry<Executor, Set<PacketRequester>> entry : this.partitions.entrySet()) {
+        Set<PacketRequester> members = entry.getValue();
+        if (members.isEmpty()) {
+          continue;
+        }
+        payload.retain();
+        try {
+          entry.getKey().execute(() -> fanOut(members, payload));
+        } catch (RuntimeException ex) {
+          payload.release();
+          throw ex;
+        }
+      }
+    } finally {
+      payload.release();
+    }
+  }
+
+  private void fanOut(Set<PacketRequester> members, PacketPayload payload) {
+    try {
+      for (PacketRequester member : members) {
+        PacketSocket socket = member.socket();
+        if (socket.isDisposed()) {
+          remove(member);
+          continue;
+        }
+        socket.send(PacketPayloads.retainedDuplicate(payload));
+      }
+    } finally {
+      payload.release();
+    }
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.concurrent.FastThreadLocal;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.springframework.lang.Nullable;
+
+public class PacketCompressor {
+  public static final int DEFAULT_THRESHOLD = 1024;
+
+  private static final FastThreadLocal<Deflater> DEFLATER =
+      new FastThreadLocal<Deflater>() {
+        @Override
+        protected Deflater initialValue() {
+          return new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        }
+
+        @Override
+        protected void onRemoval(Deflater deflater) {
+          deflater.end();
+        }
+      };
+
+  private static final FastThreadLocal<Inflater> INFLATER =
+      new FastThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+          return new Inflater(true);
+        }
+
+        @Override
+        protected void onRemoval(Inflater inflater) {
+          inflater.end();
+        }
+      };
+
+  private final int threshold;
+  private final int level;
+  private final int maxLength;
+
+  public PacketCompressor(int threshold, int maxLength) {
+    this(threshold, Deflater.BEST_SPEED, maxLength);
+  }
+
+  public PacketCompressor(int threshold, int level, int maxLength) {
+    if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+      throw new IllegalArgumentException("Invalid deflate level: " + level);
+    }
+    this.threshold = threshold;
+    this.level = level;
+    this.maxLength = maxLength;
+  }
+
+  public boolean isEnabled() {
+    return this.threshold > 0;
+  }
+
+  public int threshold() {
+    return this.threshold;
+  }
+
+  @Nullable
+  public PacketPayload compress(ByteBufAllocator allocator, PacketPayload payload) {
+    if (!isEnabled() || !payload.hasMetadata()) {
+      return null;
+    }
+    ByteBuf metadata = payload.metadata();
+    ByteBuf data = payload.data();
+    int length = data.readableBytes();
+    if (length < this.threshold
+        || length <= Integer.BYTES
+        || metadata.readableBytes() < PacketMetadata.HEADER_LENGTH
+        || (flags(metadata) & PacketMetadata.FLAG_COMPRESSED) != 0) {
+      return null;
+    }
+    Deflater deflater = DEFLATER.get();
+    deflater.reset();
+    deflater.setLevel(this.level);
+    // Only keep the result if it is strictly smaller, so the output never outgrows the input.
+    ByteBuf out = allocator.buffer(length);
+    try {
+      deflater.setInput(data.nioBuffer());
+      deflater.finish();
+      ByteBuffer target = out.nioBuffer(Integer.BYTES, length - Integer.BYTES);
+      // A level change is applied by the first deflate call, which may not produce output.
+      while (!deflater.finished() && target.hasRemaining()) {
+        int position = target.position();
+        if (deflater.deflate(target) == 0
+            && target.position() == position
+            && deflater.needsInput()) {
+          break;
+        }
+      }
+      if (!deflater.finished()) {
+        out.release();
+        return null;
+      }
+      out.setInt(0, length).writerIndex(Integer.BYTES + target.position());
+      return ByteBufPacketPayload.create(
+          out, withFlags(allocator, metadata, PacketMetadata.FLAG_COMPRESSED, true));
+    } catch (Throwable ex) {
+      out.release();
+      throw ex;
+    } finally {
+      deflater.reset();
+    }
+  }
+
+  public PacketPayload decompress(ByteBufAllocator allocator, PacketPayload payload)
+      throws DataFormatException {
+    ByteBuf data = payload.data();
+    if (data.readableBytes() < Integer.BYTES) {
+      throw new DataFormatException("Compressed packet too short: " + data.readableBytes());
+    }
+    int length = data.getInt(data.readerIndex());
+    if (length < 0 || length > this.maxLength) {
+      throw new DataFormatException("Invalid decompressed packet length: " + length);
+    }
+    Inflater inflater = INFLATER.get();
+    inflater.reset();
+    ByteBuf out = allocator.buffer(length);
+    try {
+      inflater.setInput(
+          data.nioBuffer(data.readerIndex() + Integer.BYTES, data.readableBytes() - Integer.BYTES));
+      int read = inflater.inflate(out.nioBuffer(0, length));
+      if (read != length || !inflater.finished()) {
+        throw new DataFormatException(
+            "Decompressed packet length mismatch: expected " + length + ", got " + read);
+      }
+      out.writerIndex(length);
+      return ByteBufPacketPayload.create(
+          out, withFlags(allocator, payload.metadata(), PacketMetadata.FLAG_COMPRESSED, false));
+    } catch (Throwable ex) {
+      out.release();
+      throw ex;
+    } finally {
+      inflater.reset();
+    }
+  }
+
+  private static short flags(ByteBuf metadata) {
+    return metadata.getShort(metadata.readerIndex() + PacketMetadata.FLAGS_OFFSET);
+  }
+
+  private static ByteBuf withFlags(
+      ByteBufAllocator allocator, ByteBuf metadata, short flag, boolean set) {
+    int length = metadata.readableBytes();
+    ByteBuf copy = allocator.buffer(length).writeBytes(metadata, metadata.readerIndex(), length);
+    short flags = flags(metadata);
+    copy.setShort(PacketMetadata.FLAGS_OFFSET, set ? flags | flag : flags & ~flag);
+    return copy;
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+@Slf4j
+public class PacketCorrelator {
+  private static final int STRIPES = 16;
+
+  private final AtomicInteger nextId = new AtomicInteger();
+  private final Stripe[] stripes = new Stripe[STRIPES];
+  private volatile boolean disposed;
+
+  public PacketCorrelator() {
+    for (int i = 0; i < STRIPES; i++) {
+      this.stripes[i] = new Stripe();
+    }
+  }
+
+  private Stripe stripe(int id) {
+    return this.stripes[id & (STRIPES - 1)];
+  }
+
+  public Pending register(boolean single) {
+    while (true) {
+      int id = this.nextId.incrementAndGet();
+      if (id == 0) {
+        continue;
+      }
+      Stripe stripe = stripe(id);
+      synchronized (stripe) {
+        if (this.disposed) {
+          throw new CancellationException("PacketCorrelator disposed");
+        }
+        if (!stripe.pending.containsKey(id)) {
+          Pending pending = new Pending(id, single);
+          stripe.pending.put(id, pending);
+          return pending;
+        }
+      }
+    }
+  }
+
+  public void remove(int id) {
+    Stripe stripe = stripe(id);
+    synchronized (stripe) {
+      stripe.pending.remove(id);
+    }
+  }
+
+  public int size() {
+    int size = 0;
+    for (Stripe stripe : this.stripes) {
+      synchronized (stripe) {
+        size += stripe.pending.size();
+      }
+    }
+    return size;
+  }
+
+  public boolean handleReply(PacketMetadata metadata, PacketPayload payload) {
+    if (!metadata.isReply() || !metadata.hasCorrelationId()) {
+      return false;
+    }
+    int id = metadata.correlationId();
+    boolean complete = metadata.isComplete();
+    Stripe stripe = stripe(id);
+    Pending pending;
+    synchronized (stripe) {
+      pending = stripe.pending.get(id);
+      if (Objects.nonNull(pending) && (complete || pending.single)) {
+        stripe.pending.remove(id);
+      }
+    }
+    if (Objects.isNull(pending)) {
+      payload.release();
+      return true;
+    }
+    if (complete && !payload.data().isReadable()) {
+      payload.release();
+    } else {
+      Sinks.EmitResult result = pending.sink.tryEmitNext(payload);
+      if (result.isFailure()) {
+        payload.release();
+        if (result == Sinks.EmitResult.FAIL_CANCELLED
+            || result == Sinks.EmitResult.FAIL_TERMINATED) {
+          log.debug("Dropping reply for finished request {}: {}", id, result);
+        } else {
+          log.warn("Dropping reply for request {}: {}", id, result);
+        }
+      }
+    }
+    if (complete || pending.single) {
+      pending.sink.tryEmitComplete();
+    }
+    return true;
+  }
+
+  public void dispose() {
+    this.disposed = true;
+    List<Pending> snapshot = new ArrayList<>();
+    for (Stripe stripe : this.stripes) {
+      synchronized (stripe) {
+        snapshot.addAll(stripe.pending.values());
+        stripe.pending.clear();
+      }
+    }
+    for (Pending pending : snapshot) {
+      pending.sink.tryEmitError(new CancellationException("PacketCorrelator disposed"));
+    }
+  }
+
+  private static final class Stripe {
+    private final IntObjectMap<Pending> pending = new IntObjectHashMap<>();
+  }
+
+  public static final class Pending {
+    private final int id;
+    private final boolean single;
+    private final Sinks.Many<PacketPayload> sink = Sinks.many().unicast().onBackpressureBuffer();
+
+    Pending(int id, boolean single) {
+      this.id = id;
+      this.single = single;
+    }
+
+    public int id() {
+      return this.id;
+    }
+
+    public Flux<PacketPayload> replies() {
+      return this.sink.asFlux();
+    }
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+@Slf4j
+public class PacketIdleTracker implements Disposable {
+  public static final Duration DEFAULT_TICK_DURATION = Duration.ofMillis(100);
+  public static final int DEFAULT_WHEEL_SIZE = 512;
+
+  @Nullable private static PacketIdleTracker shared;
+
+  private final long tickNanos;
+  private final int mask;
+  private final List<Entry>[] wheel;
+  private final Queue<Entry> pending = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger size = new AtomicInteger();
+  private final long startNanos = System.nanoTime();
+  private final Scheduler ticker;
+  private volatile long tick;
+
+  public PacketIdleTracker() {
+    this(DEFAULT_TICK_DURATION, DEFAULT_WHEEL_SIZE);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public PacketIdleTracker(Duration tickDuration, int wheelSize) {
+    if (tickDuration.isNegative() || tickDuration.isZero()) {
+      throw new IllegalArgumentException("tickDuration must be positive: " + tickDuration);
+    }
+    if (wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+      throw new IllegalArgumentException("wheelSize must be a power of two: " + wheelSize);
+    }
+    this.tickNanos = tickDuration.toNanos();
+    this.mask = wheelSize - 1;
+    this.wheel = new List[wheelSize];
+    for (int i = 0; i < wheelSize; i++) {
+      this.wheel[i] = new ArrayList<>();
+    }
+    this.ticker = Schedulers.newSingle("packet-idle", true);
+    this.ticker.schedulePeriodically(
+        this::advance, this.tickNanos, this.tickNanos, TimeUnit.NANOSECONDS);
+  }
+
+  public static synchronized PacketIdleTracker shared() {
+    if (Objects.isNull(shared) || shared.isDisposed()) {
+      shared = new PacketIdleTracker();
+    }
+    return shared;
+  }
+
+  public Entry register(long idleTimeout, Executor executor, Runnable onReadIdle) {
+    long timeoutTicks =
+        Math.max(1, (TimeUnit.MILLISECONDS.toNanos(idleTimeout) - 1) / this.tickNanos + 1);
+    Entry entry = new Entry(timeoutTicks, executor, onReadIdle);
+    this.size.incrementAndGet();
+    this.pending.offer(entry);
+    return entry;
+  }
+
+  public int size() {
+    return this.size.get();
+  }
+
+  private void advance() {
+    long target = (System.nanoTime() - this.startNanos) / this.tickNanos;
+    while (this.tick < target) {
+      try {
+        sweep(this.tick + 1);
+      } catch (Throwable ex) {
+        log.error("Failed to sweep packet idle wheel", ex);
+      }
+    }
+  }
+
+  private void sweep(long now) {
+    this.tick = now;
+    Entry entry;
+    while (Objects.nonNull(entry = this.pending.poll())) {
+      entry.deadline = entry.lastRead + entry.timeoutTicks;
+      this.wheel[(int) (Math.max(entry.deadline, now) & this.mask)].add(entry);
+    }
+    List<Entry> bucket = this.wheel[(int) (now & this.mask)];
+    Map<Executor, List<Runnable>> batches = null;
+    for (int i = 0; i < bucket.size(); ) {
+      entry = bucket.get(i);
+      if (entry.disposed) {
+        removeAt(bucket, i);
+        this.size.decrementAndGet();
+        continue;
+      }
+      if (entry.deadline > now) {
+        i++;
+        continue;
+      }
+      long deadline = Math.max(entry.lastRead, entry.lastFired) + entry.timeoutTicks;
+      if (deadline <= now) {
+        entry.lastFired = now;
+        deadline = now + entry.timeoutTicks;
+        if (Objects.isNull(batches)) {
+          batches = new IdentityHashMap<>();
+        }
+        batches
+            .computeIfAbsent(entry.executor, executor -> new ArrayList<>())
+            .add(entry.onReadIdle);
+      }
+      entry.deadline = deadline;
+      if ((deadline & this.mask) == (now & this.mask)) {
+        i++;
+        continue;
+      }
+      removeAt(bucket, i);
+      this.wheel[(int) (deadline & this.mask)].add(entry);
+    }
+    if (Objects.nonNull(batches)) {
+      batches.forEach(PacketIdleTracker::fire);
+    }
+  }
+
+  private static void removeAt(List<Entry> bucket, int index) {
+    int last = bucket.size() - 1;
+    bucket.set(index, bucket.get(last));
+    bucket.remove(last);
+  }
+
+  private static void fire(Executor executor, List<Runnable> callbacks) {
+    try {
+      executor.execute(
+          () -> {
+            for (Runnable callback : callbacks) {
+              try {
+                callback.run();
+              } catch (Throwable ex) {
+                log.error("Failed to run read idle callback", ex);
+              }
+            }
+          });
+    } catch (RuntimeException ex) {
+      log.warn("Dropping {} read idle callbacks", callbacks.size(), ex);
+    }
+  }
+
+  @Override
+  public void dispose() {
+    this.ticker.dispose();
+  }
+
+  @Override
+  public boolean isDisposed() {
+    return this.ticker.isDisposed();
+  }
+
+  public final class Entry implements Disposable {
+    private final long timeoutTicks;
+    private final Executor executor;
+    private final Runnable onReadIdle;
+    private volatile long lastRead;
+    private volatile boolean disposed;
+    private long lastFired;
+    private long deadline;
+
+    Entry(long timeoutTicks, Executor executor, Runnable onReadIdle) {
+      this.timeoutTicks = timeoutTicks;
+      this.executor = Objects.requireNonNull(executor);
+      this.onReadIdle = Objects.requireNonNull(onReadIdle);
+      this.lastRead = tick;
+    }
+
+    public void touch() {
+      long now = tick;
+      if (this.lastRead != now) {
+        this.lastRead = now;
+      }
+    }
+
+    @Override
+    public void dispose() {
+      this.disposed = true;
+    }
+
+    @Override
+    public boolean isDisposed() {
+      return this.disposed;
+    }
+  }
+}
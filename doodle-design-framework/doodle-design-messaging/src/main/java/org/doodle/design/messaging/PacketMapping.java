@@ -27,6 +27,8 @@ public @interface PacketMapping {
 
   Outbound outbound() default @Outbound;
 
+  boolean blocking() default false;
+
   @Target({})
   @Retention(RetentionPolicy.RUNTIME)
   @interface Inbound {
@@ -40,6 +42,8 @@ public @interface PacketMapping {
   @interface Outbound {
     short value() default 0;
 
+    PacketPriority priority() default PacketPriority.NORMAL;
+
     Protocol[] targets() default {};
   }
 
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import io.netty.buffer.ByteBuf;
+import java.util.Objects;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+
+public final class PacketMetadata {
+  public static final MimeType MIME_TYPE = new MimeType("message", "x.doodle.packet-metadata.v0");
+
+  public static final short FLAG_TRACE_ID = 0x0001;
+  public static final short FLAG_CORRELATION_ID = 0x0002;
+  public static final short FLAG_REPLY = 0x0004;
+  public static final short FLAG_COMPLETE = 0x0008;
+  public static final short FLAG_ACK = 0x0010;
+  public static final short FLAG_RESUME = 0x0020;
+  public static final short FLAG_COMPRESSED = 0x0040;
+
+  public static final int GROUP_OFFSET = 0;
+  public static final int CMD_OFFSET = 2;
+  public static final int FLAGS_OFFSET = 4;
+  public static final int SEQUENCE_OFFSET = 6;
+  public static final int HEADER_LENGTH = 10;
+  public static final int TRACE_ID_LENGTH = 8;
+  public static final int CORRELATION_ID_LENGTH = 4;
+
+  @Nullable private ByteBuf buffer;
+  private int offset;
+
+  public PacketMetadata wrap(ByteBuf buffer) {
+    int readable = buffer.readableBytes();
+    if (readable < HEADER_LENGTH) {
+      throw new IllegalArgumentException("Packet metadata too short: " + readable + " bytes");
+    }
+    int length = length(buffer.getShort(buffer.readerIndex() + FLAGS_OFFSET));
+    if (readable < length) {
+      throw new IllegalArgumentException(
+          "Packet metadata too short for its flags: " + readable + " < " + length + " bytes");
+    }
+    this.buffer = buffer;
+    this.offset = buffer.readerIndex();
+    return this;
+  }
+
+  public void clear() {
+    this.buffer = null;
+    this.offset = 0;
+  }
+
+  public short group() {
+    return buffer().getShort(this.offset + GROUP_OFFSET);
+  }
+
+  public short cmd() {
+    return buffer().getShort(this.offset + CMD_OFFSET);
+  }
+
+  public int route() {
+    return PacketRoute.pack(group(), cmd());
+  }
+
+  public short flags() {
+    return buffer().getShort(this.offset + FLAGS_OFFSET);
+  }
+
+  public boolean hasFlag(short flag) {
+    return (flags() & flag) != 0;
+  }
+
+  public int sequence() {
+    return buffer().getInt(this.offset + SEQUENCE_OFFSET);
+  }
+
+  public boolean hasTraceId() {
+    return hasFlag(FLAG_TRACE_ID);
+  }
+
+  public long traceId() {
+    return hasTraceId() ? buffer().getLong(this.offset + HEADER_LENGTH) : 0L;
+  }
+
+  public boolean hasCorrelationId() {
+    return hasFlag(FLAG_CORRELATION_ID);
+  }
+
+  public int correlationId() {
+    short flags = flags();
+    if ((flags & FLAG_CORRELATION_ID) == 0) {
+      return 0;
+    }
+    return buffer().getInt(this.offset + correlationIdOffset(flags));
+  }
+
+  public boolean isReply() {
+    return hasFlag(FLAG_REPLY);
+  }
+
+  public boolean isComplete() {
+    return hasFlag(FLAG_COMPLETE);
+  }
+
+  public boolean isCompressed() {
+    return hasFlag(FLAG_COMPRESSED);
+  }
+
+  private ByteBuf buffer() {
+    ByteBuf buffer = this.buffer;
+    if (Objects.isNull(buffer)) {
+      throw new IllegalStateException("PacketMetadata is not bound to a buffer");
+    }
+    return buffer;
+  }
+
+  private static int correlationIdOffset(short flags) {
+    return HEADER_LENGTH + ((flags & FLAG_TRACE_ID) != 0 ? TRACE_ID_LENGTH : 0);
+  }
+
+  public static int length(short flags) {
+    return correlationIdOffset(flags)
+        + ((flags & FLAG_CORRELATION_ID) != 0 ? CORRELATION_ID_LENGTH : 0);
+  }
+
+  public static ByteBuf write(
+      ByteBuf out,
+      short group,
+      short cmd,
+      short flags,
+      int sequence,
+      long traceId,
+      int correlationId) {
+    out.writeShort(group).writeShort(cmd).writeShort(flags).writeInt(sequence);
+    if ((flags & FLAG_TRACE_ID) != 0) {
+      out.writeLong(traceId);
+    }
+    if ((flags & FLAG_CORRELATION_ID) != 0) {
+      out.writeInt(correlationId);
+    }
+    return out;
+  }
+}
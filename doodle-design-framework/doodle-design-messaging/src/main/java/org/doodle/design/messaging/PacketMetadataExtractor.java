@@ -22,5 +22,13 @@ public interface PacketMetadataExtractor {
 
   String ROUTE_KEY = "packetRoute";
 
+  String SEQUENCE_KEY = "packetSequence";
+
+  String FLAGS_KEY = "packetFlags";
+
+  String TRACE_ID_KEY = "packetTraceId";
+
+  String CORRELATION_ID_KEY = "packetCorrelationId";
+
   Map<String, Object> extract(PacketPayload payload, MimeType metadataMimeType);
 }
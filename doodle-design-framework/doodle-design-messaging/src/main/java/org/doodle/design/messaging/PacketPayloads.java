@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.util.Collections;
+import java.util.Objects;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+
+public final class PacketPayloads {
+
+  private PacketPayloads() {}
+
+  public static ByteBufAllocator allocator(PacketStrategies strategies) {
+    DataBufferFactory factory = strategies.dataBufferFactory();
+    return factory instanceof NettyDataBufferFactory
+        ? ((NettyDataBufferFactory) factory).getByteBufAllocator()
+        : PooledByteBufAllocator.DEFAULT;
+  }
+
+  public static ByteBuf encodeData(
+      PacketStrategies strategies, MimeType dataMimeType, @Nullable Object data) {
+    if (Objects.isNull(data)) {
+      return Unpooled.EMPTY_BUFFER;
+    }
+    ResolvableType elementType = ResolvableType.forInstance(data);
+    Encoder<Object> encoder = strategies.encoder(elementType, dataMimeType);
+    DataBuffer dataBuffer =
+        encoder.encodeValue(
+            data,
+            strategies.dataBufferFactory(),
+            elementType,
+            dataMimeType,
+            Collections.emptyMap());
+    return NettyDataBufferFactory.toByteBuf(dataBuffer);
+  }
+
+  public static PacketPayload create(
+      PacketStrategies strategies,
+      MimeType dataMimeType,
+      short group,
+      short cmd,
+      @Nullable Object data,
+      short flags,
+      int correlationId) {
+    ByteBuf dataBuf = encodeData(strategies, dataMimeType, data);
+    try {
+      BinaryPacketMetadataEncoder metadataEncoder =
+          new BinaryPacketMetadataEncoder(strategies).route(group, cmd).flags(flags);
+      if ((flags & PacketMetadata.FLAG_CORRELATION_ID) != 0) {
+        metadataEncoder.correlationId(correlationId);
+      }
+      return ByteBufPacketPayload.create(dataBuf, metadataEncoder.encode(allocator(strategies)));
+    } catch (Throwable ex) {
+      dataBuf.release();
+      throw ex;
+    }
+  }
+
+  public static PacketPayload retainedDuplicate(PacketPayload payload) {
+    ByteBuf data = payload.data().retainedDuplicate();
+    if (!payload.hasMetadata()) {
+      return ByteBufPacketPayload.create(data);
+    }
+    return ByteBufPacketPayload.create(data, payload.metadata().retainedDuplicate());
+  }
+}
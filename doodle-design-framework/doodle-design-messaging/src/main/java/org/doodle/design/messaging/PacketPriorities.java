@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import java.util.Objects;
+
+public class PacketPriorities {
+  private volatile IntObjectMap<PacketPriority> groups = new IntObjectHashMap<>();
+  private volatile IntObjectMap<PacketPriority> routes = new IntObjectHashMap<>();
+
+  public synchronized PacketPriorities group(short group, PacketPriority priority) {
+    this.groups = with(this.groups, group, priority);
+    return this;
+  }
+
+  public synchronized PacketPriorities route(short group, short cmd, PacketPriority priority) {
+    this.routes = with(this.routes, PacketRoute.pack(group, cmd), priority);
+    return this;
+  }
+
+  private static IntObjectMap<PacketPriority> with(
+      IntObjectMap<PacketPriority> priorities, int key, PacketPriority priority) {
+    IntObjectMap<PacketPriority> copy = new IntObjectHashMap<>(priorities.size() + 1);
+    copy.putAll(priorities);
+    copy.put(key, Objects.requireNonNull(priority));
+    return copy;
+  }
+
+  public boolean isEmpty() {
+    return this.groups.isEmpty() && this.routes.isEmpty();
+  }
+
+  public PacketPriority priority(short group, short cmd) {
+    PacketPriority priority = this.routes.get(PacketRoute.pack(group, cmd));
+    if (Objects.isNull(priority)) {
+      priority = this.groups.get(group);
+    }
+    return Objects.nonNull(priority) ? priority : PacketPriority.NORMAL;
+  }
+
+  public PacketPriority priority(PacketPayload payload) {
+    if (!payload.hasMetadata()) {
+      return PacketPriority.NORMAL;
+    }
+    ByteBuf metadata = payload.metadata();
+    if (metadata.readableBytes() < PacketMetadata.HEADER_LENGTH) {
+      return PacketPriority.NORMAL;
+    }
+    int offset = metadata.readerIndex();
+    return priority(
+        metadata.getShort(offset + PacketMetadata.GROUP_OFFSET),
+        metadata.getShort(offset + PacketMetadata.CMD_OFFSET));
+  }
+}
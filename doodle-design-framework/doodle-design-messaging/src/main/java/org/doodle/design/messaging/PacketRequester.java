@@ -15,8 +15,10 @@
  */
 package org.doodle.design.messaging;
 
+import java.time.Duration;
 import org.springframework.util.MimeType;
 import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public interface PacketRequester extends Disposable {
@@ -41,14 +43,44 @@ public interface PacketRequester extends Disposable {
     return socket().isDisposed();
   }
 
+  static Builder builder() {
+    return new DefaultPacketRequester.DefaultBuilder();
+  }
+
+  static PacketRequester wrap(
+      PacketSocket socket,
+      MimeType dataMimeType,
+      MimeType metadataMimeType,
+      PacketStrategies strategies) {
+    return new DefaultPacketRequester(socket, dataMimeType, metadataMimeType, strategies);
+  }
+
   interface Builder {
     Builder strategies(PacketStrategies strategies);
+
+    Builder dataMimeType(MimeType dataMimeType);
+
+    Builder metadataMimeType(MimeType metadataMimeType);
+
+    Builder timeout(Duration timeout);
+
+    PacketRequester wrap(PacketSocket socket);
   }
 
   interface RequestSpec {
 
     RequestSpec data(Object data);
 
+    RequestSpec timeout(Duration timeout);
+
+    RequestSpec flags(short flags);
+
+    RequestSpec correlationId(int correlationId);
+
     Mono<Void> send();
+
+    <T> Mono<T> retrieveMono(Class<T> dataType);
+
+    <T> Flux<T> retrieveFlux(Class<T> dataType);
   }
 }
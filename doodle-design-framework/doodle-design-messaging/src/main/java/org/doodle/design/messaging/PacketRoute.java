@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+public final class PacketRoute {
+  public static final String SEPARATOR = ".";
+
+  private PacketRoute() {}
+
+  public static int pack(short group, short cmd) {
+    return (group << 16) | (cmd & 0xFFFF);
+  }
+
+  public static short group(int route) {
+    return (short) (route >>> 16);
+  }
+
+  public static short cmd(int route) {
+    return (short) route;
+  }
+
+  public static String destination(short group, short cmd) {
+    return group + SEPARATOR + cmd;
+  }
+
+  public static String destination(int route) {
+    return destination(group(route), cmd(route));
+  }
+}
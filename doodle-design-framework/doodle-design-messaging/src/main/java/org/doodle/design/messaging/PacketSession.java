@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.springframework.lang.Nullable;
+
+public class PacketSession implements PacketSocket {
+  public static final int DEFAULT_ACK_INTERVAL = 32;
+
+  private final ByteBufAllocator allocator;
+  private final PacketPayload[] buffer;
+  private final int ackInterval;
+  private volatile long id;
+  @Nullable private PacketSocket delegate;
+  private int head;
+  private int size;
+  private int firstSequence = 1;
+  private int nextSequence = 1;
+  private int lastReceived;
+  private int unacknowledged;
+  private long duplicates;
+  private long detachedNanos = System.nanoTime();
+  private boolean disposed;
+  private boolean plain;
+  private long idleTimeout;
+  @Nullable private Runnable onReadIdle;
+  @Nullable private Runnable onWritabilityChanged;
+  @Nullable private volatile Runnable onReset;
+
+  public PacketSession(ByteBufAllocator allocator, int capacity) {
+    this(allocator, capacity, DEFAULT_ACK_INTERVAL);
+  }
+
+  public PacketSession(ByteBufAllocator allocator, int capacity, int ackInterval) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    }
+    if (ackInterval <= 0) {
+      throw new IllegalArgumentException("ackInterval must be positive: " + ackInterval);
+    }
+    this.allocator = Objects.requireNonNull(allocator);
+    this.buffer = new PacketPayload[capacity];
+    this.ackInterval = ackInterval;
+  }
+
+  public long id() {
+    return this.id;
+  }
+
+  public void setId(long id) {
+    this.id = id;
+  }
+
+  public PacketSession onReset(Runnable onReset) {
+    this.onReset = Objects.requireNonNull(onReset);
+    return this;
+  }
+
+  public synchronized boolean isAttached() {
+    return Objects.nonNull(this.delegate);
+  }
+
+  public synchronized boolean isPlain() {
+    return this.plain;
+  }
+
+  public synchronized long detachedNanos() {
+    return this.detachedNanos;
+  }
+
+  public synchronized int lastReceived() {
+    return this.lastReceived;
+  }
+
+  public synchronized int pending() {
+    return this.size;
+  }
+
+  public synchronized long duplicates() {
+    return this.duplicates;
+  }
+
+  @Override
+  public synchronized void send(PacketPayload payload) {
+    if (this.disposed) {
+      payload.release();
+      return;
+    }
+    PacketPayload sequenced = sequence(payload);
+    if (Objects.nonNull(this.delegate)) {
+      this.delegate.send(sequenced);
+    } else {
+      sequenced.release();
+    }
+  }
+
+  @Override
+  public synchronized void send(Iterable<? extends PacketPayload> payloads) {
+    List<PacketPayload> batch = new ArrayList<>();
+    for (PacketPayload payload : payloads) {
+      if (this.disposed || Objects.isNull(this.delegate)) {
+        if (this.disposed) {
+          payload.release();
+        } else {
+          sequence(payload).release();
+        }
+        continue;
+      }
+      batch.add(sequence(payload));
+    }
+    if (!batch.isEmpty()) {
+      Objects.requireNonNull(this.delegate).send(batch);
+    }
+  }
+
+  private PacketPayload sequence(PacketPayload payload) {
+    if (this.plain || !payload.hasMetadata()) {
+      return payload;
+    }
+    PacketPayload sequenced;
+    try {
+      ByteBuf metadata = payload.metadata();
+      ByteBuf copy =
+          this.allocator
+              .buffer(metadata.readableBytes())
+              .writeBytes(metadata, metadata.readerIndex(), metadata.readableBytes());
+      copy.setInt(PacketMetadata.SEQUENCE_OFFSET, this.nextSequence);
+      sequenced = ByteBufPacketPayload.create(payload.data().retain(), copy);
+    } finally {
+      payload.release();
+    }
+    if (this.size == this.buffer.length) {
+      evict();
+    }
+    this.buffer[(this.head + this.size) % this.buffer.length] =
+        PacketPayloads.retainedDuplicate(sequenced);
+    this.size++;
+    this.nextSequence++;
+    return sequenced;
+  }
+
+  private void evict() {
+    this.buffer[this.head].release();
+    this.buffer[this.head] = null;
+    this.head = (this.head + 1) % this.buffer.length;
+    this.size--;
+    this.firstSequence++;
+  }
+
+  public synchronized boolean receive(PacketMetadata metadata) {
+    if (this.plain) {
+      return true;
+    }
+    int sequence = metadata.sequence();
+    if (metadata.hasFlag(PacketMetadata.FLAG_ACK)) {
+      acknowledge(sequence);
+      return false;
+    }
+    if (sequence == 0) {
+      return true;
+    }
+    if (sequence - this.lastReceived <= 0) {
+      this.duplicates++;
+      return false;
+    }
+    this.lastReceived = sequence;
+    if (++this.unacknowledged >= this.ackInterval && Objects.nonNull(this.delegate)) {
+      this.unacknowledged = 0;
+      this.delegate.send(control(PacketMetadata.FLAG_ACK, sequence, 0L));
+    }
+    return true;
+  }
+
+  public synchronized void acknowledge(int sequence) {
+    while (this.size > 0 && sequence - this.firstSequence >= 0) {
+      evict();
+    }
+  }
+
+  public synchronized void handshake(PacketSocket socket) {
+    socket.send(control(PacketMetadata.FLAG_RESUME, this.lastReceived, this.id));
+  }
+
+  public synchronized boolean resume(PacketSocket socket, int peerLastReceived, boolean handshake) {
+    if (this.disposed || this.plain) {
+      return false;
+    }
+    acknowledge(peerLastReceived);
+    if (peerLastReceived + 1 - this.firstSequence < 0
+        || this.nextSequence - (peerLastReceived + 1) < 0) {
+      return false;
+    }
+    attach(socket);
+    if (handshake) {
+      handshake(socket);
+    }
+    this.unacknowledged = 0;
+    if (this.size > 0) {
+      List<PacketPayload> replay = new ArrayList<>(this.size);
+      for (int i = 0; i < this.size; i++) {
+        replay.add(
+            PacketPayloads.retainedDuplicate(this.buffer[(this.head + i) % this.buffer.length]));
+      }
+      socket.send(replay);
+    }
+    return true;
+  }
+
+  // Peers that never complete the handshake get the socket as is: packets sent while waiting are
+  // flushed once, and nothing is sequenced or kept for replay from then on.
+  public synchronized boolean attachPlain(PacketSocket socket) {
+    if (this.disposed || Objects.nonNull(this.delegate)) {
+      return false;
+    }
+    this.plain = true;
+    attach(socket);
+    if (this.size > 0) {
+      List<PacketPayload> pending = new ArrayList<>(this.size);
+      while (this.size > 0) {
+        pending.add(this.buffer[this.head]);
+        this.buffer[this.head] = null;
+        this.head = (this.head + 1) % this.buffer.length;
+        this.size--;
+      }
+      socket.send(pending);
+    }
+    return true;
+  }
+
+  private void attach(PacketSocket socket) {
+    PacketSocket previous = this.delegate;
+    this.delegate = Objects.requireNonNull(socket);
+    if (Objects.nonNull(previous) && previous != socket) {
+      previous.dispose();
+    }
+    if (Objects.nonNull(this.onReadIdle)) {
+      socket.onReadIdle(this.idleTimeout, this.onReadIdle);
+    }
+    Runnable onWritabilityChanged = this.onWritabilityChanged;
+    if (Objects.nonNull(onWritabilityChanged)) {
+      socket.onWritabilityChanged(onWritabilityChanged);
+      try {
+        socket.executor().execute(onWritabilityChanged);
+      } catch (RejectedExecutionException ignored) {
+        // The socket is shutting down; it will not become writable.
+      }
+    }
+  }
+
+  public synchronized boolean detach(PacketSocket socket) {
+    if (this.delegate != socket) {
+      return false;
+    }
+    this.delegate = null;
+    this.detachedNanos = System.nanoTime();
+    return true;
+  }
+
+  public void reset() {
+    synchronized (this) {
+      while (this.size > 0) {
+        evict();
+      }
+      this.head = 0;
+      this.firstSequence = 1;
+      this.nextSequence = 1;
+      this.lastReceived = 0;
+      this.unacknowledged = 0;
+    }
+    Runnable onReset = this.onReset;
+    if (Objects.nonNull(onReset)) {
+      onReset.run();
+    }
+  }
+
+  private PacketPayload control(short flags, int sequence, long id) {
+    ByteBuf metadata =
+        PacketMetadata.write(
+            this.allocator.buffer(PacketMetadata.HEADER_LENGTH),
+            (short) 0,
+            (short) 0,
+            flags,
+            sequence,
+            0L,
+            0);
+    ByteBuf data =
+        id != 0L ? this.allocator.buffer(Long.BYTES).writeLong(id) : Unpooled.EMPTY_BUFFER;
+    return ByteBufPacketPayload.create(data, metadata);
+  }
+
+  @Override
+  public synchronized PacketSocket onReadIdle(long idleTimeout, Runnable onReadIdle) {
+    this.idleTimeout = idleTimeout;
+    this.onReadIdle = Objects.requireNonNull(onReadIdle);
+    if (Objects.nonNull(this.delegate)) {
+      this.delegate.onReadIdle(idleTimeout, onReadIdle);
+    }
+    return this;
+  }
+
+  @Override
+  public synchronized Executor executor() {
+    return Objects.nonNull(this.delegate)
+        ? this.delegate.executor()
+        : PacketSocket.super.executor();
+  }
+
+  @Override
+  public synchronized boolean isWritable() {
+    return Objects.nonNull(this.delegate) && this.delegate.isWritable();
+  }
+
+  @Override
+  public synchronized PacketSocket onWritabilityChanged(Runnable onWritabilityChanged) {
+    this.onWritabilityChanged = Objects.requireNonNull(onWritabilityChanged);
+    if (Objects.nonNull(this.delegate)) {
+      this.delegate.onWritabilityChanged(onWritabilityChanged);
+    }
+    return this;
+  }
+
+  @Override
+  public synchronized void dispose() {
+    if (this.disposed) {
+      return;
+    }
+    this.disposed = true;
+    while (this.size > 0) {
+      evict();
+    }
+    if (Objects.nonNull(this.delegate)) {
+      this.delegate.dispose();
+      this.delegate = null;
+    }
+  }
+
+  @Override
+  public synchronized boolean isDisposed() {
+    return this.disposed;
+  }
+}
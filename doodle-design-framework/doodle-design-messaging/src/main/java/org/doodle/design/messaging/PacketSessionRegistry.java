@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import org.springframework.lang.Nullable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+public class PacketSessionRegistry {
+  private final ConcurrentMap<Long, PacketRequester> sessions = new ConcurrentHashMap<>();
+  private final SecureRandom random = new SecureRandom();
+  private final Duration retention;
+  private final Scheduler scheduler;
+
+  public PacketSessionRegistry(Duration retention) {
+    this(retention, Schedulers.parallel());
+  }
+
+  public PacketSessionRegistry(Duration retention, Scheduler scheduler) {
+    this.retention = Objects.requireNonNull(retention);
+    this.scheduler = Objects.requireNonNull(scheduler);
+  }
+
+  public static PacketSession session(PacketRequester requester) {
+    PacketSocket socket = requester.socket();
+    if (socket instanceof PrioritizedPacketSocket) {
+      socket = ((PrioritizedPacketSocket) socket).delegate();
+    }
+    if (!(socket instanceof PacketSession)) {
+      throw new IllegalArgumentException("Requester is not bound to a PacketSession: " + socket);
+    }
+    return (PacketSession) socket;
+  }
+
+  public long register(PacketRequester requester) {
+    PacketSession session = session(requester);
+    long id;
+    do {
+      id = this.random.nextLong();
+    } while (id == 0L || Objects.nonNull(this.sessions.putIfAbsent(id, requester)));
+    session.setId(id);
+    return id;
+  }
+
+  @Nullable
+  public PacketRequester get(long id) {
+    return this.sessions.get(id);
+  }
+
+  public boolean remove(long id, PacketRequester requester) {
+    return this.sessions.remove(id, requester);
+  }
+
+  public int size() {
+    return this.sessions.size();
+  }
+
+  public void dispose() {
+    this.sessions.forEach(
+        (id, requester) -> {
+          if (remove(id, requester)) {
+            requester.dispose();
+          }
+        });
+  }
+
+  public void detached(PacketRequester requester) {
+    this.scheduler.schedule(
+        () -> expire(requester), this.retention.toNanos(), TimeUnit.NANOSECONDS);
+  }
+
+  private void expire(PacketRequester requester) {
+    PacketSession session = session(requester);
+    if (session.isDisposed()
+        || (!session.isAttached()
+            && System.nanoTime() - session.detachedNanos() >= this.retention.toNanos())) {
+      if (remove(session.id(), requester)) {
+        requester.dispose();
+      }
+    }
+  }
+}
@@ -15,10 +15,30 @@
  */
 package org.doodle.design.messaging;
 
+import io.netty.util.concurrent.ImmediateExecutor;
+import java.util.concurrent.Executor;
 import reactor.core.Disposable;
 
 public interface PacketSocket extends Disposable {
   void send(PacketPayload payload);
 
+  default void send(Iterable<? extends PacketPayload> payloads) {
+    for (PacketPayload payload : payloads) {
+      send(payload);
+    }
+  }
+
   PacketSocket onReadIdle(long idleTimeout, Runnable onReadIdle);
+
+  default Executor executor() {
+    return ImmediateExecutor.INSTANCE;
+  }
+
+  default boolean isWritable() {
+    return !isDisposed();
+  }
+
+  default PacketSocket onWritabilityChanged(Runnable onWritabilityChanged) {
+    return this;
+  }
 }
@@ -26,6 +26,10 @@ import org.springframework.util.RouteMatcher;
 
 public interface PacketStrategies {
 
+  static Builder builder() {
+    return new DefaultPacketStrategies.DefaultBuilder();
+  }
+
   List<Encoder<?>> encoders();
 
   @SuppressWarnings("unchecked")
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class PacketTokenBucket {
+  private final long intervalNanos;
+  private final long burstNanos;
+  // Theoretical arrival time of the next permit; refilling is implicit in the clock moving on.
+  private final AtomicLong nextFreeNanos;
+
+  public PacketTokenBucket(double permitsPerSecond, int burst) {
+    this(permitsPerSecond, burst, System.nanoTime());
+  }
+
+  public PacketTokenBucket(double permitsPerSecond, int burst, long nowNanos) {
+    if (permitsPerSecond <= 0) {
+      throw new IllegalArgumentException("permitsPerSecond must be positive: " + permitsPerSecond);
+    }
+    if (burst <= 0) {
+      throw new IllegalArgumentException("burst must be positive: " + burst);
+    }
+    this.intervalNanos = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+    this.burstNanos = this.intervalNanos * burst;
+    this.nextFreeNanos = new AtomicLong(nowNanos - this.burstNanos);
+  }
+
+  public boolean tryAcquire() {
+    return tryAcquire(System.nanoTime());
+  }
+
+  public long nanosUntilPermit(long nowNanos) {
+    long start = Math.max(this.nextFreeNanos.get(), nowNanos - this.burstNanos);
+    return Math.max(0L, start + this.intervalNanos - nowNanos);
+  }
+
+  public boolean tryAcquire(long nowNanos) {
+    return tryAcquire(nowNanos, 1);
+  }
+
+  public boolean tryAcquire(long nowNanos, int permits) {
+    for (; ; ) {
+      long nextFree = this.nextFreeNanos.get();
+      long start = Math.max(nextFree, nowNanos - this.burstNanos);
+      if (start + this.intervalNanos - nowNanos > 0) {
+        return false;
+      }
+      // Passing as soon as one permit is available lets oversized requests run into debt
+      // instead of starving forever.
+      long next = start + this.intervalNanos * Math.max(1, permits);
+      if (this.nextFreeNanos.compareAndSet(nextFree, next)) {
+        return true;
+      }
+    }
+  }
+}
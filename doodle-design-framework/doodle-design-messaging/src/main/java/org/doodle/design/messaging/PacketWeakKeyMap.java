@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import org.springframework.lang.Nullable;
+
+// Identity keyed and weak on the key only: ConcurrentReferenceHashMap holds its entries weakly,
+// so a collection drops state for sockets that are still connected.
+public final class PacketWeakKeyMap<K, V> {
+  private final Map<Object, V> entries = new ConcurrentHashMap<>();
+  private final ReferenceQueue<K> collected = new ReferenceQueue<>();
+
+  @Nullable
+  public V get(K key) {
+    purge();
+    return this.entries.get(new LookupKey(key));
+  }
+
+  public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+    purge();
+    V value = this.entries.get(new LookupKey(key));
+    if (Objects.nonNull(value)) {
+      return value;
+    }
+    return this.entries.computeIfAbsent(
+        new WeakKey<>(key, this.collected), ignored -> mappingFunction.apply(key));
+  }
+
+  @Nullable
+  public V remove(K key) {
+    purge();
+    return this.entries.remove(new LookupKey(key));
+  }
+
+  public int size() {
+    purge();
+    return this.entries.size();
+  }
+
+  public void clear() {
+    purge();
+    this.entries.clear();
+  }
+
+  private void purge() {
+    Reference<? extends K> reference;
+    while (Objects.nonNull(reference = this.collected.poll())) {
+      this.entries.remove(reference);
+    }
+  }
+
+  private static boolean sameKey(Object referent, Object other) {
+    if (other instanceof WeakKey) {
+      return ((WeakKey<?>) other).get() == referent;
+    }
+    return other instanceof LookupKey && ((LookupKey) other).key == referent;
+  }
+
+  private static final class WeakKey<K> extends WeakReference<K> {
+    private final int hash;
+
+    WeakKey(K key, ReferenceQueue<K> queue) {
+      super(key, queue);
+      this.hash = System.identityHashCode(key);
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+      Object key = get();
+      return Objects.nonNull(key) && sameKey(key, other);
+    }
+  }
+
+  private static final class LookupKey {
+    private final Object key;
+
+    LookupKey(Object key) {
+      this.key = key;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(this.key);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return sameKey(this.key, other);
+    }
+  }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import org.springframework.lang.Nullable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+public class PrioritizedPacketSocket implements PacketSocket {
+  private static final PacketPriority[] LANES = PacketPriority.values();
+
+  private final PacketSocket delegate;
+  private final PacketPriorities priorities;
+  private final Scheduler scheduler;
+  @Nullable private final PacketTokenBucket bulkLimit;
+  private final List<ArrayDeque<PacketPayload>> lanes = new ArrayList<>(LANES.length);
+  private final List<PacketPayload> batch = new ArrayList<>();
+  private final Runnable drainTask = this::scheduledDrain;
+  private boolean draining;
+  private boolean drainScheduled;
+  @Nullable private volatile Runnable onWritabilityChanged;
+
+  public PrioritizedPacketSocket(PacketSocket delegate, PacketPriorities priorities) {
+    this(delegate, priorities, 0L, 0, Schedulers.parallel());
+  }
+
+  public PrioritizedPacketSocket(
+      PacketSocket delegate,
+      PacketPriorities priorities,
+      long bulkBytesPerSecond,
+      int bulkBurstBytes,
+      Scheduler scheduler) {
+    this.delegate = Objects.requireNonNull(delegate);
+    this.priorities = Objects.requireNonNull(priorities);
+    this.scheduler = Objects.requireNonNull(scheduler);
+    this.bulkLimit =
+        bulkBytesPerSecond > 0 ? new PacketTokenBucket(bulkBytesPerSecond, bulkBurstBytes) : null;
+    for (int i = 0; i < LANES.length; i++) {
+      this.lanes.add(new ArrayDeque<>());
+    }
+    this.delegate.onWritabilityChanged(this::writabilityChanged);
+  }
+
+  public PacketSocket delegate() {
+    return this.delegate;
+  }
+
+  public synchronized int queued(PacketPriority priority) {
+    return this.lanes.get(priority.ordinal()).size();
+  }
+
+  @Override
+  public void send(PacketPayload payload) {
+    synchronized (this) {
+      int lane = this.priorities.priority(payload).ordinal();
+      if (canSendDirect(lane, payload)) {
+        this.delegate.send(payload);
+        return;
+      }
+      this.lanes.get(lane).offer(payload);
+    }
+    drain();
+  }
+
+  @Override
+  public void send(Iterable<? extends PacketPayload> payloads) {
+    boolean queued = false;
+    synchronized (this) {
+      try {
+        for (PacketPayload payload : payloads) {
+          int lane = this.priorities.priority(payload).ordinal();
+          if (canSendDirect(lane, payload)) {
+            this.batch.add(payload);
+          } else {
+            this.lanes.get(lane).offer(payload);
+            queued = true;
+          }
+        }
+        flushBatch();
+      } finally {
+        this.batch.clear();
+      }
+    }
+    if (queued) {
+      drain();
+    }
+  }
+
+  private boolean canSendDirect(int lane, PacketPayload payload) {
+    if (this.draining || !this.delegate.isWritable()) {
+      return false;
+    }
+    for (int i = 0; i <= lane; i++) {
+      if (!this.lanes.get(i).isEmpty()) {
+        return false;
+      }
+    }
+    return !isBulk(lane) || acquireBulk(payload);
+  }
+
+  private boolean isBulk(int lane) {
+    return lane == PacketPriority.BULK.ordinal() && Objects.nonNull(this.bulkLimit);
+  }
+
+  private boolean acquireBulk(PacketPayload payload) {
+    int bytes = payload.data().readableBytes() + payload.metadata().readableBytes();
+    return Objects.requireNonNull(this.bulkLimit).tryAcquire(System.nanoTime(), bytes);
+  }
+
+  private void writabilityChanged() {
+    drain();
+    Runnable onWritabilityChanged = this.onWritabilityChanged;
+    if (Objects.nonNull(onWritabilityChanged)) {
+      onWritabilityChanged.run();
+    }
+  }
+
+  private void scheduledDrain() {
+    synchronized (this) {
+      this.drainScheduled = false;
+    }
+    drain();
+  }
+
+  protected void drain() {
+    long delayNanos = 0L;
+    synchronized (this) {
+      if (this.draining) {
+        return;
+      }
+      this.draining = true;
+      try {
+        for (int lane = 0; lane < LANES.length && this.delegate.isWritable(); lane++) {
+          ArrayDeque<PacketPayload> queue = this.lanes.get(lane);
+          PacketPayload payload;
+          while (Objects.nonNull(payload = queue.peek())) {
+            if (isBulk(lane) && !acquireBulk(payload)) {
+              delayNanos =
+                  Objects.requireNonNull(this.bulkLimit).nanosUntilPermit(System.nanoTime());
+              break;
+            }
+            this.batch.add(queue.poll());
+            if (!this.delegate.isWritable()) {
+              break;
+            }
+          }
+          flushBatch();
+        }
+      } finally {
+        this.batch.clear();
+        this.draining = false;
+      }
+      if (delayNanos > 0 && !this.drainScheduled) {
+        this.drainScheduled = true;
+      } else {
+        delayNanos = 0L;
+      }
+    }
+    if (delayNanos > 0) {
+      this.scheduler.schedule(this.drainTask, delayNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private void flushBatch() {
+    if (this.batch.size() == 1) {
+      this.delegate.send(this.batch.get(0));
+    } else if (!this.batch.isEmpty()) {
+      this.delegate.send(this.batch);
+    }
+    this.batch.clear();
+  }
+
+  @Override
+  public Executor executor() {
+    return this.delegate.executor();
+  }
+
+  @Override
+  public PacketSocket onReadIdle(long idleTimeout, Runnable onReadIdle) {
+    this.delegate.onReadIdle(idleTimeout, onReadIdle);
+    return this;
+  }
+
+  @Override
+  public boolean isWritable() {
+    return this.delegate.isWritable();
+  }
+
+  @Override
+  public PacketSocket onWritabilityChanged(Runnable onWritabilityChanged) {
+    this.onWritabilityChanged = Objects.requireNonNull(onWritabilityChanged);
+    return this;
+  }
+
+  @Override
+  public void dispose() {
+    this.delegate.dispose();
+    synchronized (this) {
+      for (ArrayDeque<PacketPayload> lane : this.lanes) {
+        PacketPayload payload;
+        while (Objects.nonNull(payload = lane.poll())) {
+          payload.release();
+        }
+      }
+    }
+  }
+
+  @Override
+  public boolean isDisposed() {
+    return this.delegate.isDisposed();
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.capture;
+
+import io.netty.buffer.ByteBuf;
+
+public final class PacketCaptureEntry {
+  private final long timestamp;
+  private final int socketId;
+  private final short group;
+  private final short cmd;
+  private final ByteBuf data;
+
+  PacketCaptureEntry(long timestamp, int socketId, short group, short cmd, ByteBuf data) {
+    this.timestamp = timestamp;
+    this.socketId = socketId;
+    this.group = group;
+    this.cmd = cmd;
+    this.data = data;
+  }
+
+  public long timestamp() {
+    return this.timestamp;
+  }
+
+  public int socketId() {
+    return this.socketId;
+  }
+
+  public short group() {
+    return this.group;
+  }
+
+  public short cmd() {
+    return this.cmd;
+  }
+
+  public ByteBuf data() {
+    return this.data;
+  }
+}
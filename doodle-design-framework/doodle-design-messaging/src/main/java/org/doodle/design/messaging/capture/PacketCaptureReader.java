@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.capture;
+
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import org.springframework.lang.Nullable;
+
+public class PacketCaptureReader implements Iterable<PacketCaptureEntry> {
+  private final Path directory;
+  private final String prefix;
+
+  public PacketCaptureReader(Path directory) {
+    this(directory, PacketCaptureWriter.DEFAULT_PREFIX);
+  }
+
+  public PacketCaptureReader(Path directory, String prefix) {
+    this.directory = Objects.requireNonNull(directory);
+    this.prefix = Objects.requireNonNull(prefix);
+  }
+
+  public List<Integer> segments() {
+    return PacketCaptureSegment.list(this.directory, this.prefix);
+  }
+
+  @Override
+  public Iterator<PacketCaptureEntry> iterator() {
+    return new EntryIterator(segments().iterator());
+  }
+
+  private static MappedByteBuffer map(Path path) {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } catch (IOException ex) {
+      throw new IllegalStateException("Unable to map packet capture " + path, ex);
+    }
+  }
+
+  private final class EntryIterator implements Iterator<PacketCaptureEntry> {
+    private final Iterator<Integer> segments;
+    @Nullable private MappedByteBuffer data;
+    @Nullable private MappedByteBuffer index;
+    private int remaining;
+
+    EntryIterator(Iterator<Integer> segments) {
+      this.segments = segments;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (this.remaining == 0) {
+        if (!this.segments.hasNext()) {
+          return false;
+        }
+        open(this.segments.next());
+      }
+      return true;
+    }
+
+    private void open(int segment) {
+      MappedByteBuffer index = map(PacketCaptureSegment.indexPath(directory, prefix, segment));
+      if (index.capacity() < PacketCaptureSegment.INDEX_HEADER_LENGTH || index.getInt(0) == 0) {
+        // still being pre-allocated by the writer
+        this.remaining = 0;
+        return;
+      }
+      MappedByteBuffer data = map(PacketCaptureSegment.dataPath(directory, prefix, segment));
+      if (index.getInt(0) != PacketCaptureSegment.INDEX_MAGIC
+          || data.getInt(0) != PacketCaptureSegment.DATA_MAGIC
+          || data.getInt(4) != PacketCaptureSegment.VERSION) {
+        throw new IllegalStateException("Invalid packet capture segment " + segment);
+      }
+      index.position(PacketCaptureSegment.INDEX_HEADER_LENGTH);
+      this.index = index;
+      this.data = data;
+      this.remaining = index.getInt(PacketCaptureSegment.INDEX_COUNT_OFFSET);
+    }
+
+    @Override
+    public PacketCaptureEntry next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      this.remaining--;
+      long timestamp = this.index.getLong();
+      int offset = this.index.getInt();
+      MappedByteBuffer data = this.data;
+      int socketId = data.getInt(offset);
+      short group = data.getShort(offset + 4);
+      short cmd = data.getShort(offset + 6);
+      int length = data.getInt(offset + 8);
+      return new PacketCaptureEntry(
+          timestamp,
+          socketId,
+          group,
+          cmd,
+          Unpooled.wrappedBuffer(
+              data.slice(offset + PacketCaptureSegment.RECORD_HEADER_LENGTH, length)));
+    }
+  }
+}
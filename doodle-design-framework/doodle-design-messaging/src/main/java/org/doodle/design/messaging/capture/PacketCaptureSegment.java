@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.capture;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+final class PacketCaptureSegment {
+  static final int DATA_MAGIC = 0x44504344;
+  static final int INDEX_MAGIC = 0x44504349;
+  static final int VERSION = 1;
+  static final int DATA_HEADER_LENGTH = 8;
+  static final int INDEX_HEADER_LENGTH = 8;
+  static final int INDEX_COUNT_OFFSET = 4;
+  static final int INDEX_ENTRY_LENGTH = 12;
+  static final int RECORD_HEADER_LENGTH = 12;
+  private static final String DATA_SUFFIX = ".dat";
+  private static final String INDEX_SUFFIX = ".idx";
+
+  private PacketCaptureSegment() {}
+
+  static Path dataPath(Path directory, String prefix, int segment) {
+    return directory.resolve(name(prefix, segment) + DATA_SUFFIX);
+  }
+
+  static Path indexPath(Path directory, String prefix, int segment) {
+    return directory.resolve(name(prefix, segment) + INDEX_SUFFIX);
+  }
+
+  private static String name(String prefix, int segment) {
+    return String.format("%s-%06d", prefix, segment);
+  }
+
+  static List<Integer> list(Path directory, String prefix) {
+    if (!Files.isDirectory(directory)) {
+      return Collections.emptyList();
+    }
+    List<Integer> segments = new ArrayList<>();
+    try (DirectoryStream<Path> paths =
+        Files.newDirectoryStream(directory, prefix + "-*" + INDEX_SUFFIX)) {
+      for (Path path : paths) {
+        String name = path.getFileName().toString();
+        try {
+          segments.add(
+              Integer.parseInt(
+                  name.substring(prefix.length() + 1, name.length() - INDEX_SUFFIX.length())));
+        } catch (NumberFormatException ex) {
+          // not a capture segment
+        }
+      }
+    } catch (IOException ex) {
+      throw new IllegalStateException("Unable to list packet captures in " + directory, ex);
+    }
+    Collections.sort(segments);
+    return segments;
+  }
+
+  static int last(Path directory, String prefix) {
+    List<Integer> segments = list(directory, prefix);
+    return segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+  }
+}
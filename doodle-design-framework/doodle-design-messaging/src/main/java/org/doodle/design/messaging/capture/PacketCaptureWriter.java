@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.capture;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.doodle.design.messaging.PacketWeakKeyMap;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.lang.Nullable;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+@Slf4j
+public class PacketCaptureWriter implements Disposable {
+  public static final String DEFAULT_PREFIX = "capture";
+  public static final int DEFAULT_SEGMENT_BYTES = 64 * 1024 * 1024;
+  public static final int DEFAULT_MAX_SEGMENTS = 16;
+
+  private final Path directory;
+  private final String prefix;
+  private final int segmentBytes;
+  private final int maxSegments;
+  private final long startNanos = System.nanoTime();
+  private final long startEpochNanos = ChronoUnit.NANOS.between(Instant.EPOCH, Instant.now());
+  private final PacketWeakKeyMap<Object, Integer> socketIds = new PacketWeakKeyMap<>();
+  private final AtomicInteger nextSocketId = new AtomicInteger();
+  private final Deque<Integer> segments;
+  private final LongAdder captured = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  // mapping, force() and deletion run here so rotation on the dispatch thread is only a swap
+  private final Scheduler.Worker worker;
+  private int segment;
+  @Nullable private Segment current;
+  @Nullable private Segment next;
+  private boolean preparing;
+  private boolean disposed;
+
+  public PacketCaptureWriter(Path directory) {
+    this(directory, DEFAULT_PREFIX, DEFAULT_SEGMENT_BYTES, DEFAULT_MAX_SEGMENTS);
+  }
+
+  public PacketCaptureWriter(Path directory, String prefix, int segmentBytes, int maxSegments) {
+    this(directory, prefix, segmentBytes, maxSegments, Schedulers.boundedElastic());
+  }
+
+  public PacketCaptureWriter(
+      Path directory, String prefix, int segmentBytes, int maxSegments, Scheduler scheduler) {
+    if (segmentBytes <= PacketCaptureSegment.DATA_HEADER_LENGTH) {
+      throw new IllegalArgumentException("segmentBytes too small: " + segmentBytes);
+    }
+    this.directory = Objects.requireNonNull(directory);
+    this.prefix = Objects.requireNonNull(prefix);
+    this.segmentBytes = segmentBytes;
+    this.maxSegments = maxSegments;
+    this.segments = new ArrayDeque<>(PacketCaptureSegment.list(directory, prefix));
+    this.segment = this.segments.isEmpty() ? 0 : this.segments.getLast();
+    this.worker = scheduler.createWorker();
+    this.preparing = true;
+    int segment = ++this.segment;
+    this.worker.schedule(() -> prepare(segment));
+  }
+
+  public long captured() {
+    return this.captured.sum();
+  }
+
+  public long dropped() {
+    return this.dropped.sum();
+  }
+
+  public int socketId(@Nullable Object socket) {
+    if (Objects.isNull(socket)) {
+      return 0;
+    }
+    return this.socketIds.computeIfAbsent(socket, key -> this.nextSocketId.incrementAndGet());
+  }
+
+  public void capture(@Nullable Object socket, short group, short cmd, DataBuffer payload) {
+    int socketId = socketId(socket);
+    long timestamp = this.startEpochNanos + (System.nanoTime() - this.startNanos);
+    int length = payload.readableByteCount();
+    synchronized (this) {
+      Segment current = reserve(length);
+      if (Objects.isNull(current)) {
+        this.dropped.increment();
+        return;
+      }
+      MappedByteBuffer data = current.data;
+      int offset = data.position();
+      data.putInt(socketId).putShort(group).putShort(cmd).putInt(length);
+      try (DataBuffer.ByteBufferIterator buffers = payload.readableByteBuffers()) {
+        while (buffers.hasNext()) {
+          data.put(buffers.next());
+        }
+      }
+      MappedByteBuffer index = current.index;
+      index.putLong(timestamp).putInt(offset);
+      index.putInt(PacketCaptureSegment.INDEX_COUNT_OFFSET, ++current.count);
+    }
+    this.captured.increment();
+  }
+
+  @Nullable
+  private Segment reserve(int length) {
+    if (this.disposed) {
+      return null;
+    }
+    int required = PacketCaptureSegment.RECORD_HEADER_LENGTH + length;
+    if (required > this.segmentBytes - PacketCaptureSegment.DATA_HEADER_LENGTH) {
+      return null;
+    }
+    Segment current = this.current;
+    if (Objects.isNull(current)
+        || current.data.remaining() < required
+        || !current.index.hasRemaining()) {
+      current = roll();
+    }
+    return current;
+  }
+
+  @Nullable
+  private Segment roll() {
+    Segment next = this.next;
+    if (Objects.isNull(next)) {
+      // the next segment is still being mapped, drop instead of blocking the caller
+      schedulePrepare();
+      return null;
+    }
+    Segment previous = this.current;
+    this.current = next;
+    this.next = null;
+    this.segments.addLast(next.segment);
+    List<Integer> expired = new ArrayList<>();
+    while (this.maxSegments > 0 && this.segments.size() > this.maxSegments) {
+      expired.add(this.segments.removeFirst());
+    }
+    this.worker.schedule(
+        () -> {
+          if (Objects.nonNull(previous)) {
+            previous.force();
+          }
+          for (int segment : expired) {
+            delete(segment);
+          }
+        });
+    schedulePrepare();
+    return next;
+  }
+
+  private void schedulePrepare() {
+    if (!this.preparing && !this.disposed) {
+      this.preparing = true;
+      int segment = ++this.segment;
+      this.worker.schedule(() -> prepare(segment));
+    }
+  }
+
+  private void prepare(int segment) {
+    Segment prepared = null;
+    try {
+      Files.createDirectories(this.directory);
+      int capacity =
+          (this.segmentBytes - PacketCaptureSegment.DATA_HEADER_LENGTH)
+              / PacketCaptureSegment.RECORD_HEADER_LENGTH;
+      // the index is created last so readers listing segments never see a headerless data file
+      MappedByteBuffer data =
+          map(
+              PacketCaptureSegment.dataPath(this.directory, this.prefix, segment),
+              this.segmentBytes);
+      data.putInt(PacketCaptureSegment.DATA_MAGIC).putInt(PacketCaptureSegment.VERSION);
+      MappedByteBuffer index =
+          map(
+              PacketCaptureSegment.indexPath(this.directory, this.prefix, segment),
+              PacketCaptureSegment.INDEX_HEADER_LENGTH
+                  + capacity * PacketCaptureSegment.INDEX_ENTRY_LENGTH);
+      index.putInt(PacketCaptureSegment.INDEX_MAGIC).putInt(0);
+      prepared = new Segment(segment, data, index);
+    } catch (IOException ex) {
+      log.warn("Failed to prepare packet capture segment in {}", this.directory, ex);
+    }
+    synchronized (this) {
+      this.preparing = false;
+      if (!this.disposed) {
+        this.next = prepared;
+        return;
+      }
+    }
+    if (Objects.nonNull(prepared)) {
+      delete(segment);
+    }
+  }
+
+  private void delete(int segment) {
+    try {
+      Files.deleteIfExists(PacketCaptureSegment.dataPath(this.directory, this.prefix, segment));
+      Files.deleteIfExists(PacketCaptureSegment.indexPath(this.directory, this.prefix, segment));
+    } catch (IOException ex) {
+      log.warn("Failed to delete packet capture segment {} in {}", segment, this.directory, ex);
+    }
+  }
+
+  private static MappedByteBuffer map(Path path, int size) throws IOException {
+    try (FileChannel channel =
+        FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      buffer.order(ByteOrder.BIG_ENDIAN);
+      return buffer;
+    }
+  }
+
+  @Override
+  public void dispose() {
+    Segment current;
+    Segment next;
+    synchronized (this) {
+      if (this.disposed) {
+        return;
+      }
+      this.disposed = true;
+      current = this.current;
+      next = this.next;
+      this.current = null;
+      this.next = null;
+    }
+    if (Objects.nonNull(current)) {
+      current.force();
+    }
+    if (Objects.nonNull(next)) {
+      delete(next.segment);
+    }
+    // queued force/delete/prepare tasks finish before the worker goes away
+    this.worker.schedule(this.worker::dispose);
+  }
+
+  @Override
+  public synchronized boolean isDisposed() {
+    return this.disposed;
+  }
+
+  private static final class Segment {
+    private final int segment;
+    private final MappedByteBuffer data;
+    private final MappedByteBuffer index;
+    private int count;
+
+    Segment(int segment, MappedByteBuffer data, MappedByteBuffer index) {
+      this.segment = segment;
+      this.data = data;
+      this.index = index;
+    }
+
+    void force() {
+      this.data.force();
+      this.index.force();
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.loopback;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import lombok.extern.slf4j.Slf4j;
+import org.doodle.design.messaging.DefaultPacketRequester;
+import org.doodle.design.messaging.PacketIdleTracker;
+import org.doodle.design.messaging.PacketPayload;
+import org.doodle.design.messaging.PacketSocket;
+import org.doodle.design.messaging.metrics.PacketMetrics;
+import org.doodle.design.messaging.reactive.PacketInboundDispatcher;
+import org.doodle.design.messaging.reactive.PacketMappingMessageHandler;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.lang.Nullable;
+
+@Slf4j
+public class LoopbackPacketSocket implements PacketSocket {
+  private final Executor executor;
+  private final PacketIdleTracker idleTracker;
+  private final NettyDataBufferFactory dataBufferFactory;
+  @Nullable private PacketInboundDispatcher dispatcher;
+  @Nullable private volatile LoopbackPacketSocket peer;
+  @Nullable private DefaultPacketRequester requester;
+  @Nullable private PacketMappingMessageHandler messageHandler;
+  @Nullable private volatile PacketIdleTracker.Entry idleEntry;
+  private volatile boolean disposed;
+
+  public LoopbackPacketSocket(
+      Executor executor, PacketIdleTracker idleTracker, NettyDataBufferFactory dataBufferFactory) {
+    this.executor = Objects.requireNonNull(executor);
+    this.idleTracker = Objects.requireNonNull(idleTracker);
+    this.dataBufferFactory = Objects.requireNonNull(dataBufferFactory);
+  }
+
+  public static void connect(LoopbackPacketSocket left, LoopbackPacketSocket right) {
+    left.peer = right;
+    right.peer = left;
+  }
+
+  void bind(
+      DefaultPacketRequester requester,
+      @Nullable PacketMappingMessageHandler messageHandler,
+      @Nullable PacketMetrics metrics) {
+    this.requester = requester;
+    this.messageHandler = messageHandler;
+    this.dispatcher = new PacketInboundDispatcher(this.dataBufferFactory, metrics);
+  }
+
+  @Nullable
+  public LoopbackPacketSocket peer() {
+    return this.peer;
+  }
+
+  @Override
+  public void send(PacketPayload payload) {
+    LoopbackPacketSocket peer = this.peer;
+    if (this.disposed || Objects.isNull(peer) || peer.disposed) {
+      payload.release();
+      return;
+    }
+    try {
+      peer.executor.execute(() -> peer.receive(payload));
+    } catch (RuntimeException ex) {
+      payload.release();
+      throw ex;
+    }
+  }
+
+  protected void receive(PacketPayload payload) {
+    if (this.disposed) {
+      payload.release();
+      return;
+    }
+    PacketIdleTracker.Entry idleEntry = this.idleEntry;
+    if (Objects.nonNull(idleEntry)) {
+      idleEntry.touch();
+    }
+    DefaultPacketRequester requester = this.requester;
+    if (Objects.isNull(requester)) {
+      payload.release();
+      return;
+    }
+    Objects.requireNonNull(this.dispatcher).receive(this, payload, requester, this.messageHandler);
+  }
+
+  @Override
+  public PacketSocket onReadIdle(long idleTimeout, Runnable onReadIdle) {
+    Objects.requireNonNull(onReadIdle);
+    PacketIdleTracker.Entry previous = this.idleEntry;
+    this.idleEntry =
+        this.idleTracker.register(
+            idleTimeout,
+            this.executor,
+            () -> {
+              if (!this.disposed) {
+                onReadIdle.run();
+              }
+            });
+    if (Objects.nonNull(previous)) {
+      previous.dispose();
+    }
+    if (this.disposed) {
+      this.idleEntry.dispose();
+    }
+    return this;
+  }
+
+  @Override
+  public Executor executor() {
+    return this.executor;
+  }
+
+  @Override
+  public void dispose() {
+    if (this.disposed) {
+      return;
+    }
+    this.disposed = true;
+    PacketIdleTracker.Entry idleEntry = this.idleEntry;
+    if (Objects.nonNull(idleEntry)) {
+      idleEntry.dispose();
+    }
+    if (Objects.nonNull(this.requester)) {
+      this.requester.correlator().dispose();
+    }
+    LoopbackPacketSocket peer = this.peer;
+    if (Objects.nonNull(peer)) {
+      try {
+        peer.executor.execute(peer::dispose);
+      } catch (RejectedExecutionException ex) {
+        peer.dispose();
+      }
+    }
+  }
+
+  @Override
+  public boolean isDisposed() {
+    return this.disposed;
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.loopback;
+
+import io.netty.buffer.ByteBufAllocator;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import lombok.Getter;
+import lombok.Setter;
+import org.doodle.design.messaging.DefaultPacketRequester;
+import org.doodle.design.messaging.PacketIdleTracker;
+import org.doodle.design.messaging.PacketMetadata;
+import org.doodle.design.messaging.PacketPayloads;
+import org.doodle.design.messaging.PacketPriorities;
+import org.doodle.design.messaging.PacketRequester;
+import org.doodle.design.messaging.PacketSocket;
+import org.doodle.design.messaging.PacketStrategies;
+import org.doodle.design.messaging.PrioritizedPacketSocket;
+import org.doodle.design.messaging.metrics.MeteredPacketSocket;
+import org.doodle.design.messaging.metrics.PacketMetrics;
+import org.doodle.design.messaging.reactive.PacketMappingMessageHandler;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+public class LoopbackPacketTransport implements Disposable {
+  @Getter @Setter private int workerThreads = Runtime.getRuntime().availableProcessors();
+  @Getter @Setter private PacketStrategies strategies = PacketStrategies.builder().build();
+  @Getter @Setter private MimeType dataMimeType = MimeTypeUtils.APPLICATION_OCTET_STREAM;
+  @Getter @Setter private Duration timeout = DefaultPacketRequester.DEFAULT_TIMEOUT;
+  @Nullable @Getter @Setter private PacketMappingMessageHandler messageHandler;
+  @Nullable @Getter @Setter private PacketMappingMessageHandler clientMessageHandler;
+  @Nullable @Getter @Setter private PacketMetrics metrics;
+  @Nullable @Getter @Setter private Consumer<PacketRequester> onConnect;
+  @Nullable @Getter @Setter private PacketIdleTracker idleTracker;
+  @Nullable @Getter @Setter private PacketPriorities priorities;
+  private final AtomicInteger nextWorker = new AtomicInteger();
+  @Nullable private Scheduler scheduler;
+  @Nullable private Executor[] executors;
+
+  protected synchronized Executor[] executors() {
+    if (Objects.isNull(this.executors)) {
+      int workers = Math.max(1, this.workerThreads);
+      Scheduler scheduler = Schedulers.newParallel("packet-loopback", workers, true);
+      Executor[] executors = new Executor[workers];
+      for (int i = 0; i < workers; i++) {
+        Scheduler.Worker worker = scheduler.createWorker();
+        executors[i] = worker::schedule;
+      }
+      this.scheduler = scheduler;
+      this.executors = executors;
+    }
+    return this.executors;
+  }
+
+  protected Executor nextExecutor() {
+    Executor[] executors = executors();
+    return executors[Math.floorMod(this.nextWorker.getAndIncrement(), executors.length)];
+  }
+
+  public Mono<PacketRequester> connect() {
+    return Mono.fromCallable(
+        () -> {
+          PacketIdleTracker idleTracker = idleTracker();
+          NettyDataBufferFactory dataBufferFactory = dataBufferFactory();
+          LoopbackPacketSocket server =
+              new LoopbackPacketSocket(nextExecutor(), idleTracker, dataBufferFactory);
+          LoopbackPacketSocket client =
+              new LoopbackPacketSocket(nextExecutor(), idleTracker, dataBufferFactory);
+          LoopbackPacketSocket.connect(server, client);
+          PacketMetrics metrics = metrics();
+          PacketSocket serverSocket =
+              Objects.nonNull(metrics) ? new MeteredPacketSocket(server, metrics) : server;
+          PacketPriorities priorities = priorities();
+          if (Objects.nonNull(priorities)) {
+            serverSocket = new PrioritizedPacketSocket(serverSocket, priorities);
+          }
+          DefaultPacketRequester serverRequester = createRequester(serverSocket);
+          DefaultPacketRequester clientRequester = createRequester(client);
+          server.bind(serverRequester, this.messageHandler, metrics);
+          client.bind(clientRequester, this.clientMessageHandler, null);
+          Consumer<PacketRequester> onConnect = this.onConnect;
+          if (Objects.nonNull(onConnect)) {
+            onConnect.accept(serverRequester);
+          }
+          return clientRequester;
+        });
+  }
+
+  @Nullable
+  protected PacketMetrics metrics() {
+    if (Objects.nonNull(this.metrics)) {
+      return this.metrics;
+    }
+    return Objects.nonNull(this.messageHandler) ? this.messageHandler.getMetrics() : null;
+  }
+
+  @Nullable
+  protected PacketPriorities priorities() {
+    if (Objects.nonNull(this.priorities)) {
+      return this.priorities;
+    }
+    if (Objects.nonNull(this.messageHandler) && !this.messageHandler.getPriorities().isEmpty()) {
+      return this.messageHandler.getPriorities();
+    }
+    return null;
+  }
+
+  protected PacketIdleTracker idleTracker() {
+    return Objects.nonNull(this.idleTracker) ? this.idleTracker : PacketIdleTracker.shared();
+  }
+
+  protected NettyDataBufferFactory dataBufferFactory() {
+    ByteBufAllocator allocator = PacketPayloads.allocator(this.strategies);
+    return new NettyDataBufferFactory(allocator);
+  }
+
+  protected DefaultPacketRequester createRequester(PacketSocket socket) {
+    return new DefaultPacketRequester(
+        socket, this.dataMimeType, PacketMetadata.MIME_TYPE, this.strategies, this.timeout);
+  }
+
+  @Override
+  public synchronized void dispose() {
+    if (Objects.nonNull(this.scheduler)) {
+      this.scheduler.dispose();
+      this.scheduler = null;
+      this.executors = null;
+    }
+  }
+
+  @Override
+  public synchronized boolean isDisposed() {
+    return Objects.isNull(this.scheduler);
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.loopback;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import org.doodle.design.messaging.PacketRequester;
+import org.springframework.lang.Nullable;
+
+public class PacketBot {
+  private final int id;
+  private final PacketRequester requester;
+  private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+
+  public PacketBot(int id, PacketRequester requester) {
+    this.id = id;
+    this.requester = Objects.requireNonNull(requester);
+  }
+
+  public int id() {
+    return this.id;
+  }
+
+  public PacketRequester requester() {
+    return this.requester;
+  }
+
+  @Nullable
+  @SuppressWarnings("unchecked")
+  public <T> T attribute(String name) {
+    return (T) this.attributes.get(name);
+  }
+
+  public PacketBot attribute(String name, Object value) {
+    this.attributes.put(name, value);
+    return this;
+  }
+}
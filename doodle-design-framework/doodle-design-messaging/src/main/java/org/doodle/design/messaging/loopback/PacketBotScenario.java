@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.loopback;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import org.springframework.util.Assert;
+
+public class PacketBotScenario {
+  private final String name;
+  private final List<PacketBotStep> setup;
+  private final List<PacketBotStep> steps;
+
+  private PacketBotScenario(String name, List<PacketBotStep> setup, List<PacketBotStep> steps) {
+    this.name = name;
+    this.setup = Collections.unmodifiableList(setup);
+    this.steps = Collections.unmodifiableList(steps);
+  }
+
+  public static Builder builder(String name) {
+    return new Builder(name);
+  }
+
+  public String name() {
+    return this.name;
+  }
+
+  public List<PacketBotStep> setup() {
+    return this.setup;
+  }
+
+  public List<PacketBotStep> steps() {
+    return this.steps;
+  }
+
+  public static class Builder {
+    private final String name;
+    private final List<PacketBotStep> setup = new ArrayList<>();
+    private final List<PacketBotStep> steps = new ArrayList<>();
+
+    Builder(String name) {
+      this.name = Objects.requireNonNull(name);
+    }
+
+    public Builder setup(PacketBotStep step) {
+      this.setup.add(Objects.requireNonNull(step));
+      return this;
+    }
+
+    public Builder step(PacketBotStep step) {
+      return step(step, 1);
+    }
+
+    public Builder step(PacketBotStep step, int weight) {
+      Assert.isTrue(weight > 0, "weight must be positive");
+      for (int i = 0; i < weight; i++) {
+        this.steps.add(Objects.requireNonNull(step));
+      }
+      return this;
+    }
+
+    public PacketBotScenario build() {
+      Assert.state(!this.steps.isEmpty(), "A scenario needs at least one step");
+      return new PacketBotScenario(
+          this.name, new ArrayList<>(this.setup), new ArrayList<>(this.steps));
+    }
+  }
+}
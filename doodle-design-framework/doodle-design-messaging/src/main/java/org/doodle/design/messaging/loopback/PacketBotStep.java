@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.loopback;
+
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import org.doodle.design.messaging.PacketRequester;
+import org.springframework.lang.Nullable;
+import reactor.core.publisher.Mono;
+
+public class PacketBotStep {
+  private final short group;
+  private final short cmd;
+  private final Function<PacketBot, Object> data;
+  @Nullable private final Class<?> replyType;
+  @Nullable private final BiConsumer<PacketBot, Object> onReply;
+
+  private PacketBotStep(
+      short group,
+      short cmd,
+      Function<PacketBot, Object> data,
+      @Nullable Class<?> replyType,
+      @Nullable BiConsumer<PacketBot, Object> onReply) {
+    this.group = group;
+    this.cmd = cmd;
+    this.data = Objects.requireNonNull(data);
+    this.replyType = replyType;
+    this.onReply = onReply;
+  }
+
+  public static PacketBotStep send(short group, short cmd, Function<PacketBot, Object> data) {
+    return new PacketBotStep(group, cmd, data, null, null);
+  }
+
+  public static PacketBotStep request(
+      short group, short cmd, Function<PacketBot, Object> data, Class<?> replyType) {
+    return new PacketBotStep(group, cmd, data, Objects.requireNonNull(replyType), null);
+  }
+
+  @SuppressWarnings("unchecked")
+  public static <T> PacketBotStep request(
+      short group,
+      short cmd,
+      Function<PacketBot, Object> data,
+      Class<T> replyType,
+      BiConsumer<PacketBot, T> onReply) {
+    return new PacketBotStep(
+        group,
+        cmd,
+        data,
+        Objects.requireNonNull(replyType),
+        (BiConsumer<PacketBot, Object>) Objects.requireNonNull(onReply));
+  }
+
+  public short group() {
+    return this.group;
+  }
+
+  public short cmd() {
+    return this.cmd;
+  }
+
+  public Mono<Void> execute(PacketBot bot) {
+    PacketRequester.RequestSpec spec = bot.requester().route(this.group, this.cmd);
+    Object payload = this.data.apply(bot);
+    if (Objects.nonNull(payload)) {
+      spec.data(payload);
+    }
+    if (Objects.isNull(this.replyType)) {
+      return spec.send();
+    }
+    Mono<?> reply = spec.retrieveMono(this.replyType);
+    BiConsumer<PacketBot, Object> onReply = this.onReply;
+    return Objects.nonNull(onReply)
+        ? reply.doOnNext(value -> onReply.accept(bot, value)).then()
+        : reply.then();
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.loopback;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import lombok.Getter;
+import lombok.Setter;
+import org.doodle.design.messaging.PacketRequester;
+import org.doodle.design.messaging.metrics.PacketCommandMetrics;
+import org.doodle.design.messaging.metrics.PacketMetrics;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+public class PacketBotSwarm {
+  public static final String DROPPED_GAUGE = "packet.bots.dropped";
+
+  private final Supplier<Mono<PacketRequester>> connector;
+  private final PacketBotScenario scenario;
+  private final LongAdder dropped = new LongAdder();
+  @Getter @Setter private int bots = 100;
+  @Getter @Setter private double rate = 1_000;
+  @Getter @Setter private Duration duration = Duration.ofSeconds(30);
+  @Getter @Setter private int connectConcurrency = 64;
+  @Getter @Setter private PacketMetrics metrics = new PacketMetrics();
+
+  public PacketBotSwarm(Supplier<Mono<PacketRequester>> connector, PacketBotScenario scenario) {
+    this.connector = Objects.requireNonNull(connector);
+    this.scenario = Objects.requireNonNull(scenario);
+  }
+
+  public long droppedTicks() {
+    return this.dropped.sum();
+  }
+
+  public Mono<PacketMetrics> run() {
+    Assert.isTrue(this.bots > 0, "bots must be positive");
+    Assert.isTrue(this.rate > 0, "rate must be positive");
+    PacketMetrics metrics = this.metrics;
+    metrics.gauge(DROPPED_GAUGE, this.dropped::sum);
+    this.scenario.setup().forEach(step -> metrics.register(step.group(), step.cmd()));
+    this.scenario.steps().forEach(step -> metrics.register(step.group(), step.cmd()));
+    Duration period = Duration.ofNanos(Math.max(1, (long) (1e9 * this.bots / this.rate)));
+    return Flux.range(0, this.bots)
+        .flatMap(
+            id -> this.connector.get().map(requester -> new PacketBot(id, requester)),
+            this.connectConcurrency)
+        .flatMap(bot -> runBot(bot, period, metrics), this.bots)
+        .then(Mono.fromSupplier(() -> metrics));
+  }
+
+  protected Mono<Void> runBot(PacketBot bot, Duration period, PacketMetrics metrics) {
+    List<PacketBotStep> steps = this.scenario.steps();
+    Duration offset = Duration.ofNanos(ThreadLocalRandom.current().nextLong(period.toNanos()));
+    return Flux.fromIterable(this.scenario.setup())
+        .concatMap(step -> execute(bot, step, metrics))
+        .thenMany(
+            Flux.interval(offset, period)
+                .take(this.duration)
+                .onBackpressureDrop(tick -> this.dropped.increment())
+                .concatMap(
+                    tick -> execute(bot, steps.get((int) (tick % steps.size())), metrics), 1))
+        .then()
+        .doFinally(signal -> bot.requester().dispose());
+  }
+
+  protected Mono<Void> execute(PacketBot bot, PacketBotStep step, PacketMetrics metrics) {
+    PacketCommandMetrics command = metrics.command(step.group(), step.cmd());
+    return Mono.defer(
+            () -> {
+              long start = System.nanoTime();
+              return step.execute(bot)
+                  .doFinally(
+                      signal ->
+                          command.record(System.nanoTime() - start, signal == SignalType.ON_ERROR));
+            })
+        .onErrorResume(error -> Mono.empty());
+  }
+}
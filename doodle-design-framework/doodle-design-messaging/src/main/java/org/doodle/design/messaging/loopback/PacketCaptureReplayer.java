@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.loopback;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import java.util.Objects;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import lombok.Getter;
+import lombok.Setter;
+import org.doodle.design.messaging.BinaryPacketMetadataEncoder;
+import org.doodle.design.messaging.ByteBufPacketPayload;
+import org.doodle.design.messaging.PacketPayloads;
+import org.doodle.design.messaging.PacketRequester;
+import org.doodle.design.messaging.capture.PacketCaptureEntry;
+import org.doodle.design.messaging.capture.PacketCaptureReader;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+public class PacketCaptureReplayer {
+  public static final double MAX_SPEED = Double.POSITIVE_INFINITY;
+
+  private final Supplier<Mono<PacketRequester>> connector;
+  private final PacketCaptureReader reader;
+  @Getter @Setter private double speed = 1;
+  @Getter private volatile long maxLagNanos;
+
+  public PacketCaptureReplayer(
+      Supplier<Mono<PacketRequester>> connector, PacketCaptureReader reader) {
+    this.connector = Objects.requireNonNull(connector);
+    this.reader = Objects.requireNonNull(reader);
+  }
+
+  public Mono<Long> replay() {
+    return Mono.fromCallable(this::replayCaptures).subscribeOn(Schedulers.boundedElastic());
+  }
+
+  protected long replayCaptures() {
+    IntObjectMap<PacketRequester> requesters = new IntObjectHashMap<>();
+    boolean paced = this.speed > 0 && this.speed != MAX_SPEED;
+    long replayed = 0;
+    long firstTimestamp = 0;
+    long start = System.nanoTime();
+    long maxLag = 0;
+    try {
+      for (PacketCaptureEntry entry : this.reader) {
+        if (replayed == 0) {
+          firstTimestamp = entry.timestamp();
+        }
+        if (paced) {
+          long target = start + (long) ((entry.timestamp() - firstTimestamp) / this.speed);
+          long now = System.nanoTime();
+          while (now < target) {
+            LockSupport.parkNanos(target - now);
+            now = System.nanoTime();
+          }
+          maxLag = Math.max(maxLag, now - target);
+        }
+        PacketRequester requester = requesters.get(entry.socketId());
+        if (Objects.isNull(requester)) {
+          requester = Objects.requireNonNull(this.connector.get().block());
+          requesters.put(entry.socketId(), requester);
+        }
+        send(requester, entry);
+        replayed++;
+      }
+    } finally {
+      this.maxLagNanos = maxLag;
+      for (PacketRequester requester : requesters.values()) {
+        requester.dispose();
+      }
+    }
+    return replayed;
+  }
+
+  protected void send(PacketRequester requester, PacketCaptureEntry entry) {
+    ByteBuf metadata =
+        new BinaryPacketMetadataEncoder(requester.strategies())
+            .route(entry.group(), entry.cmd())
+            .encode(PacketPayloads.allocator(requester.strategies()));
+    requester.socket().send(ByteBufPacketPayload.create(entry.data(), metadata));
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.metrics;
+
+import io.netty.buffer.ByteBuf;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import org.doodle.design.messaging.PacketMetadata;
+import org.doodle.design.messaging.PacketPayload;
+import org.doodle.design.messaging.PacketSocket;
+
+public class MeteredPacketSocket implements PacketSocket {
+  private final PacketSocket delegate;
+  private final PacketMetrics metrics;
+
+  public MeteredPacketSocket(PacketSocket delegate, PacketMetrics metrics) {
+    this.delegate = Objects.requireNonNull(delegate);
+    this.metrics = Objects.requireNonNull(metrics);
+  }
+
+  public PacketSocket delegate() {
+    return this.delegate;
+  }
+
+  @Override
+  public void send(PacketPayload payload) {
+    record(payload);
+    this.delegate.send(payload);
+  }
+
+  @Override
+  public void send(Iterable<? extends PacketPayload> payloads) {
+    for (PacketPayload payload : payloads) {
+      record(payload);
+    }
+    this.delegate.send(payloads);
+  }
+
+  private void record(PacketPayload payload) {
+    short group = 0;
+    int bytes = payload.data().readableBytes();
+    if (payload.hasMetadata()) {
+      ByteBuf metadata = payload.metadata();
+      bytes += metadata.readableBytes();
+      if (metadata.readableBytes() >= PacketMetadata.HEADER_LENGTH) {
+        group = metadata.getShort(metadata.readerIndex());
+      }
+    }
+    this.metrics.recordOutbound(group, bytes);
+  }
+
+  @Override
+  public PacketSocket onReadIdle(long idleTimeout, Runnable onReadIdle) {
+    this.delegate.onReadIdle(idleTimeout, onReadIdle);
+    return this;
+  }
+
+  @Override
+  public Executor executor() {
+    return this.delegate.executor();
+  }
+
+  @Override
+  public boolean isWritable() {
+    return this.delegate.isWritable();
+  }
+
+  @Override
+  public PacketSocket onWritabilityChanged(Runnable onWritabilityChanged) {
+    this.delegate.onWritabilityChanged(onWritabilityChanged);
+    return this;
+  }
+
+  @Override
+  public void dispose() {
+    this.delegate.dispose();
+  }
+
+  @Override
+  public boolean isDisposed() {
+    return this.delegate.isDisposed();
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import lombok.Getter;
+
+@Getter
+public class PacketCommandMetrics {
+  private final short group;
+  private final short cmd;
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final LongAdder throttled = new LongAdder();
+  private final PacketLatencyHistogram latency = new PacketLatencyHistogram();
+
+  public PacketCommandMetrics(short group, short cmd) {
+    this.group = group;
+    this.cmd = cmd;
+  }
+
+  public void record(long latencyNanos, boolean error) {
+    this.requests.increment();
+    if (error) {
+      this.errors.increment();
+    }
+    this.latency.record(latencyNanos);
+  }
+
+  public void recordThrottled() {
+    this.throttled.increment();
+  }
+}
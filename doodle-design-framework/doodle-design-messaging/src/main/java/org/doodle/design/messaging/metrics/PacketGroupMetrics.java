@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+import lombok.Getter;
+
+@Getter
+public class PacketGroupMetrics {
+  private final short group;
+  private final LongAdder inboundPackets = new LongAdder();
+  private final LongAdder inboundBytes = new LongAdder();
+  private final LongAdder outboundPackets = new LongAdder();
+  private final LongAdder outboundBytes = new LongAdder();
+  private final LongAdder compressedPackets = new LongAdder();
+  private final LongAdder compressionInputBytes = new LongAdder();
+  private final LongAdder compressionOutputBytes = new LongAdder();
+  private final LongAdder compressionNanos = new LongAdder();
+  private final LongAdder decompressedPackets = new LongAdder();
+  private final LongAdder decompressionNanos = new LongAdder();
+
+  public PacketGroupMetrics(short group) {
+    this.group = group;
+  }
+
+  public void recordInbound(int bytes) {
+    this.inboundPackets.increment();
+    this.inboundBytes.add(bytes);
+  }
+
+  public void recordOutbound(int bytes) {
+    this.outboundPackets.increment();
+    this.outboundBytes.add(bytes);
+  }
+
+  public void recordCompression(int inputBytes, int outputBytes, long nanos) {
+    if (outputBytes > 0) {
+      this.compressedPackets.increment();
+      this.compressionInputBytes.add(inputBytes);
+      this.compressionOutputBytes.add(outputBytes);
+    }
+    this.compressionNanos.add(nanos);
+  }
+
+  public void recordDecompression(long nanos) {
+    this.decompressedPackets.increment();
+    this.decompressionNanos.add(nanos);
+  }
+
+  public double compressionRatio() {
+    long input = this.compressionInputBytes.sum();
+    return input > 0 ? (double) this.compressionOutputBytes.sum() / input : 1.0;
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class PacketLatencyHistogram {
+  static final int SUB_BUCKET_BITS = 3;
+  static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  static final int MAX_EXPONENT = 35;
+  static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+  static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  public void record(long value) {
+    long clamped = Math.min(Math.max(value, 0), MAX_VALUE);
+    this.buckets.incrementAndGet(bucketIndex(clamped));
+    this.count.increment();
+    this.sum.add(clamped);
+    long current = this.max.get();
+    while (clamped > current && !this.max.compareAndSet(current, clamped)) {
+      current = this.max.get();
+    }
+  }
+
+  public long count() {
+    return this.count.sum();
+  }
+
+  public long sum() {
+    return this.sum.sum();
+  }
+
+  public long max() {
+    return this.max.get();
+  }
+
+  public double mean() {
+    long count = count();
+    return count == 0 ? 0 : (double) sum() / count;
+  }
+
+  public long valueAtPercentile(double percentile) {
+    long[] counts = new long[BUCKET_COUNT];
+    long total = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = this.buckets.get(i);
+      total += counts[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(total * Math.min(percentile, 100.0) / 100.0));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(highestEquivalentValue(i), max());
+      }
+    }
+    return max();
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      this.buckets.set(i, 0);
+    }
+    this.count.reset();
+    this.sum.reset();
+    this.max.set(0);
+  }
+
+  static int bucketIndex(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  static long highestEquivalentValue(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+    int shift = exponent - SUB_BUCKET_BITS;
+    long lowest = (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.metrics;
+
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.doodle.design.messaging.PacketRoute;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+public class PacketMetrics {
+  public static final short UNKNOWN = -1;
+
+  private final PacketCommandMetrics unknownCommand = new PacketCommandMetrics(UNKNOWN, UNKNOWN);
+  private final PacketGroupMetrics unknownGroup = new PacketGroupMetrics(UNKNOWN);
+  private volatile IntObjectMap<PacketCommandMetrics> commands = new IntObjectHashMap<>();
+  private volatile IntObjectMap<PacketGroupMetrics> groups = new IntObjectHashMap<>();
+  private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+  public PacketMetrics register(short group, short cmd) {
+    addCommand(PacketRoute.pack(group, cmd), group, cmd);
+    addGroup(group);
+    return this;
+  }
+
+  public PacketMetrics registerGroup(short group) {
+    addGroup(group);
+    return this;
+  }
+
+  public PacketCommandMetrics command(short group, short cmd) {
+    PacketCommandMetrics metrics = this.commands.get(PacketRoute.pack(group, cmd));
+    return Objects.nonNull(metrics) ? metrics : this.unknownCommand;
+  }
+
+  public PacketGroupMetrics group(short group) {
+    PacketGroupMetrics metrics = this.groups.get(group);
+    return Objects.nonNull(metrics) ? metrics : this.unknownGroup;
+  }
+
+  public void recordDispatch(short group, short cmd, long latencyNanos, boolean error) {
+    command(group, cmd).record(latencyNanos, error);
+  }
+
+  public void recordThrottled(short group, short cmd) {
+    command(group, cmd).recordThrottled();
+  }
+
+  public void recordInbound(short group, int bytes) {
+    group(group).recordInbound(bytes);
+  }
+
+  public void recordOutbound(short group, int bytes) {
+    group(group).recordOutbound(bytes);
+  }
+
+  public void recordCompression(short group, int inputBytes, int outputBytes, long nanos) {
+    group(group).recordCompression(inputBytes, outputBytes, nanos);
+  }
+
+  public void recordDecompression(short group, long nanos) {
+    group(group).recordDecompression(nanos);
+  }
+
+  public PacketMetrics gauge(String name, LongSupplier value) {
+    this.gauges.put(name, value);
+    return this;
+  }
+
+  public void removeGauge(String name) {
+    this.gauges.remove(name);
+  }
+
+  public void report(PacketMetricsReporter reporter) {
+    for (PacketCommandMetrics metrics : this.commands.values()) {
+      reporter.reportCommand(metrics);
+    }
+    reporter.reportCommand(this.unknownCommand);
+    for (PacketGroupMetrics metrics : this.groups.values()) {
+      reporter.reportGroup(metrics);
+    }
+    reporter.reportGroup(this.unknownGroup);
+    this.gauges.forEach((name, value) -> reporter.reportGauge(name, value.getAsLong()));
+    reporter.flush();
+  }
+
+  public Disposable schedule(PacketMetricsReporter reporter, Duration interval) {
+    return schedule(reporter, interval, Schedulers.parallel());
+  }
+
+  public Disposable schedule(
+      PacketMetricsReporter reporter, Duration interval, Scheduler scheduler) {
+    long period = interval.toNanos();
+    return scheduler.schedulePeriodically(
+        () -> report(reporter), period, period, TimeUnit.NANOSECONDS);
+  }
+
+  private synchronized PacketCommandMetrics addCommand(int route, short group, short cmd) {
+    PacketCommandMetrics metrics = this.commands.get(route);
+    if (Objects.isNull(metrics)) {
+      IntObjectMap<PacketCommandMetrics> copy = new IntObjectHashMap<>(this.commands.size() + 1);
+      copy.putAll(this.commands);
+      metrics = new PacketCommandMetrics(group, cmd);
+      copy.put(route, metrics);
+      this.commands = copy;
+    }
+    return metrics;
+  }
+
+  private synchronized PacketGroupMetrics addGroup(short group) {
+    PacketGroupMetrics metrics = this.groups.get(group);
+    if (Objects.isNull(metrics)) {
+      IntObjectMap<PacketGroupMetrics> copy = new IntObjectHashMap<>(this.groups.size() + 1);
+      copy.putAll(this.groups);
+      metrics = new PacketGroupMetrics(group);
+      copy.put(group, metrics);
+      this.groups = copy;
+    }
+    return metrics;
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.metrics;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+public class TextPacketMetricsReporter implements PacketMetricsReporter {
+  private final Consumer<String> output;
+  private final TimeUnit latencyUnit;
+  private final StringBuilder buffer = new StringBuilder();
+
+  public TextPacketMetricsReporter(Consumer<String> output) {
+    this(output, TimeUnit.MICROSECONDS);
+  }
+
+  public TextPacketMetricsReporter(Consumer<String> output, TimeUnit latencyUnit) {
+    this.output = Objects.requireNonNull(output);
+    this.latencyUnit = Objects.requireNonNull(latencyUnit);
+  }
+
+  @Override
+  public synchronized void reportCommand(PacketCommandMetrics metrics) {
+    PacketLatencyHistogram latency = metrics.getLatency();
+    this.buffer
+        .append(metrics.getGroup())
+        .append('.')
+        .append(metrics.getCmd())
+        .append(" count=")
+        .append(metrics.getRequests().sum())
+        .append(" errors=")
+        .append(metrics.getErrors().sum())
+        .append(" throttled=")
+        .append(metrics.getThrottled().sum())
+        .append(" p50=")
+        .append(convert(latency.valueAtPercentile(50)))
+        .append(" p90=")
+        .append(convert(latency.valueAtPercentile(90)))
+        .append(" p99=")
+        .append(convert(latency.valueAtPercentile(99)))
+        .append(" p999=")
+        .append(convert(latency.valueAtPercentile(99.9)))
+        .append(" max=")
+        .append(convert(latency.max()))
+        .append(' ')
+        .append(this.latencyUnit.name().toLowerCase())
+        .append('\n');
+  }
+
+  @Override
+  public synchronized void reportGroup(PacketGroupMetrics metrics) {
+    this.buffer
+        .append("group ")
+        .append(metrics.getGroup())
+        .append(" in=")
+        .append(metrics.getInboundPackets().sum())
+        .append('/')
+        .append(metrics.getInboundBytes().sum())
+        .append("B out=")
+        .append(metrics.getOutboundPackets().sum())
+        .append('/')
+        .append(metrics.getOutboundBytes().sum())
+        .append('B');
+    long compressed = metrics.getCompressedPackets().sum();
+    if (compressed > 0) {
+      this.buffer
+          .append(" compressed=")
+          .append(compressed)
+          .append(" ratio=")
+          .append(String.format("%.3f", metrics.compressionRatio()))
+          .append(" deflate=")
+          .append(convert(metrics.getCompressionNanos().sum()));
+    }
+    long decompressed = metrics.getDecompressedPackets().sum();
+    if (decompressed > 0) {
+      this.buffer
+          .append(" decompressed=")
+          .append(decompressed)
+          .append(" inflate=")
+          .append(convert(metrics.getDecompressionNanos().sum()));
+    }
+    this.buffer.append('\n');
+  }
+
+  @Override
+  public synchronized void reportGauge(String name, long value) {
+    this.buffer.append(name).append('=').append(value).append('\n');
+  }
+
+  @Override
+  public synchronized void flush() {
+    this.output.accept(this.buffer.toString());
+    this.buffer.setLength(0);
+  }
+
+  private long convert(long nanos) {
+    return this.latencyUnit.convert(nanos, TimeUnit.NANOSECONDS);
+  }
+}
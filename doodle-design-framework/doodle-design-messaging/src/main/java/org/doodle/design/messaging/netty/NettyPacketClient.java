@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.netty;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import java.util.Objects;
+import lombok.Getter;
+import lombok.Setter;
+import org.doodle.design.messaging.DefaultPacketRequester;
+import org.doodle.design.messaging.PacketRequester;
+import org.springframework.lang.Nullable;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+public class NettyPacketClient extends NettyPacketTransport implements Disposable {
+  @Getter @Setter private int connectTimeoutMillis = 10_000;
+  @Nullable private EventLoopGroup workerGroup;
+  @Nullable private Bootstrap bootstrap;
+
+  @SuppressWarnings("unchecked")
+  protected synchronized Bootstrap bootstrap() {
+    if (Objects.isNull(this.bootstrap)) {
+      this.workerGroup =
+          NettyTransports.eventLoopGroup(isPreferNative(), getWorkerThreads(), "packet-client");
+      Bootstrap bootstrap =
+          new Bootstrap()
+              .group(this.workerGroup)
+              .channel(NettyTransports.channelClass(isPreferNative()))
+              .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, this.connectTimeoutMillis)
+              .handler(channelInitializer());
+      channelOptions()
+          .forEach((option, value) -> bootstrap.option((ChannelOption<Object>) option, value));
+      this.bootstrap = bootstrap;
+    }
+    return this.bootstrap;
+  }
+
+  public Mono<PacketRequester> connect() {
+    return connect(getHost(), getPort());
+  }
+
+  public Mono<PacketRequester> connect(String host, int port) {
+    return connect(host, port, null);
+  }
+
+  public Mono<PacketRequester> reconnect(PacketRequester requester) {
+    return reconnect(requester, getHost(), getPort());
+  }
+
+  public Mono<PacketRequester> reconnect(PacketRequester requester, String host, int port) {
+    if (!isSessionEnabled() || !(requester instanceof DefaultPacketRequester)) {
+      return Mono.error(
+          new IllegalArgumentException("Requester does not belong to a packet session"));
+    }
+    return connect(host, port, (DefaultPacketRequester) requester);
+  }
+
+  private Mono<PacketRequester> connect(
+      String host, int port, @Nullable DefaultPacketRequester sessionRequester) {
+    return Mono.create(
+        sink -> {
+          Bootstrap bootstrap = bootstrap();
+          if (Objects.nonNull(sessionRequester)) {
+            bootstrap =
+                bootstrap.clone().attr(PacketChannelHandler.SESSION_REQUESTER, sessionRequester);
+          }
+          ChannelFuture future = bootstrap.connect(host, port);
+          future.addListener(
+              (ChannelFuture f) -> {
+                if (!f.isSuccess()) {
+                  sink.error(f.cause());
+                  return;
+                }
+                PacketChannelHandler handler =
+                    (PacketChannelHandler) f.channel().pipeline().get(HANDLER_NAME);
+                sink.success(handler.requester());
+              });
+          sink.onCancel(() -> future.cancel(false));
+        });
+  }
+
+  @Override
+  public synchronized void dispose() {
+    if (Objects.nonNull(this.workerGroup)) {
+      this.workerGroup.shutdownGracefully();
+      this.workerGroup = null;
+      this.bootstrap = null;
+    }
+  }
+
+  @Override
+  public synchronized boolean isDisposed() {
+    return Objects.isNull(this.workerGroup);
+  }
+}
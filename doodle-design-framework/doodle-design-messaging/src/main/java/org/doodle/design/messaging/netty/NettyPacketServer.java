@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.netty;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import java.util.Objects;
+import lombok.Getter;
+import lombok.Setter;
+import org.doodle.design.messaging.PacketSessionRegistry;
+import org.springframework.lang.Nullable;
+import reactor.core.Disposable;
+
+public class NettyPacketServer extends NettyPacketTransport implements Disposable {
+  @Getter @Setter private int bossThreads = 1;
+  @Getter @Setter private int backlog = 1024;
+  @Nullable private EventLoopGroup bossGroup;
+  @Nullable private EventLoopGroup workerGroup;
+  @Nullable private Channel channel;
+  @Nullable private PacketSessionRegistry sessionRegistry;
+
+  @SuppressWarnings("unchecked")
+  public synchronized NettyPacketServer start() throws InterruptedException {
+    if (Objects.nonNull(this.channel)) {
+      return this;
+    }
+    this.bossGroup =
+        NettyTransports.eventLoopGroup(isPreferNative(), this.bossThreads, "packet-boss");
+    this.workerGroup =
+        NettyTransports.eventLoopGroup(isPreferNative(), getWorkerThreads(), "packet-worker");
+    ServerBootstrap bootstrap =
+        new ServerBootstrap()
+            .group(this.bossGroup, this.workerGroup)
+            .channel(NettyTransports.serverChannelClass(isPreferNative()))
+            .option(ChannelOption.SO_BACKLOG, this.backlog)
+            .option(ChannelOption.SO_REUSEADDR, true)
+            .childHandler(channelInitializer());
+    channelOptions()
+        .forEach((option, value) -> bootstrap.childOption((ChannelOption<Object>) option, value));
+    try {
+      this.channel = bootstrap.bind(getHost(), getPort()).sync().channel();
+    } catch (InterruptedException | RuntimeException ex) {
+      dispose();
+      throw ex;
+    }
+    return this;
+  }
+
+  @Nullable
+  @Override
+  protected synchronized PacketSessionRegistry sessionRegistry() {
+    if (Objects.isNull(this.sessionRegistry) && isSessionEnabled()) {
+      this.sessionRegistry = new PacketSessionRegistry(getSessionRetention());
+    }
+    return this.sessionRegistry;
+  }
+
+  @Nullable
+  public Channel channel() {
+    return this.channel;
+  }
+
+  @Override
+  public synchronized void dispose() {
+    if (Objects.nonNull(this.channel)) {
+      this.channel.close();
+      this.channel = null;
+    }
+    if (Objects.nonNull(this.bossGroup)) {
+      this.bossGroup.shutdownGracefully();
+      this.bossGroup = null;
+    }
+    if (Objects.nonNull(this.workerGroup)) {
+      this.workerGroup.shutdownGracefully();
+      this.workerGroup = null;
+    }
+    if (Objects.nonNull(this.sessionRegistry)) {
+      this.sessionRegistry.dispose();
+      this.sessionRegistry = null;
+    }
+  }
+
+  @Override
+  public synchronized boolean isDisposed() {
+    return Objects.isNull(this.channel);
+  }
+}
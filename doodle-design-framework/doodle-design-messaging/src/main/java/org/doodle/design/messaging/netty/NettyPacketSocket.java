@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.netty;
+
+import io.netty.channel.Channel;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import org.doodle.design.messaging.PacketIdleTracker;
+import org.doodle.design.messaging.PacketPayload;
+import org.doodle.design.messaging.PacketSocket;
+import org.springframework.lang.Nullable;
+
+public class NettyPacketSocket implements PacketSocket {
+  private final Channel channel;
+  private final PacketIdleTracker idleTracker;
+  @Nullable private volatile PacketIdleTracker.Entry idleEntry;
+  @Nullable private volatile Runnable onWritabilityChanged;
+
+  public NettyPacketSocket(Channel channel) {
+    this(channel, PacketIdleTracker.shared());
+  }
+
+  public NettyPacketSocket(Channel channel, PacketIdleTracker idleTracker) {
+    this.channel = Objects.requireNonNull(channel);
+    this.idleTracker = Objects.requireNonNull(idleTracker);
+    this.channel.closeFuture().addListener(future -> disposeIdleEntry());
+  }
+
+  public Channel channel() {
+    return this.channel;
+  }
+
+  @Override
+  public void send(PacketPayload payload) {
+    this.channel.writeAndFlush(payload, this.channel.voidPromise());
+  }
+
+  @Override
+  public void send(Iterable<? extends PacketPayload> payloads) {
+    for (PacketPayload payload : payloads) {
+      this.channel.write(payload, this.channel.voidPromise());
+    }
+    this.channel.flush();
+  }
+
+  @Override
+  public Executor executor() {
+    return this.channel.eventLoop();
+  }
+
+  @Override
+  public PacketSocket onReadIdle(long idleTimeout, Runnable onReadIdle) {
+    Objects.requireNonNull(onReadIdle);
+    PacketIdleTracker.Entry previous = this.idleEntry;
+    this.idleEntry =
+        this.idleTracker.register(
+            idleTimeout,
+            this.channel.eventLoop(),
+            () -> {
+              if (this.channel.isActive()) {
+                onReadIdle.run();
+              }
+            });
+    if (Objects.nonNull(previous)) {
+      previous.dispose();
+    }
+    if (!this.channel.isOpen()) {
+      disposeIdleEntry();
+    }
+    return this;
+  }
+
+  void markRead() {
+    PacketIdleTracker.Entry idleEntry = this.idleEntry;
+    if (Objects.nonNull(idleEntry)) {
+      idleEntry.touch();
+    }
+  }
+
+  private void disposeIdleEntry() {
+    PacketIdleTracker.Entry idleEntry = this.idleEntry;
+    if (Objects.nonNull(idleEntry)) {
+      idleEntry.dispose();
+    }
+  }
+
+  @Override
+  public boolean isWritable() {
+    return this.channel.isWritable();
+  }
+
+  @Override
+  public PacketSocket onWritabilityChanged(Runnable onWritabilityChanged) {
+    this.onWritabilityChanged = Objects.requireNonNull(onWritabilityChanged);
+    return this;
+  }
+
+  void fireWritabilityChanged() {
+    Runnable onWritabilityChanged = this.onWritabilityChanged;
+    if (Objects.nonNull(onWritabilityChanged)) {
+      onWritabilityChanged.run();
+    }
+  }
+
+  @Override
+  public void dispose() {
+    this.channel.close();
+  }
+
+  @Override
+  public boolean isDisposed() {
+    return !this.channel.isOpen();
+  }
+}
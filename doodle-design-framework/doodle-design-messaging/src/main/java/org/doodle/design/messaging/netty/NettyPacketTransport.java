@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.netty;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.WriteBufferWaterMark;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import lombok.Getter;
+import lombok.Setter;
+import org.doodle.design.messaging.DefaultPacketRequester;
+import org.doodle.design.messaging.PacketCompressor;
+import org.doodle.design.messaging.PacketIdleTracker;
+import org.doodle.design.messaging.PacketMetadata;
+import org.doodle.design.messaging.PacketPriorities;
+import org.doodle.design.messaging.PacketRequester;
+import org.doodle.design.messaging.PacketSession;
+import org.doodle.design.messaging.PacketSessionRegistry;
+import org.doodle.design.messaging.PacketSocket;
+import org.doodle.design.messaging.PacketStrategies;
+import org.doodle.design.messaging.PrioritizedPacketSocket;
+import org.doodle.design.messaging.metrics.PacketMetrics;
+import org.doodle.design.messaging.reactive.PacketMappingMessageHandler;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.scheduler.Schedulers;
+
+@Getter
+@Setter
+public abstract class NettyPacketTransport {
+  static final String FRAME_DECODER_NAME = "packetFrameDecoder";
+  static final String FRAME_ENCODER_NAME = "packetFrameEncoder";
+  static final String COMPRESSION_HANDLER_NAME = "packetCompression";
+  static final String HANDLER_NAME = "packetHandler";
+
+  private String host = "0.0.0.0";
+  private int port;
+  private boolean preferNative = true;
+  private int workerThreads;
+  private int maxFrameLength = 1 << 20;
+  private int receiveBufferSize;
+  private int sendBufferSize;
+  private int writeBufferLowWaterMark = WriteBufferWaterMark.DEFAULT.low();
+  private int writeBufferHighWaterMark = WriteBufferWaterMark.DEFAULT.high();
+  private boolean tcpNoDelay = true;
+  private ByteBufAllocator allocator = PooledByteBufAllocator.DEFAULT;
+  private PacketStrategies strategies = PacketStrategies.builder().build();
+  private MimeType dataMimeType = MimeTypeUtils.APPLICATION_OCTET_STREAM;
+  private Duration timeout = DefaultPacketRequester.DEFAULT_TIMEOUT;
+  @Nullable private PacketMappingMessageHandler messageHandler;
+  @Nullable private PacketMetrics metrics;
+  @Nullable private PacketIdleTracker idleTracker;
+  private int sessionCapacity;
+  private Duration sessionRetention = Duration.ofMinutes(1);
+  private Duration sessionHandshakeTimeout = Duration.ofSeconds(10);
+  @Nullable private PacketPriorities priorities;
+  private long bulkBytesPerSecond;
+  private int bulkBurstBytes = 64 * 1024;
+  private int compressionThreshold;
+  private int compressionLevel = Deflater.BEST_SPEED;
+  @Nullable private Consumer<PacketRequester> onConnect;
+
+  protected NettyDataBufferFactory dataBufferFactory() {
+    return new NettyDataBufferFactory(this.allocator);
+  }
+
+  @Nullable
+  protected PacketMetrics metrics() {
+    if (Objects.nonNull(this.metrics)) {
+      return this.metrics;
+    }
+    return Objects.nonNull(this.messageHandler) ? this.messageHandler.getMetrics() : null;
+  }
+
+  protected PacketIdleTracker idleTracker() {
+    return Objects.nonNull(this.idleTracker) ? this.idleTracker : PacketIdleTracker.shared();
+  }
+
+  public boolean isSessionEnabled() {
+    return this.sessionCapacity > 0;
+  }
+
+  protected PacketSession createSession() {
+    return new PacketSession(this.allocator, this.sessionCapacity);
+  }
+
+  @Nullable
+  protected PacketSessionRegistry sessionRegistry() {
+    return null;
+  }
+
+  @Nullable
+  protected PacketPriorities priorities() {
+    if (Objects.nonNull(this.priorities)) {
+      return this.priorities;
+    }
+    if (Objects.nonNull(this.messageHandler) && !this.messageHandler.getPriorities().isEmpty()) {
+      return this.messageHandler.getPriorities();
+    }
+    return null;
+  }
+
+  protected DefaultPacketRequester createRequester(PacketSocket socket) {
+    PacketPriorities priorities = priorities();
+    if (Objects.nonNull(priorities) || this.bulkBytesPerSecond > 0) {
+      socket =
+          new PrioritizedPacketSocket(
+              socket,
+              Objects.nonNull(priorities) ? priorities : new PacketPriorities(),
+              this.bulkBytesPerSecond,
+              this.bulkBurstBytes,
+              Schedulers.parallel());
+    }
+    return new DefaultPacketRequester(
+        socket, this.dataMimeType, PacketMetadata.MIME_TYPE, this.strategies, this.timeout);
+  }
+
+  protected void initPipeline(ChannelPipeline pipeline) {
+    pipeline.addLast(FRAME_DECODER_NAME, new PacketFrameDecoder(this.maxFrameLength));
+    pipeline.addLast(FRAME_ENCODER_NAME, PacketFrameEncoder.INSTANCE);
+    pipeline.addLast(COMPRESSION_HANDLER_NAME, compressionHandler());
+    pipeline.addLast(HANDLER_NAME, new PacketChannelHandler(this));
+  }
+
+  protected PacketCompressionHandler compressionHandler() {
+    return new PacketCompressionHandler(
+        new PacketCompressor(this.compressionThreshold, this.compressionLevel, this.maxFrameLength),
+        metrics());
+  }
+
+  protected ChannelInitializer<Channel> channelInitializer() {
+    return new ChannelInitializer<Channel>() {
+      @Override
+      protected void initChannel(Channel channel) {
+        initPipeline(channel.pipeline());
+      }
+    };
+  }
+
+  protected Map<ChannelOption<?>, Object> channelOptions() {
+    Map<ChannelOption<?>, Object> options = new LinkedHashMap<>();
+    options.put(ChannelOption.ALLOCATOR, this.allocator);
+    options.put(ChannelOption.TCP_NODELAY, this.tcpNoDelay);
+    options.put(
+        ChannelOption.WRITE_BUFFER_WATER_MARK,
+        new WriteBufferWaterMark(this.writeBufferLowWaterMark, this.writeBufferHighWaterMark));
+    if (this.receiveBufferSize > 0) {
+      options.put(ChannelOption.SO_RCVBUF, this.receiveBufferSize);
+    }
+    if (this.sendBufferSize > 0) {
+      options.put(ChannelOption.SO_SNDBUF, this.sendBufferSize);
+    }
+    return options;
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.netty;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+final class NettyTransports {
+
+  private NettyTransports() {}
+
+  static boolean useEpoll(boolean preferNative) {
+    return preferNative && Epoll.isAvailable();
+  }
+
+  static EventLoopGroup eventLoopGroup(boolean preferNative, int threads, String name) {
+    DefaultThreadFactory threadFactory = new DefaultThreadFactory(name, true);
+    return useEpoll(preferNative)
+        ? new EpollEventLoopGroup(threads, threadFactory)
+        : new NioEventLoopGroup(threads, threadFactory);
+  }
+
+  static Class<? extends ServerSocketChannel> serverChannelClass(boolean preferNative) {
+    return useEpoll(preferNative) ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+  }
+
+  static Class<? extends SocketChannel> channelClass(boolean preferNative) {
+    return useEpoll(preferNative) ? EpollSocketChannel.class : NioSocketChannel.class;
+  }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.AttributeKey;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.doodle.design.messaging.DefaultPacketRequester;
+import org.doodle.design.messaging.PacketMetadata;
+import org.doodle.design.messaging.PacketPayload;
+import org.doodle.design.messaging.PacketRequester;
+import org.doodle.design.messaging.PacketSession;
+import org.doodle.design.messaging.PacketSessionRegistry;
+import org.doodle.design.messaging.PacketSocket;
+import org.doodle.design.messaging.metrics.MeteredPacketSocket;
+import org.doodle.design.messaging.metrics.PacketMetrics;
+import org.doodle.design.messaging.reactive.PacketInboundDispatcher;
+import org.springframework.lang.Nullable;
+
+@Slf4j
+public class PacketChannelHandler extends ChannelInboundHandlerAdapter {
+  static final AttributeKey<DefaultPacketRequester> SESSION_REQUESTER =
+      AttributeKey.valueOf("packetSessionRequester");
+
+  private final NettyPacketTransport transport;
+  private final PacketInboundDispatcher dispatcher;
+  @Nullable private final PacketMetrics metrics;
+  @Nullable private NettyPacketSocket socket;
+  @Nullable private DefaultPacketRequester requester;
+  @Nullable private PacketSocket channelSocket;
+  @Nullable private PacketSession session;
+
+  public PacketChannelHandler(NettyPacketTransport transport) {
+    this.transport = Objects.requireNonNull(transport);
+    this.metrics = transport.metrics();
+    this.dispatcher = new PacketInboundDispatcher(transport.dataBufferFactory(), this.metrics);
+  }
+
+  @Nullable
+  public DefaultPacketRequester requester() {
+    return this.requester;
+  }
+
+  @Override
+  public void handlerAdded(ChannelHandlerContext ctx) {
+    this.socket = new NettyPacketSocket(ctx.channel(), this.transport.idleTracker());
+    this.channelSocket =
+        Objects.nonNull(this.metrics)
+            ? new MeteredPacketSocket(this.socket, this.metrics)
+            : this.socket;
+    if (!this.transport.isSessionEnabled()) {
+      this.requester = this.transport.createRequester(this.channelSocket);
+      return;
+    }
+    DefaultPacketRequester sessionRequester = ctx.channel().attr(SESSION_REQUESTER).get();
+    if (Objects.nonNull(sessionRequester)) {
+      this.requester = sessionRequester;
+      this.session = PacketSessionRegistry.session(sessionRequester);
+    } else {
+      this.session = this.transport.createSession();
+      this.requester = this.transport.createRequester(this.session);
+    }
+  }
+
+  @Override
+  public void channelActive(ChannelHandlerContext ctx) throws Exception {
+    if (Objects.nonNull(this.session)) {
+      if (Objects.isNull(this.transport.sessionRegistry())) {
+        this.session.handshake(Objects.requireNonNull(this.channelSocket));
+      }
+      ctx.executor()
+          .schedule(
+              () -> handshakeTimedOut(ctx),
+              this.transport.getSessionHandshakeTimeout().toNanos(),
+              TimeUnit.NANOSECONDS);
+    }
+    if (Objects.isNull(this.session)
+        || (Objects.isNull(this.transport.sessionRegistry())
+            && Objects.isNull(ctx.channel().attr(SESSION_REQUESTER).get()))) {
+      Consumer<PacketRequester> onConnect = this.transport.getOnConnect();
+      if (Objects.nonNull(onConnect)) {
+        onConnect.accept(this.requester);
+      }
+    }
+    super.channelActive(ctx);
+  }
+
+  protected void handshakeTimedOut(ChannelHandlerContext ctx) {
+    PacketSession session = this.session;
+    if (!ctx.channel().isActive()
+        || Objects.isNull(session)
+        || !session.attachPlain(Objects.requireNonNull(this.channelSocket))) {
+      return;
+    }
+    log.debug("Packet session handshake timed out on {}, continuing without resume", ctx.channel());
+    if (Objects.nonNull(this.transport.sessionRegistry())) {
+      Consumer<PacketRequester> onConnect = this.transport.getOnConnect();
+      if (Objects.nonNull(onConnect)) {
+        onConnect.accept(this.requester);
+      }
+    }
+  }
+
+  @Override
+  public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+    PacketSession session = this.session;
+    DefaultPacketRequester requester = this.requester;
+    if (Objects.nonNull(session) && Objects.nonNull(requester)) {
+      session.detach(Objects.requireNonNull(this.channelSocket));
+      PacketSessionRegistry registry = this.transport.sessionRegistry();
+      if (Objects.nonNull(registry)) {
+        if (session.id() != 0L) {
+          registry.detached(requester);
+        } else {
+          requester.dispose();
+        }
+      }
+    } else if (Objects.nonNull(requester)) {
+      requester.correlator().dispose();
+    }
+    super.channelInactive(ctx);
+  }
+
+  @Override
+  public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+    if (!(msg instanceof PacketPayload)) {
+      super.channelRead(ctx, msg);
+      return;
+    }
+    PacketPayload payload = (PacketPayload) msg;
+    if (Objects.nonNull(this.socket)) {
+      this.socket.markRead();
+    }
+    PacketMetadata metadata = this.dispatcher.read(ctx.channel(), payload);
+    if (Objects.isNull(metadata)) {
+      return;
+    }
+    try {
+      PacketSession session = this.session;
+      if (Objects.nonNull(session)) {
+        if (metadata.hasFlag(PacketMetadata.FLAG_RESUME)) {
+          try {
+            resume(session, metadata, payload);
+          } finally {
+            payload.release();
+          }
+          return;
+        }
+        if (!session.receive(metadata)) {
+          payload.release();
+          return;
+        }
+      }
+      this.dispatcher.dispatch(
+          metadata,
+          payload,
+          Objects.requireNonNull(this.requester),
+          this.transport.getMessageHandler());
+    } finally {
+      metadata.clear();
+    }
+  }
+
+  protected void resume(PacketSession session, PacketMetadata metadata, PacketPayload payload) {
+    if (session.isPlain()) {
+      log.debug("Ignoring late packet session handshake on {}", this.channelSocket);
+      return;
+    }
+    PacketSocket channelSocket = Objects.requireNonNull(this.channelSocket);
+    ByteBuf data = payload.data();
+    long id = data.readableBytes() >= Long.BYTES ? data.getLong(data.readerIndex()) : 0L;
+    int peerLastReceived = metadata.sequence();
+    PacketSessionRegistry registry = this.transport.sessionRegistry();
+    if (Objects.isNull(registry)) {
+      if (session.id() != 0L && session.id() != id) {
+        session.reset();
+      }
+      session.setId(id);
+      if (!session.resume(channelSocket, peerLastReceived, false)) {
+        log.warn("Failed to resume packet session {} on {}", id, channelSocket);
+        channelSocket.dispose();
+      }
+      return;
+    }
+    DefaultPacketRequester requester = Objects.requireNonNull(this.requester);
+    PacketRequester existing = id != 0L ? registry.get(id) : null;
+    if (Objects.nonNull(existing) && existing != requester) {
+      PacketSession existingSession = PacketSessionRegistry.session(existing);
+      if (existingSession.resume(channelSocket, peerLastReceived, true)) {
+        requester.dispose();
+        this.requester = (DefaultPacketRequester) existing;
+        this.session = existingSession;
+        return;
+      }
+      if (registry.remove(id, existing)) {
+        existing.dispose();
+      }
+    }
+    if (session.id() == 0L) {
+      registry.register(requester);
+    }
+    session.resume(channelSocket, 0, true);
+    Consumer<PacketRequester> onConnect = this.transport.getOnConnect();
+    if (Objects.nonNull(onConnect)) {
+      onConnect.accept(requester);
+    }
+  }
+
+  @Override
+  public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+    if (Objects.nonNull(this.socket)) {
+      this.socket.fireWritabilityChanged();
+    }
+    super.channelWritabilityChanged(ctx);
+  }
+
+  @Override
+  public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+    log.warn("Closing packet channel {}", ctx.channel(), cause);
+    ctx.close();
+  }
+}
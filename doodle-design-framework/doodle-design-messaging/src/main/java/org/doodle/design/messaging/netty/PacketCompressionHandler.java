@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.CorruptedFrameException;
+import java.util.Objects;
+import java.util.zip.DataFormatException;
+import org.doodle.design.messaging.PacketCompressor;
+import org.doodle.design.messaging.PacketMetadata;
+import org.doodle.design.messaging.PacketPayload;
+import org.doodle.design.messaging.metrics.PacketMetrics;
+import org.springframework.lang.Nullable;
+
+@ChannelHandler.Sharable
+public class PacketCompressionHandler extends ChannelDuplexHandler {
+  private final PacketCompressor compressor;
+  @Nullable private final PacketMetrics metrics;
+
+  public PacketCompressionHandler(PacketCompressor compressor, @Nullable PacketMetrics metrics) {
+    this.compressor = Objects.requireNonNull(compressor);
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+    if (!(msg instanceof PacketPayload) || !isCompressed((PacketPayload) msg)) {
+      ctx.fireChannelRead(msg);
+      return;
+    }
+    PacketPayload payload = (PacketPayload) msg;
+    PacketPayload decompressed;
+    long start = System.nanoTime();
+    try {
+      decompressed = this.compressor.decompress(ctx.alloc(), payload);
+    } catch (DataFormatException ex) {
+      throw new CorruptedFrameException("Failed to decompress packet", ex);
+    } finally {
+      payload.release();
+    }
+    if (Objects.nonNull(this.metrics)) {
+      this.metrics.recordDecompression(group(decompressed), System.nanoTime() - start);
+    }
+    ctx.fireChannelRead(decompressed);
+  }
+
+  @Override
+  public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise)
+      throws Exception {
+    if (!(msg instanceof PacketPayload) || !this.compressor.isEnabled()) {
+      ctx.write(msg, promise);
+      return;
+    }
+    PacketPayload payload = (PacketPayload) msg;
+    int length = payload.data().readableBytes();
+    if (length < this.compressor.threshold()) {
+      ctx.write(msg, promise);
+      return;
+    }
+    long start = System.nanoTime();
+    PacketPayload compressed = this.compressor.compress(ctx.alloc(), payload);
+    if (Objects.nonNull(this.metrics)) {
+      this.metrics.recordCompression(
+          group(payload),
+          length,
+          Objects.nonNull(compressed) ? compressed.data().readableBytes() : 0,
+          System.nanoTime() - start);
+    }
+    if (Objects.isNull(compressed)) {
+      ctx.write(payload, promise);
+      return;
+    }
+    payload.release();
+    ctx.write(compressed, promise);
+  }
+
+  private static boolean isCompressed(PacketPayload payload) {
+    if (!payload.hasMetadata()) {
+      return false;
+    }
+    ByteBuf metadata = payload.metadata();
+    return metadata.readableBytes() >= PacketMetadata.HEADER_LENGTH
+        && (metadata.getShort(metadata.readerIndex() + PacketMetadata.FLAGS_OFFSET)
+                & PacketMetadata.FLAG_COMPRESSED)
+            != 0;
+  }
+
+  private static short group(PacketPayload payload) {
+    ByteBuf metadata = payload.metadata();
+    return metadata.readableBytes() >= PacketMetadata.HEADER_LENGTH
+        ? metadata.getShort(metadata.readerIndex() + PacketMetadata.GROUP_OFFSET)
+        : 0;
+  }
+}
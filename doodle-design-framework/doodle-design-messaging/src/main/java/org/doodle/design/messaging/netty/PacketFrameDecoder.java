@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import java.util.Objects;
+import org.doodle.design.messaging.ByteBufPacketPayload;
+
+public class PacketFrameDecoder extends LengthFieldBasedFrameDecoder {
+  public static final int LENGTH_FIELD_LENGTH = 4;
+  public static final int METADATA_LENGTH_FIELD_LENGTH = 2;
+
+  public PacketFrameDecoder(int maxFrameLength) {
+    super(maxFrameLength, 0, LENGTH_FIELD_LENGTH, 0, LENGTH_FIELD_LENGTH);
+  }
+
+  @Override
+  protected Object decode(ChannelHandlerContext ctx, ByteBuf in) throws Exception {
+    ByteBuf frame = (ByteBuf) super.decode(ctx, in);
+    if (Objects.isNull(frame)) {
+      return null;
+    }
+    if (frame.readableBytes() < METADATA_LENGTH_FIELD_LENGTH) {
+      frame.release();
+      throw new CorruptedFrameException("Packet frame too short: " + frame.readableBytes());
+    }
+    int metadataLength = frame.readUnsignedShort();
+    if (metadataLength > frame.readableBytes()) {
+      frame.release();
+      throw new CorruptedFrameException(
+          "Packet metadata length " + metadataLength + " exceeds frame " + frame.readableBytes());
+    }
+    return ByteBufPacketPayload.slice(frame, metadataLength);
+  }
+}
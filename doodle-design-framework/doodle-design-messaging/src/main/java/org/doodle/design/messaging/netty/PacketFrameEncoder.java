@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.netty;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.MessageToMessageEncoder;
+import java.util.List;
+import org.doodle.design.messaging.PacketPayload;
+
+@ChannelHandler.Sharable
+public class PacketFrameEncoder extends MessageToMessageEncoder<PacketPayload> {
+  public static final PacketFrameEncoder INSTANCE = new PacketFrameEncoder();
+
+  private static final int MAX_METADATA_LENGTH = 0xFFFF;
+
+  @Override
+  protected void encode(ChannelHandlerContext ctx, PacketPayload payload, List<Object> out) {
+    ByteBuf metadata = payload.metadata();
+    ByteBuf data = payload.data();
+    int metadataLength = metadata.readableBytes();
+    if (metadataLength > MAX_METADATA_LENGTH) {
+      throw new EncoderException("Packet metadata too large: " + metadataLength);
+    }
+    int frameLength =
+        PacketFrameDecoder.METADATA_LENGTH_FIELD_LENGTH + metadataLength + data.readableBytes();
+    ByteBuf header =
+        ctx.alloc()
+            .ioBuffer(
+                PacketFrameDecoder.LENGTH_FIELD_LENGTH
+                    + PacketFrameDecoder.METADATA_LENGTH_FIELD_LENGTH);
+    header.writeInt(frameLength).writeShort(metadataLength);
+    out.add(header);
+    if (metadataLength > 0) {
+      out.add(metadata.retainedSlice());
+    }
+    if (data.isReadable()) {
+      out.add(data.retainedSlice());
+    }
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.protobuf;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+
+public abstract class ProtobufPacketCodecSupport {
+  public static final MimeType PROTOBUF_MIME_TYPE = new MimeType("application", "x-protobuf");
+
+  static final List<MimeType> MIME_TYPES =
+      Collections.unmodifiableList(
+          Arrays.asList(
+              PROTOBUF_MIME_TYPE,
+              new MimeType("application", "octet-stream"),
+              new MimeType("application", "vnd.google.protobuf")));
+
+  protected boolean supportsMimeType(@Nullable MimeType mimeType) {
+    if (Objects.isNull(mimeType)) {
+      return true;
+    }
+    for (MimeType supported : MIME_TYPES) {
+      if (supported.isCompatibleWith(mimeType)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  protected List<MimeType> getMimeTypes() {
+    return MIME_TYPES;
+  }
+}
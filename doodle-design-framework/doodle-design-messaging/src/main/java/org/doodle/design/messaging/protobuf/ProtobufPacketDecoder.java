@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.protobuf;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
+import io.netty.buffer.ByteBuf;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Decoder;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class ProtobufPacketDecoder extends ProtobufPacketCodecSupport implements Decoder<Message> {
+  private final Map<Class<?>, Parser<? extends Message>> parsers = new ConcurrentHashMap<>();
+  private final ExtensionRegistryLite extensionRegistry;
+
+  public ProtobufPacketDecoder() {
+    this(ExtensionRegistryLite.getEmptyRegistry());
+  }
+
+  public ProtobufPacketDecoder(ExtensionRegistryLite extensionRegistry) {
+    this.extensionRegistry = Objects.requireNonNull(extensionRegistry);
+  }
+
+  @Override
+  public boolean canDecode(ResolvableType elementType, @Nullable MimeType mimeType) {
+    return Message.class.isAssignableFrom(elementType.toClass()) && supportsMimeType(mimeType);
+  }
+
+  @Override
+  public Flux<Message> decode(
+      Publisher<DataBuffer> inputStream,
+      ResolvableType elementType,
+      @Nullable MimeType mimeType,
+      @Nullable Map<String, Object> hints) {
+    return Flux.from(inputStream).map(buffer -> decode(buffer, elementType, mimeType, hints));
+  }
+
+  @Override
+  public Mono<Message> decodeToMono(
+      Publisher<DataBuffer> inputStream,
+      ResolvableType elementType,
+      @Nullable MimeType mimeType,
+      @Nullable Map<String, Object> hints) {
+    return DataBufferUtils.join(inputStream)
+        .map(buffer -> decode(buffer, elementType, mimeType, hints));
+  }
+
+  @Override
+  public Message decode(
+      DataBuffer buffer,
+      ResolvableType targetType,
+      @Nullable MimeType mimeType,
+      @Nullable Map<String, Object> hints)
+      throws DecodingException {
+    try {
+      Parser<? extends Message> parser = getParser(targetType.toClass());
+      return parser.parseFrom(codedInput(buffer), this.extensionRegistry);
+    } catch (IOException ex) {
+      throw new DecodingException("I/O error while parsing input stream", ex);
+    } finally {
+      DataBufferUtils.release(buffer);
+    }
+  }
+
+  protected CodedInputStream codedInput(DataBuffer buffer) {
+    if (buffer instanceof NettyDataBuffer) {
+      ByteBuf byteBuf = ((NettyDataBuffer) buffer).getNativeBuffer();
+      if (byteBuf.nioBufferCount() == 1) {
+        return CodedInputStream.newInstance(
+            byteBuf.nioBuffer(byteBuf.readerIndex(), byteBuf.readableBytes()));
+      }
+      return CodedInputStream.newInstance(
+          Arrays.asList(byteBuf.nioBuffers(byteBuf.readerIndex(), byteBuf.readableBytes())));
+    }
+    byte[] bytes = new byte[buffer.readableByteCount()];
+    buffer.read(bytes);
+    return CodedInputStream.newInstance(bytes);
+  }
+
+  @SuppressWarnings("unchecked")
+  protected Parser<? extends Message> getParser(Class<?> messageType) {
+    return this.parsers.computeIfAbsent(
+        messageType,
+        type -> {
+          try {
+            Method method = type.getMethod("getDefaultInstance");
+            return ((Message) method.invoke(type)).getParserForType();
+          } catch (ReflectiveOperationException ex) {
+            throw new DecodingException("Could not obtain protobuf parser for " + type, ex);
+          }
+        });
+  }
+
+  @Override
+  public List<MimeType> getDecodableMimeTypes() {
+    return getMimeTypes();
+  }
+}
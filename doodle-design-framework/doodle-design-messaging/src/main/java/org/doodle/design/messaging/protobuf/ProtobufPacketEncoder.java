@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.protobuf;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Message;
+import io.netty.buffer.ByteBuf;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+public class ProtobufPacketEncoder extends ProtobufPacketCodecSupport implements Encoder<Message> {
+
+  @Override
+  public boolean canEncode(ResolvableType elementType, @Nullable MimeType mimeType) {
+    return Message.class.isAssignableFrom(elementType.toClass()) && supportsMimeType(mimeType);
+  }
+
+  @Override
+  public Flux<DataBuffer> encode(
+      Publisher<? extends Message> inputStream,
+      DataBufferFactory bufferFactory,
+      ResolvableType elementType,
+      @Nullable MimeType mimeType,
+      @Nullable Map<String, Object> hints) {
+    return Flux.from(inputStream)
+        .map(message -> encodeValue(message, bufferFactory, elementType, mimeType, hints));
+  }
+
+  @Override
+  public DataBuffer encodeValue(
+      Message message,
+      DataBufferFactory bufferFactory,
+      ResolvableType valueType,
+      @Nullable MimeType mimeType,
+      @Nullable Map<String, Object> hints) {
+    int size = message.getSerializedSize();
+    DataBuffer buffer = bufferFactory.allocateBuffer(size);
+    try {
+      if (buffer instanceof NettyDataBuffer) {
+        ByteBuf byteBuf = ((NettyDataBuffer) buffer).getNativeBuffer();
+        byteBuf.ensureWritable(size);
+        CodedOutputStream output =
+            CodedOutputStream.newInstance(byteBuf.nioBuffer(byteBuf.writerIndex(), size));
+        message.writeTo(output);
+        output.checkNoSpaceLeft();
+        byteBuf.writerIndex(byteBuf.writerIndex() + size);
+      } else {
+        buffer.write(message.toByteArray());
+      }
+      return buffer;
+    } catch (IOException | RuntimeException ex) {
+      DataBufferUtils.release(buffer);
+      throw new EncodingException("Could not encode protobuf message " + message, ex);
+    }
+  }
+
+  @Override
+  public List<MimeType> getEncodableMimeTypes() {
+    return getMimeTypes();
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.reactive;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+public class BlockingPacketHandlerExecutor implements PacketHandlerExecutor, Disposable {
+  public static final int DEFAULT_MAX_CONCURRENCY = 256;
+
+  private final Scheduler scheduler;
+  @Nullable private final Semaphore gate;
+  private final Queue<Task> waiting = new ConcurrentLinkedQueue<>();
+
+  public BlockingPacketHandlerExecutor() {
+    this(DEFAULT_MAX_CONCURRENCY);
+  }
+
+  public BlockingPacketHandlerExecutor(int maxConcurrency) {
+    if (maxConcurrency <= 0) {
+      throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+    }
+    ExecutorService virtualThreads = newVirtualThreadExecutor();
+    if (Objects.nonNull(virtualThreads)) {
+      this.scheduler = Schedulers.fromExecutorService(virtualThreads, "packet-virtual");
+      this.gate = new Semaphore(maxConcurrency);
+    } else {
+      this.scheduler =
+          Schedulers.newBoundedElastic(
+              maxConcurrency, Integer.MAX_VALUE, "packet-blocking", 60, true);
+      this.gate = null;
+    }
+  }
+
+  public BlockingPacketHandlerExecutor(Scheduler scheduler) {
+    this.scheduler = Objects.requireNonNull(scheduler);
+    this.gate = null;
+  }
+
+  public BlockingPacketHandlerExecutor(Scheduler scheduler, int maxConcurrency) {
+    if (maxConcurrency <= 0) {
+      throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+    }
+    this.scheduler = Objects.requireNonNull(scheduler);
+    this.gate = new Semaphore(maxConcurrency);
+  }
+
+  @Nullable
+  private static ExecutorService newVirtualThreadExecutor() {
+    try {
+      return (ExecutorService)
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException | RuntimeException ex) {
+      return null;
+    }
+  }
+
+  public boolean isVirtual() {
+    return Objects.nonNull(this.gate);
+  }
+
+  public int waiting() {
+    return this.waiting.size();
+  }
+
+  @Override
+  public Mono<Void> execute(Message<?> message, Supplier<Mono<Void>> invocation) {
+    Semaphore gate = this.gate;
+    if (Objects.isNull(gate)) {
+      return Mono.defer(invocation).subscribeOn(this.scheduler);
+    }
+    return Mono.create(
+        sink -> {
+          Task task = new Task(invocation, sink);
+          if (gate.tryAcquire()) {
+            submit(task);
+            return;
+          }
+          this.waiting.offer(task);
+          if (gate.tryAcquire()) {
+            submitNextOrRelease();
+          }
+        });
+  }
+
+  // Permits are taken before a virtual thread is started, so at most maxConcurrency of them
+  // exist; everything else waits in the queue without a thread.
+  private void submit(Task task) {
+    try {
+      this.scheduler.schedule(() -> task.run(this::submitNextOrRelease));
+    } catch (RejectedExecutionException ex) {
+      task.sink.error(ex);
+      submitNextOrRelease();
+    }
+  }
+
+  private void submitNextOrRelease() {
+    Semaphore gate = this.gate;
+    while (true) {
+      Task next = this.waiting.poll();
+      if (Objects.nonNull(next)) {
+        submit(next);
+        return;
+      }
+      gate.release();
+      if (this.waiting.isEmpty() || !gate.tryAcquire()) {
+        return;
+      }
+    }
+  }
+
+  @Override
+  public void dispose() {
+    this.scheduler.dispose();
+  }
+
+  @Override
+  public boolean isDisposed() {
+    return this.scheduler.isDisposed();
+  }
+
+  private static final class Task {
+    private final Supplier<Mono<Void>> invocation;
+    private final MonoSink<Void> sink;
+
+    Task(Supplier<Mono<Void>> invocation, MonoSink<Void> sink) {
+      this.invocation = invocation;
+      this.sink = sink;
+    }
+
+    void run(Runnable done) {
+      Mono<Void> result;
+      try {
+        result = this.invocation.get();
+      } catch (Throwable ex) {
+        done.run();
+        this.sink.error(ex);
+        return;
+      }
+      result.subscribe(
+          null,
+          error -> {
+            done.run();
+            this.sink.error(error);
+          },
+          () -> {
+            done.run();
+            this.sink.success();
+          });
+    }
+  }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.reactive;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import org.springframework.core.BridgeMethodResolver;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ReactiveAdapter;
+import org.springframework.core.ReactiveAdapterRegistry;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.handler.HandlerMethod;
+import org.springframework.messaging.handler.invocation.reactive.HandlerMethodArgumentResolver;
+import org.springframework.messaging.handler.invocation.reactive.HandlerMethodArgumentResolverComposite;
+import org.springframework.messaging.handler.invocation.reactive.HandlerMethodReturnValueHandler;
+import reactor.core.Fuseable;
+import reactor.core.publisher.Mono;
+
+public final class PacketHandlerInvoker {
+  private static final Object NO_ARG_VALUE = new Object();
+  private static final Object[] EMPTY_ARGS = new Object[0];
+  private static final Class<?>[] INVOKERS = {
+    Invoker0.class, Invoker1.class, Invoker2.class, Invoker3.class
+  };
+  private static final Class<?>[] VOID_INVOKERS = {
+    VoidInvoker0.class, VoidInvoker1.class, VoidInvoker2.class, VoidInvoker3.class
+  };
+
+  private final HandlerMethod handlerMethod;
+  private final MethodParameter[] parameters;
+  private final HandlerMethodArgumentResolver[] resolvers;
+  private final MethodInvoker invoker;
+  private final HandlerMethodReturnValueHandler returnValueHandler;
+  @Nullable private final ReactiveAdapter asyncVoidAdapter;
+
+  private PacketHandlerInvoker(
+      HandlerMethod handlerMethod,
+      HandlerMethodArgumentResolver[] resolvers,
+      MethodInvoker invoker,
+      HandlerMethodReturnValueHandler returnValueHandler,
+      @Nullable ReactiveAdapter asyncVoidAdapter) {
+    this.handlerMethod = handlerMethod;
+    this.parameters = handlerMethod.getMethodParameters();
+    this.resolvers = resolvers;
+    this.invoker = invoker;
+    this.returnValueHandler = returnValueHandler;
+    this.asyncVoidAdapter = asyncVoidAdapter;
+  }
+
+  @Nullable
+  public static PacketHandlerInvoker create(
+      HandlerMethod handlerMethod,
+      HandlerMethodArgumentResolverComposite argumentResolvers,
+      List<? extends HandlerMethodReturnValueHandler> returnValueHandlers,
+      ReactiveAdapterRegistry adapterRegistry) {
+    MethodParameter[] parameters = handlerMethod.getMethodParameters();
+    HandlerMethodArgumentResolver[] resolvers =
+        new HandlerMethodArgumentResolver[parameters.length];
+    for (int i = 0; i < parameters.length; i++) {
+      resolvers[i] = argumentResolvers.getArgumentResolver(parameters[i]);
+      if (Objects.isNull(resolvers[i])) {
+        return null;
+      }
+    }
+    MethodParameter returnType = handlerMethod.getReturnType();
+    HandlerMethodReturnValueHandler returnValueHandler = null;
+    for (HandlerMethodReturnValueHandler candidate : returnValueHandlers) {
+      if (candidate.supportsReturnType(returnType)) {
+        returnValueHandler = candidate;
+        break;
+      }
+    }
+    if (Objects.isNull(returnValueHandler)) {
+      return null;
+    }
+    Method method = BridgeMethodResolver.findBridgedMethod(handlerMethod.getMethod());
+    MethodInvoker invoker = createInvoker(method);
+    if (Objects.isNull(invoker)) {
+      return null;
+    }
+    ReactiveAdapter adapter = adapterRegistry.getAdapter(method.getReturnType());
+    return new PacketHandlerInvoker(
+        handlerMethod,
+        resolvers,
+        invoker,
+        returnValueHandler,
+        isAsyncVoidReturnType(returnType, adapter) ? adapter : null);
+  }
+
+  public HandlerMethod getHandlerMethod() {
+    return this.handlerMethod;
+  }
+
+  public Mono<Void> invoke(Message<?> message) {
+    int count = this.parameters.length;
+    if (count == 0) {
+      return doInvoke(EMPTY_ARGS, message);
+    }
+    Object[] args = new Object[count];
+    Mono<?>[] pending = null;
+    for (int i = 0; i < count; i++) {
+      try {
+        Mono<Object> resolved = this.resolvers[i].resolveArgument(this.parameters[i], message);
+        if (resolved instanceof Fuseable.ScalarCallable) {
+          args[i] = ((Callable<?>) resolved).call();
+        } else {
+          if (Objects.isNull(pending)) {
+            pending = new Mono<?>[count];
+          }
+          pending[i] = resolved.defaultIfEmpty(NO_ARG_VALUE);
+        }
+      } catch (Throwable ex) {
+        return Mono.error(ex);
+      }
+    }
+    if (Objects.isNull(pending)) {
+      return doInvoke(args, message);
+    }
+    List<Mono<?>> sources = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      sources.add(
+          Objects.nonNull(pending[i])
+              ? pending[i]
+              : Mono.just(Objects.nonNull(args[i]) ? args[i] : NO_ARG_VALUE));
+    }
+    return Mono.zip(
+            sources,
+            values -> {
+              for (int i = 0; i < count; i++) {
+                args[i] = values[i] == NO_ARG_VALUE ? null : values[i];
+              }
+              return args;
+            })
+        .flatMap(resolvedArgs -> doInvoke(resolvedArgs, message));
+  }
+
+  private Mono<Void> doInvoke(Object[] args, Message<?> message) {
+    Object returnValue;
+    try {
+      returnValue = this.invoker.invoke(this.handlerMethod.getBean(), args);
+    } catch (Throwable ex) {
+      return Mono.error(ex);
+    }
+    MethodParameter returnType = this.handlerMethod.getReturnType();
+    if (Objects.nonNull(this.asyncVoidAdapter)) {
+      return Mono.from(this.asyncVoidAdapter.toPublisher(returnValue))
+          .then(
+              Mono.defer(
+                  () -> this.returnValueHandler.handleReturnValue(null, returnType, message)));
+    }
+    return this.returnValueHandler.handleReturnValue(returnValue, returnType, message);
+  }
+
+  private static boolean isAsyncVoidReturnType(
+      MethodParameter returnType, @Nullable ReactiveAdapter adapter) {
+    if (Objects.isNull(adapter) || !adapter.supportsEmpty()) {
+      return false;
+    }
+    if (adapter.isNoValue()) {
+      return true;
+    }
+    Type type = returnType.getGenericParameterType();
+    return type instanceof ParameterizedType
+        && ((ParameterizedType) type).getActualTypeArguments().length == 1
+        && Void.class.equals(((ParameterizedType) type).getActualTypeArguments()[0]);
+  }
+
+  @Nullable
+  private static MethodInvoker createInvoker(Method method) {
+    if (Modifier.isStatic(method.getModifiers())) {
+      return null;
+    }
+    MethodHandle handle;
+    MethodHandles.Lookup lookup;
+    try {
+      lookup = MethodHandles.privateLookupIn(method.getDeclaringClass(), MethodHandles.lookup());
+      handle = lookup.unreflect(method);
+    } catch (IllegalAccessException | RuntimeException ex) {
+      return null;
+    }
+    int arity = method.getParameterCount();
+    if (arity < INVOKERS.length) {
+      try {
+        return createLambdaInvoker(lookup, handle, arity);
+      } catch (Throwable ignored) {
+        // Hidden classes may not be definable for this target; use the spreader instead.
+      }
+    }
+    MethodHandle spreader =
+        handle
+            .asType(MethodType.genericMethodType(arity + 1))
+            .asSpreader(Object[].class, arity)
+            .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+    return (target, args) -> spreader.invokeExact(target, args);
+  }
+
+  private static MethodInvoker createLambdaInvoker(
+      MethodHandles.Lookup lookup, MethodHandle handle, int arity) throws Throwable {
+    boolean isVoid = handle.type().returnType() == void.class;
+    Class<?> samType = isVoid ? VOID_INVOKERS[arity] : INVOKERS[arity];
+    MethodType erased =
+        MethodType.genericMethodType(arity + 1)
+            .changeReturnType(isVoid ? void.class : Object.class);
+    MethodType instantiated = handle.type().wrap();
+    if (isVoid) {
+      instantiated = instantiated.changeReturnType(void.class);
+    }
+    Object target =
+        LambdaMetafactory.metafactory(
+                lookup, "invoke", MethodType.methodType(samType), erased, handle, instantiated)
+            .getTarget()
+            .invoke();
+    switch (arity) {
+      case 0:
+        if (isVoid) {
+          VoidInvoker0 invoker = (VoidInvoker0) target;
+          return (bean, args) -> {
+            invoker.invoke(bean);
+            return null;
+          };
+        }
+        Invoker0 invoker0 = (Invoker0) target;
+        return (bean, args) -> invoker0.invoke(bean);
+      case 1:
+        if (isVoid) {
+          VoidInvoker1 invoker = (VoidInvoker1) target;
+          return (bean, args) -> {
+            invoker.invoke(bean, args[0]);
+            return null;
+          };
+        }
+        Invoker1 invoker1 = (Invoker1) target;
+        return (bean, args) -> invoker1.invoke(bean, args[0]);
+      case 2:
+        if (isVoid) {
+          VoidInvoker2 invoker = (VoidInvoker2) target;
+          return (bean, args) -> {
+            invoker.invoke(bean, args[0], args[1]);
+            return null;
+          };
+        }
+        Invoker2 invoker2 = (Invoker2) target;
+        return (bean, args) -> invoker2.invoke(bean, args[0], args[1]);
+      default:
+        if (isVoid) {
+          VoidInvoker3 invoker = (VoidInvoker3) target;
+          return (bean, args) -> {
+            invoker.invoke(bean, args[0], args[1], args[2]);
+            return null;
+          };
+        }
+        Invoker3 invoker3 = (Invoker3) target;
+        return (bean, args) -> invoker3.invoke(bean, args[0], args[1], args[2]);
+    }
+  }
+
+  @FunctionalInterface
+  interface MethodInvoker {
+    @Nullable
+    Object invoke(Object bean, Object[] args) throws Throwable;
+  }
+
+  public interface Invoker0 {
+    Object invoke(Object bean);
+  }
+
+  public interface Invoker1 {
+    Object invoke(Object bean, Object arg0);
+  }
+
+  public interface Invoker2 {
+    Object invoke(Object bean, Object arg0, Object arg1);
+  }
+
+  public interface Invoker3 {
+    Object invoke(Object bean, Object arg0, Object arg1, Object arg2);
+  }
+
+  public interface VoidInvoker0 {
+    void invoke(Object bean);
+  }
+
+  public interface VoidInvoker1 {
+    void invoke(Object bean, Object arg0);
+  }
+
+  public interface VoidInvoker2 {
+    void invoke(Object bean, Object arg0, Object arg1);
+  }
+
+  public interface VoidInvoker3 {
+    void invoke(Object bean, Object arg0, Object arg1, Object arg2);
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.reactive;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import lombok.extern.slf4j.Slf4j;
+import org.doodle.design.messaging.BinaryPacketMetadataExtractor;
+import org.doodle.design.messaging.DefaultPacketRequester;
+import org.doodle.design.messaging.PacketMetadata;
+import org.doodle.design.messaging.PacketMetadataExtractor;
+import org.doodle.design.messaging.PacketPayload;
+import org.doodle.design.messaging.metrics.PacketMetrics;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.handler.invocation.reactive.HandlerMethodReturnValueHandler;
+
+@Slf4j
+public class PacketInboundDispatcher {
+  private final BinaryPacketMetadataExtractor extractor = new BinaryPacketMetadataExtractor();
+  private final PacketMetadata metadata = new PacketMetadata();
+  private final NettyDataBufferFactory dataBufferFactory;
+  @Nullable private final PacketMetrics metrics;
+
+  public PacketInboundDispatcher(
+      NettyDataBufferFactory dataBufferFactory, @Nullable PacketMetrics metrics) {
+    this.dataBufferFactory = Objects.requireNonNull(dataBufferFactory);
+    this.metrics = metrics;
+  }
+
+  public void receive(
+      Object source,
+      PacketPayload payload,
+      DefaultPacketRequester requester,
+      @Nullable PacketMappingMessageHandler messageHandler) {
+    PacketMetadata metadata = read(source, payload);
+    if (Objects.isNull(metadata)) {
+      return;
+    }
+    try {
+      dispatch(metadata, payload, requester, messageHandler);
+    } finally {
+      metadata.clear();
+    }
+  }
+
+  @Nullable
+  public PacketMetadata read(Object source, PacketPayload payload) {
+    if (!payload.hasMetadata()) {
+      log.warn("Dropping packet without metadata from {}", source);
+      payload.release();
+      return null;
+    }
+    PacketMetadata metadata;
+    try {
+      metadata = this.extractor.extract(payload, this.metadata);
+    } catch (IllegalArgumentException ex) {
+      log.warn("Dropping packet with invalid metadata from {}", source, ex);
+      payload.release();
+      return null;
+    }
+    if (Objects.nonNull(this.metrics)) {
+      this.metrics.recordInbound(
+          metadata.group(), payload.data().readableBytes() + payload.metadata().readableBytes());
+    }
+    return metadata;
+  }
+
+  public void dispatch(
+      PacketMetadata metadata,
+      PacketPayload payload,
+      DefaultPacketRequester requester,
+      @Nullable PacketMappingMessageHandler messageHandler) {
+    if (requester.handleReply(metadata, payload)) {
+      return;
+    }
+    short group = metadata.group();
+    short cmd = metadata.cmd();
+    if (Objects.isNull(messageHandler)) {
+      payload.release();
+      return;
+    }
+    MessageHeaders headers;
+    DataBuffer dataBuffer;
+    try {
+      headers = headers(metadata, requester);
+      dataBuffer = this.dataBufferFactory.wrap(payload.data().retain());
+    } finally {
+      payload.release();
+    }
+    messageHandler
+        .handlePacket(group, cmd, dataBuffer, headers)
+        .subscribe(null, error -> log.error("Failed to handle packet {}.{}", group, cmd, error));
+  }
+
+  protected MessageHeaders headers(PacketMetadata metadata, DefaultPacketRequester requester) {
+    Map<String, Object> headers = new HashMap<>(8);
+    headers.put(PacketRequesterMethodArgumentResolver.PACKET_REQUESTER_HEADER, requester);
+    headers.put(HandlerMethodReturnValueHandler.DATA_BUFFER_FACTORY_HEADER, this.dataBufferFactory);
+    headers.put(MessageHeaders.CONTENT_TYPE, requester.dataMimeType());
+    headers.put(PacketPayloadClaim.PACKET_PAYLOAD_CLAIM_HEADER, new PacketPayloadClaim());
+    if (metadata.hasCorrelationId()) {
+      headers.put(PacketMetadataExtractor.CORRELATION_ID_KEY, metadata.correlationId());
+    }
+    return new MessageHeaders(headers);
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.reactive;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.springframework.messaging.Message;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+public class PacketMailboxExecutor implements PacketHandlerExecutor, Disposable {
+  private static final Object NO_KEY = new Object();
+
+  private final Scheduler[] workers;
+  private final Function<Message<?>, Object> keyResolver;
+  private final ConcurrentMap<Object, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+  public PacketMailboxExecutor(int workerCount) {
+    this(workerCount, PacketMailboxExecutor::requesterKey);
+  }
+
+  public PacketMailboxExecutor(int workerCount, Function<Message<?>, Object> keyResolver) {
+    if (workerCount <= 0) {
+      throw new IllegalArgumentException("workerCount must be positive: " + workerCount);
+    }
+    this.workers = new Scheduler[workerCount];
+    for (int i = 0; i < workerCount; i++) {
+      this.workers[i] = Schedulers.newSingle("packet-mailbox-" + i, true);
+    }
+    this.keyResolver = Objects.requireNonNull(keyResolver);
+  }
+
+  static Object requesterKey(Message<?> message) {
+    Object requester =
+        message.getHeaders().get(PacketRequesterMethodArgumentResolver.PACKET_REQUESTER_HEADER);
+    return Objects.nonNull(requester) ? requester : NO_KEY;
+  }
+
+  @Override
+  public Mono<Void> execute(Message<?> message, Supplier<Mono<Void>> invocation) {
+    Object key = this.keyResolver.apply(message);
+    return Mono.create(
+        sink -> {
+          Task task = new Task(invocation, sink);
+          Mailbox mailbox =
+              this.mailboxes.compute(
+                  key,
+                  (k, existing) -> {
+                    Mailbox target = Objects.nonNull(existing) ? existing : new Mailbox(k);
+                    target.offer(task);
+                    return target;
+                  });
+          mailbox.schedule();
+        });
+  }
+
+  protected Scheduler worker(Object key) {
+    return this.workers[Math.floorMod(key.hashCode(), this.workers.length)];
+  }
+
+  public int mailboxCount() {
+    return this.mailboxes.size();
+  }
+
+  public int queueDepth(Object key) {
+    Mailbox mailbox = this.mailboxes.get(key);
+    return Objects.nonNull(mailbox) ? mailbox.depth.get() : 0;
+  }
+
+  public long totalQueueDepth() {
+    long total = 0;
+    for (Mailbox mailbox : this.mailboxes.values()) {
+      total += mailbox.depth.get();
+    }
+    return total;
+  }
+
+  public Map<Object, Integer> queueDepths() {
+    Map<Object, Integer> depths = new HashMap<>();
+    this.mailboxes.forEach((key, mailbox) -> depths.put(key, mailbox.depth.get()));
+    return Collections.unmodifiableMap(depths);
+  }
+
+  @Override
+  public void dispose() {
+    for (Scheduler worker : this.workers) {
+      worker.dispose();
+    }
+  }
+
+  @Override
+  public boolean isDisposed() {
+    return this.workers[0].isDisposed();
+  }
+
+  private final class Mailbox implements Runnable {
+    private final Object key;
+    private final Scheduler worker;
+    private final Queue<Task> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicBoolean active = new AtomicBoolean();
+    private final Runnable done = this::reschedule;
+
+    Mailbox(Object key) {
+      this.key = key;
+      this.worker = worker(key);
+    }
+
+    void offer(Task task) {
+      this.queue.offer(task);
+      this.depth.incrementAndGet();
+    }
+
+    void schedule() {
+      if (this.active.compareAndSet(false, true)) {
+        this.worker.schedule(this);
+      }
+    }
+
+    void reschedule() {
+      this.active.set(false);
+      if (!this.queue.isEmpty()) {
+        schedule();
+      } else {
+        mailboxes.computeIfPresent(
+            this.key,
+            (k, mailbox) -> mailbox.queue.isEmpty() && !mailbox.active.get() ? null : mailbox);
+      }
+    }
+
+    @Override
+    public void run() {
+      Task task = this.queue.poll();
+      if (Objects.isNull(task)) {
+        reschedule();
+        return;
+      }
+      this.depth.decrementAndGet();
+      task.run(this.done);
+    }
+  }
+
+  private static final class Task {
+    private final Supplier<Mono<Void>> invocation;
+    private final MonoSink<Void> sink;
+
+    Task(Supplier<Mono<Void>> invocation, MonoSink<Void> sink) {
+      this.invocation = invocation;
+      this.sink = sink;
+    }
+
+    void run(Runnable next) {
+      Mono<Void> result;
+      try {
+        result = this.invocation.get();
+      } catch (Throwable ex) {
+        this.sink.error(ex);
+        next.run();
+        return;
+      }
+      result.subscribe(
+          null,
+          error -> {
+            this.sink.error(error);
+            next.run();
+          },
+          () -> {
+            this.sink.success();
+            next.run();
+          });
+    }
+  }
+}
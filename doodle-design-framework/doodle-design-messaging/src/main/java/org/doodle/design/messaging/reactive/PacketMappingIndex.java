@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.reactive;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.*;
+import org.springframework.core.io.UrlResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.ReflectionUtils;
+
+public final class PacketMappingIndex {
+  public static final String INDEX_LOCATION = "META-INF/doodle.packet-mappings";
+
+  private final MultiValueMap<String, Entry> entries = new LinkedMultiValueMap<>();
+
+  private PacketMappingIndex(List<Properties> indexes) {
+    for (Properties index : indexes) {
+      for (String route : index.stringPropertyNames()) {
+        Entry entry = new Entry(route, index.getProperty(route));
+        this.entries.add(entry.className, entry);
+      }
+    }
+  }
+
+  @Nullable
+  public static PacketMappingIndex load(@Nullable ClassLoader classLoader) {
+    ClassLoader loader =
+        Objects.nonNull(classLoader) ? classLoader : ClassUtils.getDefaultClassLoader();
+    try {
+      Enumeration<URL> urls =
+          Objects.nonNull(loader)
+              ? loader.getResources(INDEX_LOCATION)
+              : ClassLoader.getSystemResources(INDEX_LOCATION);
+      List<Properties> indexes = new ArrayList<>();
+      while (urls.hasMoreElements()) {
+        indexes.add(PropertiesLoaderUtils.loadProperties(new UrlResource(urls.nextElement())));
+      }
+      return indexes.isEmpty() ? null : new PacketMappingIndex(indexes);
+    } catch (IOException ex) {
+      throw new IllegalStateException(
+          "Unable to load packet mapping index from location [" + INDEX_LOCATION + "]", ex);
+    }
+  }
+
+  public Set<String> getTypeNames() {
+    return Collections.unmodifiableSet(this.entries.keySet());
+  }
+
+  public boolean contains(Class<?> type) {
+    return this.entries.containsKey(type.getName());
+  }
+
+  public Map<Method, String> getMappings(Class<?> type) {
+    List<Entry> typeEntries = this.entries.getOrDefault(type.getName(), Collections.emptyList());
+    Map<Method, String> mappings = new LinkedHashMap<>(typeEntries.size());
+    for (Entry entry : typeEntries) {
+      mappings.put(entry.resolve(type), entry.route);
+    }
+    return mappings;
+  }
+
+  private static final class Entry {
+    final String route;
+    final String className;
+    final String methodName;
+    final String[] parameterTypes;
+
+    Entry(String route, String target) {
+      int methodIndex = target.indexOf('#');
+      int parametersIndex = target.indexOf('(', methodIndex);
+      Assert.state(
+          methodIndex > 0 && parametersIndex > methodIndex && target.endsWith(")"),
+          () -> "Malformed packet mapping index entry '" + route + "=" + target + "'");
+      this.route = route;
+      this.className = target.substring(0, methodIndex);
+      this.methodName = target.substring(methodIndex + 1, parametersIndex);
+      String parameters = target.substring(parametersIndex + 1, target.length() - 1);
+      this.parameterTypes = parameters.isEmpty() ? new String[0] : parameters.split(",");
+    }
+
+    Method resolve(Class<?> type) {
+      Class<?>[] parameters = new Class<?>[this.parameterTypes.length];
+      for (int i = 0; i < parameters.length; i++) {
+        parameters[i] = ClassUtils.resolveClassName(this.parameterTypes[i], type.getClassLoader());
+      }
+      Method method = ReflectionUtils.findMethod(type, this.methodName, parameters);
+      Assert.state(
+          Objects.nonNull(method),
+          () -> "Indexed packet handler " + this.className + "#" + this.methodName + " not found");
+      return method;
+    }
+  }
+}
@@ -15,42 +15,68 @@
  */
 package org.doodle.design.messaging.reactive;
 
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 import lombok.Getter;
 import lombok.Setter;
 import org.doodle.design.messaging.PacketMapping;
+import org.doodle.design.messaging.PacketPriorities;
+import org.doodle.design.messaging.PacketPriority;
+import org.doodle.design.messaging.PacketRoute;
+import org.doodle.design.messaging.capture.PacketCaptureWriter;
+import org.doodle.design.messaging.metrics.PacketCommandMetrics;
+import org.doodle.design.messaging.metrics.PacketMetrics;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.MethodIntrospector;
 import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.core.codec.Decoder;
+import org.springframework.core.codec.Encoder;
 import org.springframework.core.convert.ConversionService;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.format.support.DefaultFormattingConversionService;
 import org.springframework.lang.Nullable;
 import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
 import org.springframework.messaging.handler.CompositeMessageCondition;
 import org.springframework.messaging.handler.DestinationPatternsMessageCondition;
+import org.springframework.messaging.handler.HandlerMethod;
+import org.springframework.messaging.handler.MessagingAdviceBean;
 import org.springframework.messaging.handler.annotation.reactive.DestinationVariableMethodArgumentResolver;
 import org.springframework.messaging.handler.annotation.reactive.HeaderMethodArgumentResolver;
 import org.springframework.messaging.handler.annotation.reactive.HeadersMethodArgumentResolver;
-import org.springframework.messaging.handler.annotation.reactive.PayloadMethodArgumentResolver;
 import org.springframework.messaging.handler.annotation.support.AnnotationExceptionHandlerMethodResolver;
 import org.springframework.messaging.handler.invocation.AbstractExceptionHandlerMethodResolver;
 import org.springframework.messaging.handler.invocation.reactive.AbstractMethodMessageHandler;
 import org.springframework.messaging.handler.invocation.reactive.HandlerMethodArgumentResolver;
 import org.springframework.messaging.handler.invocation.reactive.HandlerMethodReturnValueHandler;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Controller;
 import org.springframework.util.AntPathMatcher;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
 import org.springframework.util.RouteMatcher;
 import org.springframework.util.SimpleRouteMatcher;
 import org.springframework.validation.Validator;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 
 public class PacketMappingMessageHandler
-    extends AbstractMethodMessageHandler<CompositeMessageCondition> {
+    extends AbstractMethodMessageHandler<CompositeMessageCondition> implements DisposableBean {
+  private static final String SCOPED_TARGET_NAME_PREFIX = "scopedTarget.";
+
+  @Getter private final List<Encoder<?>> encoders = new ArrayList<>();
   @Getter private final List<Decoder<?>> decoders = new ArrayList<>();
   @Nullable @Getter @Setter private Validator validator;
   @Nullable @Getter @Setter private RouteMatcher routeMatcher;
@@ -58,15 +84,45 @@ public class PacketMappingMessageHandler
   @Getter @Setter
   private ConversionService conversionService = new DefaultFormattingConversionService();
 
+  @Getter @Setter private boolean routeTableEnabled = true;
+  @Getter @Setter private boolean fastInvocationEnabled = true;
+  @Getter @Setter private boolean mappingIndexEnabled = true;
+  private final List<Object> handlers = new ArrayList<>();
+  @Nullable @Getter @Setter private PacketHandlerExecutor handlerExecutor;
+  @Nullable @Getter @Setter private PacketHandlerExecutor blockingExecutor;
+  @Nullable private BlockingPacketHandlerExecutor defaultBlockingExecutor;
+  private boolean initialized;
+  @Nullable @Getter @Setter private PacketMetrics metrics;
+  @Nullable @Getter @Setter private PacketRateLimiter rateLimiter;
+  @Nullable @Getter @Setter private PacketCaptureWriter captureWriter;
+  @Getter @Setter private PacketPriorities priorities = new PacketPriorities();
+  private final Set<HandlerMethod> blockingHandlers = ConcurrentHashMap.newKeySet();
+  // copy-on-write so handlers registered after init never race with dispatch lookups
+  private volatile IntObjectMap<RouteEntry> routeTable = new IntObjectHashMap<>();
+  private List<HandlerMethodReturnValueHandler> returnValueHandlers = Collections.emptyList();
+  private boolean exceptionHandlerAdvice;
+
   public PacketMappingMessageHandler() {
     setHandlerPredicate(type -> AnnotatedElementUtils.hasAnnotation(type, Controller.class));
   }
 
+  public void setEncoders(List<? extends Encoder<?>> encoders) {
+    this.encoders.clear();
+    this.encoders.addAll(encoders);
+  }
+
   public void setDecoders(List<? extends Decoder<?>> decoders) {
     this.decoders.clear();
     this.decoders.addAll(decoders);
   }
 
+  @Override
+  public void setHandlers(List<Object> handlers) {
+    this.handlers.clear();
+    this.handlers.addAll(handlers);
+    super.setHandlers(handlers);
+  }
+
   protected RouteMatcher obtainRouteMatcher() {
     RouteMatcher routeMatcher = getRouteMatcher();
     Assert.state(Objects.nonNull(routeMatcher), "No RouteMatcher set");
@@ -81,7 +137,166 @@ public class PacketMappingMessageHandler
       this.routeMatcher = new SimpleRouteMatcher(pathMatcher);
     }
 
-    super.afterPropertiesSet();
+    registerGauges();
+    registerHandlers();
+    registerRouteMetrics();
+    initBlockingExecutor();
+    initInvokers();
+    this.initialized = true;
+  }
+
+  private void initInvokers() {
+    for (RouteEntry entry : this.routeTable.values()) {
+      entry.invoker = createInvokerIfEnabled(entry.handlerMethod);
+    }
+  }
+
+  @Nullable
+  private PacketHandlerInvoker createInvokerIfEnabled(HandlerMethod handlerMethod) {
+    return this.fastInvocationEnabled ? createInvoker(handlerMethod) : null;
+  }
+
+  boolean hasInvoker(short group, short cmd) {
+    RouteEntry entry = this.routeTable.get(PacketRoute.pack(group, cmd));
+    return Objects.nonNull(entry) && Objects.nonNull(entry.invoker);
+  }
+
+  private void registerHandlers() {
+    PacketMappingIndex index = this.mappingIndexEnabled ? loadMappingIndex() : null;
+    if (Objects.isNull(index)) {
+      super.afterPropertiesSet();
+      return;
+    }
+    Map<Class<?>, Boolean> indexed = new HashMap<>();
+    Predicate<Class<?>> isIndexed =
+        type ->
+            indexed.computeIfAbsent(ClassUtils.getUserClass(type), key -> isIndexed(index, key));
+    Predicate<Class<?>> handlerPredicate = getHandlerPredicate();
+    List<Object> indexedHandlers = new ArrayList<>();
+    List<Object> scannedHandlers = new ArrayList<>();
+    for (Object handler : this.handlers) {
+      (isIndexed.test(handler.getClass()) ? indexedHandlers : scannedHandlers).add(handler);
+    }
+    super.setHandlers(scannedHandlers);
+    // Indexed controllers skip method introspection, everything the index does not cover (jars
+    // built without the processor, stale indexes) is still detected through the predicate.
+    if (Objects.nonNull(handlerPredicate)) {
+      setHandlerPredicate(type -> handlerPredicate.test(type) && !isIndexed.test(type));
+    }
+    try {
+      super.afterPropertiesSet();
+    } finally {
+      setHandlerPredicate(handlerPredicate);
+      super.setHandlers(this.handlers);
+    }
+    for (Object handler : indexedHandlers) {
+      registerIndexedHandler(index, handler, ClassUtils.getUserClass(handler));
+    }
+    ApplicationContext context = getApplicationContext();
+    if (Objects.isNull(context) || Objects.isNull(handlerPredicate)) {
+      return;
+    }
+    for (String typeName : index.getTypeNames()) {
+      if (!ClassUtils.isPresent(typeName, context.getClassLoader())) {
+        continue;
+      }
+      Class<?> type = ClassUtils.resolveClassName(typeName, context.getClassLoader());
+      if (!isIndexed.test(type)) {
+        continue;
+      }
+      for (String beanName : context.getBeanNamesForType(type)) {
+        if (beanName.startsWith(SCOPED_TARGET_NAME_PREFIX)) {
+          continue;
+        }
+        Class<?> beanType = context.getType(beanName);
+        if (Objects.nonNull(beanType)
+            && ClassUtils.getUserClass(beanType) == type
+            && handlerPredicate.test(beanType)) {
+          registerIndexedHandler(index, beanName, type);
+        }
+      }
+    }
+  }
+
+  private boolean isIndexed(PacketMappingIndex index, Class<?> type) {
+    if (!index.contains(type)) {
+      return false;
+    }
+    Set<Method> mapped =
+        MethodIntrospector.selectMethods(
+            type,
+            (ReflectionUtils.MethodFilter)
+                method -> {
+                  PacketMapping ann =
+                      AnnotatedElementUtils.findMergedAnnotation(method, PacketMapping.class);
+                  return Objects.nonNull(ann) && ann.inbound().value() != 0;
+                });
+    if (index.getMappings(type).keySet().containsAll(mapped)) {
+      return true;
+    }
+    logger.warn("Packet mapping index is stale for " + type.getName() + ", detecting its methods");
+    return false;
+  }
+
+  protected synchronized void initBlockingExecutor() {
+    if (Objects.isNull(this.blockingExecutor) && !this.blockingHandlers.isEmpty()) {
+      this.defaultBlockingExecutor = new BlockingPacketHandlerExecutor();
+      this.blockingExecutor = this.defaultBlockingExecutor;
+    }
+  }
+
+  @Override
+  public synchronized void destroy() {
+    BlockingPacketHandlerExecutor executor = this.defaultBlockingExecutor;
+    if (Objects.nonNull(executor)) {
+      executor.dispose();
+      this.defaultBlockingExecutor = null;
+      if (this.blockingExecutor == executor) {
+        this.blockingExecutor = null;
+      }
+    }
+  }
+
+  protected void registerGauges() {
+    PacketMetrics metrics = this.metrics;
+    if (Objects.isNull(metrics)) {
+      return;
+    }
+    if (this.handlerExecutor instanceof PacketMailboxExecutor) {
+      PacketMailboxExecutor executor = (PacketMailboxExecutor) this.handlerExecutor;
+      metrics.gauge("packet.mailbox.count", executor::mailboxCount);
+      metrics.gauge("packet.mailbox.queued", executor::totalQueueDepth);
+    }
+  }
+
+  protected void registerRouteMetrics() {
+    PacketMetrics metrics = this.metrics;
+    if (Objects.isNull(metrics)) {
+      return;
+    }
+    for (int route : this.routeTable.keySet()) {
+      metrics.register(PacketRoute.group(route), PacketRoute.cmd(route));
+    }
+  }
+
+  @Nullable
+  protected PacketMappingIndex loadMappingIndex() {
+    ApplicationContext context = getApplicationContext();
+    return PacketMappingIndex.load(
+        Objects.nonNull(context) ? context.getClassLoader() : ClassUtils.getDefaultClassLoader());
+  }
+
+  private void registerIndexedHandler(PacketMappingIndex index, Object handler, Class<?> type) {
+    index
+        .getMappings(type)
+        .forEach(
+            (method, route) ->
+                registerHandlerMethod(
+                    handler,
+                    method,
+                    new CompositeMessageCondition(
+                        new DestinationPatternsMessageCondition(
+                            new String[] {route}, obtainRouteMatcher()))));
   }
 
   @Override
@@ -98,14 +313,21 @@ public class PacketMappingMessageHandler
     resolvers.addAll(getArgumentResolverConfigurer().getCustomResolvers());
     resolvers.add(new PacketRequesterMethodArgumentResolver());
     resolvers.add(
-        new PayloadMethodArgumentResolver(
+        new PacketPayloadMethodArgumentResolver(
             getDecoders(), this.validator, getReactiveAdapterRegistry(), true));
     return resolvers;
   }
 
   @Override
   protected List<? extends HandlerMethodReturnValueHandler> initReturnValueHandlers() {
-    return Collections.emptyList();
+    List<HandlerMethodReturnValueHandler> handlers = new ArrayList<>();
+    handlers.addAll(getReturnValueHandlerConfigurer().getCustomHandlers());
+    if (!this.encoders.isEmpty()) {
+      handlers.add(
+          new PacketPayloadReturnValueHandler(this.encoders, getReactiveAdapterRegistry()));
+    }
+    this.returnValueHandlers = handlers;
+    return handlers;
   }
 
   @Override
@@ -139,6 +361,219 @@ public class PacketMappingMessageHandler
         .toArray(String[]::new);
   }
 
+  @Override
+  protected CompositeMessageCondition extendMapping(
+      CompositeMessageCondition mapping, HandlerMethod handlerMethod) {
+    registerPriority(handlerMethod);
+    if (isBlocking(handlerMethod)) {
+      this.blockingHandlers.add(handlerMethod);
+      if (this.initialized) {
+        initBlockingExecutor();
+      }
+    }
+    for (String pattern :
+        mapping.getCondition(DestinationPatternsMessageCondition.class).getPatterns()) {
+      Integer route = parseRoute(pattern);
+      if (Objects.nonNull(route)) {
+        RouteEntry entry = new RouteEntry(mapping, handlerMethod);
+        if (this.initialized) {
+          entry.invoker = createInvokerIfEnabled(handlerMethod);
+        }
+        addRoute(route, entry, pattern);
+        PacketMetrics metrics = this.metrics;
+        if (this.initialized && Objects.nonNull(metrics)) {
+          metrics.register(PacketRoute.group(route), PacketRoute.cmd(route));
+        }
+      }
+    }
+    return mapping;
+  }
+
+  private synchronized void addRoute(int route, RouteEntry entry, String pattern) {
+    IntObjectMap<RouteEntry> routeTable = this.routeTable;
+    Assert.state(
+        !routeTable.containsKey(route),
+        () -> "Ambiguous packet route '" + pattern + "' for " + entry.handlerMethod);
+    IntObjectMap<RouteEntry> copy = new IntObjectHashMap<>(routeTable.size() + 1);
+    copy.putAll(routeTable);
+    copy.put(route, entry);
+    this.routeTable = copy;
+  }
+
+  protected void registerPriority(HandlerMethod handlerMethod) {
+    PacketMapping typeAnn =
+        AnnotatedElementUtils.findMergedAnnotation(
+            handlerMethod.getBeanType(), PacketMapping.class);
+    if (Objects.isNull(typeAnn)) {
+      return;
+    }
+    short group =
+        typeAnn.outbound().value() != 0 ? typeAnn.outbound().value() : typeAnn.inbound().value();
+    if (group == 0) {
+      return;
+    }
+    if (typeAnn.outbound().priority() != PacketPriority.NORMAL) {
+      this.priorities.group(group, typeAnn.outbound().priority());
+    }
+    PacketMapping methodAnn =
+        AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getMethod(), PacketMapping.class);
+    if (Objects.nonNull(methodAnn)
+        && methodAnn.outbound().value() != 0
+        && methodAnn.outbound().priority() != PacketPriority.NORMAL) {
+      this.priorities.route(group, methodAnn.outbound().value(), methodAnn.outbound().priority());
+    }
+  }
+
+  protected boolean isBlocking(HandlerMethod handlerMethod) {
+    PacketMapping methodAnn =
+        AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getMethod(), PacketMapping.class);
+    if (Objects.nonNull(methodAnn) && methodAnn.blocking()) {
+      return true;
+    }
+    PacketMapping typeAnn =
+        AnnotatedElementUtils.findMergedAnnotation(
+            handlerMethod.getBeanType(), PacketMapping.class);
+    return Objects.nonNull(typeAnn) && typeAnn.blocking();
+  }
+
+  @Nullable
+  protected Integer parseRoute(String pattern) {
+    if (obtainRouteMatcher().isPattern(pattern)) {
+      return null;
+    }
+    String[] parts = pattern.split("\\" + PacketRoute.SEPARATOR);
+    if (parts.length != 2) {
+      return null;
+    }
+    try {
+      return PacketRoute.pack(Short.parseShort(parts[0]), Short.parseShort(parts[1]));
+    } catch (NumberFormatException ignored) {
+      return null;
+    }
+  }
+
+  public Mono<Void> handlePacket(short group, short cmd, Message<?> message) {
+    PacketMetrics metrics = this.metrics;
+    PacketRateLimiter rateLimiter = this.rateLimiter;
+    if (Objects.nonNull(rateLimiter)
+        && !rateLimiter.tryAcquire(PacketMailboxExecutor.requesterKey(message), group, cmd)) {
+      if (Objects.nonNull(metrics)) {
+        metrics.recordThrottled(group, cmd);
+      }
+      return Mono.empty();
+    }
+    if (Objects.isNull(metrics)) {
+      return dispatchPacket(group, cmd, message);
+    }
+    PacketCommandMetrics command = metrics.command(group, cmd);
+    long start = System.nanoTime();
+    return dispatchPacket(group, cmd, message)
+        .doFinally(
+            signal -> command.record(System.nanoTime() - start, signal == SignalType.ON_ERROR));
+  }
+
+  public Mono<Void> handlePacket(short group, short cmd, DataBuffer data, MessageHeaders headers) {
+    PacketCaptureWriter captureWriter = this.captureWriter;
+    if (Objects.nonNull(captureWriter)) {
+      captureWriter.capture(
+          headers.get(PacketRequesterMethodArgumentResolver.PACKET_REQUESTER_HEADER),
+          group,
+          cmd,
+          data);
+    }
+    // The message owns the one reference to data: a payload decoder that claims it releases it,
+    // otherwise it is released here once handling completes.
+    PacketPayloadClaim claim = PacketPayloadClaim.of(headers);
+    if (Objects.isNull(claim)) {
+      claim = new PacketPayloadClaim();
+      Map<String, Object> claimHeaders = new HashMap<>(headers);
+      claimHeaders.put(PacketPayloadClaim.PACKET_PAYLOAD_CLAIM_HEADER, claim);
+      headers = new MessageHeaders(claimHeaders);
+    }
+    PacketPayloadClaim payloadClaim = claim;
+    return handlePacket(group, cmd, MessageBuilder.createMessage(data, headers))
+        .doFinally(
+            signal -> {
+              if (!payloadClaim.isClaimed()) {
+                DataBufferUtils.release(data);
+              }
+            });
+  }
+
+  private Mono<Void> dispatchPacket(short group, short cmd, Message<?> message) {
+    if (this.routeTableEnabled) {
+      RouteEntry entry = this.routeTable.get(PacketRoute.pack(group, cmd));
+      if (Objects.nonNull(entry)) {
+        PacketHandlerInvoker invoker = this.fastInvocationEnabled ? entry.invoker : null;
+        return handleMatch(entry.mapping, entry.handlerMethod, invoker, message);
+      }
+    }
+    return handleMessage(withDestination(group, cmd, message));
+  }
+
+  @Nullable
+  protected PacketHandlerInvoker createInvoker(HandlerMethod handlerMethod) {
+    if (this.exceptionHandlerAdvice
+        || new AnnotationExceptionHandlerMethodResolver(handlerMethod.getBeanType())
+            .hasExceptionMappings()) {
+      return null;
+    }
+    Object bean = handlerMethod.getBean();
+    ApplicationContext context = getApplicationContext();
+    if (bean instanceof String
+        && (Objects.isNull(context) || !context.isSingleton((String) bean))) {
+      return null;
+    }
+    return PacketHandlerInvoker.create(
+        handlerMethod.createWithResolvedBean(),
+        getArgumentResolvers(),
+        this.returnValueHandlers,
+        getReactiveAdapterRegistry());
+  }
+
+  protected Message<?> withDestination(short group, short cmd, Message<?> message) {
+    if (message
+        .getHeaders()
+        .containsKey(DestinationPatternsMessageCondition.LOOKUP_DESTINATION_HEADER)) {
+      return message;
+    }
+    return MessageBuilder.fromMessage(message)
+        .setHeader(
+            DestinationPatternsMessageCondition.LOOKUP_DESTINATION_HEADER,
+            obtainRouteMatcher().parseRoute(PacketRoute.destination(group, cmd)))
+        .build();
+  }
+
+  @Override
+  protected Mono<Void> handleMatch(
+      CompositeMessageCondition mapping, HandlerMethod handlerMethod, Message<?> message) {
+    return handleMatch(mapping, handlerMethod, null, message);
+  }
+
+  private Mono<Void> handleMatch(
+      CompositeMessageCondition mapping,
+      HandlerMethod handlerMethod,
+      @Nullable PacketHandlerInvoker invoker,
+      Message<?> message) {
+    PacketHandlerExecutor executor = this.handlerExecutor;
+    PacketHandlerExecutor blocking = this.blockingExecutor;
+    boolean offload = Objects.nonNull(blocking) && this.blockingHandlers.contains(handlerMethod);
+    if (!offload && Objects.isNull(executor)) {
+      return Objects.nonNull(invoker)
+          ? invoker.invoke(message)
+          : super.handleMatch(mapping, handlerMethod, message);
+    }
+    Supplier<Mono<Void>> invocation =
+        Objects.nonNull(invoker)
+            ? () -> invoker.invoke(message)
+            : () -> super.handleMatch(mapping, handlerMethod, message);
+    if (offload) {
+      Supplier<Mono<Void>> direct = invocation;
+      invocation = () -> blocking.execute(message, direct);
+    }
+    return Objects.nonNull(executor) ? executor.execute(message, invocation) : invocation.get();
+  }
+
   @Override
   protected Set<String> getDirectLookupMappings(CompositeMessageCondition mapping) {
     Set<String> results = new LinkedHashSet<>();
@@ -168,9 +603,30 @@ public class PacketMappingMessageHandler
     return (condition1, condition2) -> condition1.compareTo(condition2, message);
   }
 
+  @Override
+  protected void registerExceptionHandlerAdvice(
+      MessagingAdviceBean bean, AbstractExceptionHandlerMethodResolver resolver) {
+    this.exceptionHandlerAdvice = true;
+    for (RouteEntry entry : this.routeTable.values()) {
+      entry.invoker = null;
+    }
+    super.registerExceptionHandlerAdvice(bean, resolver);
+  }
+
   @Override
   protected AbstractExceptionHandlerMethodResolver createExceptionMethodResolverFor(
       Class<?> beanType) {
     return new AnnotationExceptionHandlerMethodResolver(beanType);
   }
+
+  private static final class RouteEntry {
+    final CompositeMessageCondition mapping;
+    final HandlerMethod handlerMethod;
+    @Nullable volatile PacketHandlerInvoker invoker;
+
+    RouteEntry(CompositeMessageCondition mapping, HandlerMethod handlerMethod) {
+      this.mapping = mapping;
+      this.handlerMethod = handlerMethod;
+    }
+  }
 }
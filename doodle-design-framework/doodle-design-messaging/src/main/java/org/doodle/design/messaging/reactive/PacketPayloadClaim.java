@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.reactive;
+
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+
+public final class PacketPayloadClaim {
+  public static final String PACKET_PAYLOAD_CLAIM_HEADER = "packetPayloadClaim";
+
+  private volatile boolean claimed;
+
+  public void claim() {
+    this.claimed = true;
+  }
+
+  public boolean isClaimed() {
+    return this.claimed;
+  }
+
+  @Nullable
+  public static PacketPayloadClaim of(Message<?> message) {
+    return of(message.getHeaders());
+  }
+
+  @Nullable
+  public static PacketPayloadClaim of(MessageHeaders headers) {
+    Object claim = headers.get(PACKET_PAYLOAD_CLAIM_HEADER);
+    return claim instanceof PacketPayloadClaim ? (PacketPayloadClaim) claim : null;
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.reactive;
+
+import java.util.List;
+import java.util.Objects;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ReactiveAdapter;
+import org.springframework.core.ReactiveAdapterRegistry;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Decoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.handler.annotation.reactive.PayloadMethodArgumentResolver;
+import org.springframework.messaging.handler.invocation.reactive.HandlerMethodArgumentResolver;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.validation.Validator;
+import reactor.core.publisher.Mono;
+
+public class PacketPayloadMethodArgumentResolver implements HandlerMethodArgumentResolver {
+  private final PayloadMethodArgumentResolver delegate;
+
+  public PacketPayloadMethodArgumentResolver(
+      List<? extends Decoder<?>> decoders,
+      @Nullable Validator validator,
+      @Nullable ReactiveAdapterRegistry registry,
+      boolean useDefaultResolution) {
+    this.delegate =
+        new PayloadMethodArgumentResolver(decoders, validator, registry, useDefaultResolution);
+  }
+
+  @Override
+  public boolean supportsParameter(MethodParameter parameter) {
+    return this.delegate.supportsParameter(parameter);
+  }
+
+  @Override
+  public Mono<Object> resolveArgument(MethodParameter parameter, Message<?> message) {
+    PacketPayloadClaim claim = PacketPayloadClaim.of(message);
+    if (Objects.isNull(claim)
+        || !(message.getPayload() instanceof DataBuffer)
+        || !canDecode(parameter, message)) {
+      return this.delegate.resolveArgument(parameter, message);
+    }
+    // The decoder releases the buffer once it subscribes to the content.
+    return Mono.defer(
+        () -> {
+          claim.claim();
+          return this.delegate.resolveArgument(parameter, message);
+        });
+  }
+
+  private boolean canDecode(MethodParameter parameter, Message<?> message) {
+    ResolvableType targetType = ResolvableType.forMethodParameter(parameter);
+    Class<?> resolved = targetType.resolve();
+    ReactiveAdapter adapter =
+        Objects.nonNull(resolved) ? this.delegate.getAdapterRegistry().getAdapter(resolved) : null;
+    ResolvableType elementType = Objects.nonNull(adapter) ? targetType.getGeneric() : targetType;
+    MimeType mimeType = mimeType(message);
+    for (Decoder<?> decoder : this.delegate.getDecoders()) {
+      if (decoder.canDecode(elementType, mimeType)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static MimeType mimeType(Message<?> message) {
+    Object value = message.getHeaders().get(MessageHeaders.CONTENT_TYPE);
+    if (value instanceof MimeType) {
+      return (MimeType) value;
+    }
+    if (value instanceof String) {
+      return MimeTypeUtils.parseMimeType((String) value);
+    }
+    return MimeTypeUtils.APPLICATION_OCTET_STREAM;
+  }
+}
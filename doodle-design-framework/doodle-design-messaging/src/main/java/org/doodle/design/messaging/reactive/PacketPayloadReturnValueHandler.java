@@ -15,17 +15,33 @@
  */
 package org.doodle.design.messaging.reactive;
 
+import java.lang.reflect.Method;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import org.doodle.design.messaging.PacketMapping;
+import org.doodle.design.messaging.PacketMetadata;
+import org.doodle.design.messaging.PacketMetadataExtractor;
+import org.doodle.design.messaging.PacketRequester;
+import org.doodle.design.messaging.PacketRoute;
 import org.springframework.core.MethodParameter;
+import org.springframework.core.ReactiveAdapter;
 import org.springframework.core.ReactiveAdapterRegistry;
+import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.core.codec.Encoder;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.lang.Nullable;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.handler.invocation.reactive.AbstractEncoderMethodReturnValueHandler;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public class PacketPayloadReturnValueHandler extends AbstractEncoderMethodReturnValueHandler {
+  private static final int NO_ROUTE = 0;
+
+  private final Map<Method, Integer> outboundRoutes = new ConcurrentHashMap<>();
 
   public PacketPayloadReturnValueHandler(
       List<Encoder<?>> encoders, ReactiveAdapterRegistry registry) {
@@ -35,11 +51,104 @@ public class PacketPayloadReturnValueHandler extends AbstractEncoderMethodReturn
   @Override
   protected Mono<Void> handleEncodedContent(
       Flux<DataBuffer> encodedContent, MethodParameter returnType, Message<?> message) {
-    return Mono.empty();
+    PacketRequester requester = getRequester(message);
+    int route = getOutboundRoute(returnType);
+    if (Objects.isNull(requester) || route == NO_ROUTE) {
+      return encodedContent.doOnNext(DataBufferUtils::release).then();
+    }
+    Integer correlationId = getCorrelationId(message);
+    if (Objects.isNull(correlationId)) {
+      return encodedContent
+          .concatMap(buffer -> requester.route(group(route), cmd(route)).data(buffer).send())
+          .then();
+    }
+    boolean multi = isMultiValue(returnType);
+    short flags =
+        multi
+            ? PacketMetadata.FLAG_REPLY
+            : (short) (PacketMetadata.FLAG_REPLY | PacketMetadata.FLAG_COMPLETE);
+    Mono<Void> replies =
+        encodedContent
+            .concatMap(
+                buffer ->
+                    requester
+                        .route(group(route), cmd(route))
+                        .data(buffer)
+                        .correlationId(correlationId)
+                        .flags(flags)
+                        .send())
+            .then();
+    return multi ? replies.then(complete(requester, route, correlationId)) : replies;
   }
 
   @Override
   protected Mono<Void> handleNoContent(MethodParameter returnType, Message<?> message) {
-    return Mono.empty();
+    PacketRequester requester = getRequester(message);
+    Integer correlationId = getCorrelationId(message);
+    int route = getOutboundRoute(returnType);
+    if (Objects.isNull(requester) || Objects.isNull(correlationId) || route == NO_ROUTE) {
+      return Mono.empty();
+    }
+    return complete(requester, route, correlationId);
+  }
+
+  private Mono<Void> complete(PacketRequester requester, int route, int correlationId) {
+    return Mono.defer(
+        () ->
+            requester
+                .route(group(route), cmd(route))
+                .correlationId(correlationId)
+                .flags((short) (PacketMetadata.FLAG_REPLY | PacketMetadata.FLAG_COMPLETE))
+                .send());
+  }
+
+  @Nullable
+  protected PacketRequester getRequester(Message<?> message) {
+    Object requester =
+        message.getHeaders().get(PacketRequesterMethodArgumentResolver.PACKET_REQUESTER_HEADER);
+    return requester instanceof PacketRequester ? (PacketRequester) requester : null;
+  }
+
+  @Nullable
+  protected Integer getCorrelationId(Message<?> message) {
+    return (Integer) message.getHeaders().get(PacketMetadataExtractor.CORRELATION_ID_KEY);
+  }
+
+  protected int getOutboundRoute(MethodParameter returnType) {
+    Method method = returnType.getMethod();
+    if (Objects.isNull(method)) {
+      return NO_ROUTE;
+    }
+    return this.outboundRoutes.computeIfAbsent(
+        method, key -> resolveOutboundRoute(key, returnType.getContainingClass()));
+  }
+
+  protected int resolveOutboundRoute(Method method, Class<?> handlerType) {
+    PacketMapping methodAnn =
+        AnnotatedElementUtils.findMergedAnnotation(method, PacketMapping.class);
+    if (Objects.isNull(methodAnn) || methodAnn.outbound().value() == 0) {
+      return NO_ROUTE;
+    }
+    PacketMapping typeAnn =
+        AnnotatedElementUtils.findMergedAnnotation(handlerType, PacketMapping.class);
+    if (Objects.isNull(typeAnn)) {
+      return NO_ROUTE;
+    }
+    short group =
+        typeAnn.outbound().value() != 0 ? typeAnn.outbound().value() : typeAnn.inbound().value();
+    return group == 0 ? NO_ROUTE : PacketRoute.pack(group, methodAnn.outbound().value());
+  }
+
+  private boolean isMultiValue(MethodParameter returnType) {
+    ReactiveAdapter adapter = getAdapterRegistry().getAdapter(returnType.getParameterType());
+    return Objects.nonNull(adapter) && adapter.isMultiValue();
+  }
+
+  private static short group(int route) {
+    return PacketRoute.group(route);
+  }
+
+  private static short cmd(int route) {
+    return PacketRoute.cmd(route);
   }
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.reactive;
+
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import java.util.Objects;
+import org.doodle.design.messaging.PacketRoute;
+import org.doodle.design.messaging.PacketTokenBucket;
+import org.doodle.design.messaging.PacketWeakKeyMap;
+import org.springframework.lang.Nullable;
+
+public class PacketRateLimiter {
+  private final PacketWeakKeyMap<Object, Buckets> sockets = new PacketWeakKeyMap<>();
+  @Nullable private volatile Limit socketLimit;
+  private volatile IntObjectMap<Limit> groupLimits = new IntObjectHashMap<>();
+  private volatile IntObjectMap<Limit> routeLimits = new IntObjectHashMap<>();
+
+  public synchronized PacketRateLimiter socketLimit(double permitsPerSecond, int burst) {
+    this.socketLimit = new Limit(permitsPerSecond, burst);
+    this.sockets.clear();
+    return this;
+  }
+
+  public synchronized PacketRateLimiter groupLimit(
+      short group, double permitsPerSecond, int burst) {
+    this.groupLimits = withLimit(this.groupLimits, group, new Limit(permitsPerSecond, burst));
+    this.sockets.clear();
+    return this;
+  }
+
+  public synchronized PacketRateLimiter routeLimit(
+      short group, short cmd, double permitsPerSecond, int burst) {
+    this.routeLimits =
+        withLimit(
+            this.routeLimits, PacketRoute.pack(group, cmd), new Limit(permitsPerSecond, burst));
+    this.sockets.clear();
+    return this;
+  }
+
+  private static IntObjectMap<Limit> withLimit(IntObjectMap<Limit> limits, int key, Limit limit) {
+    IntObjectMap<Limit> copy = new IntObjectHashMap<>(limits.size() + 1);
+    copy.putAll(limits);
+    copy.put(key, limit);
+    return copy;
+  }
+
+  public boolean tryAcquire(Object socketKey, short group, short cmd) {
+    long now = System.nanoTime();
+    Buckets buckets =
+        this.sockets.computeIfAbsent(socketKey, key -> new Buckets(this.socketLimit, now));
+    if (Objects.nonNull(buckets.socket) && !buckets.socket.tryAcquire(now)) {
+      return false;
+    }
+    IntObjectMap<Limit> groupLimits = this.groupLimits;
+    if (!groupLimits.isEmpty()) {
+      PacketTokenBucket bucket = buckets.group(groupLimits, group, now);
+      if (Objects.nonNull(bucket) && !bucket.tryAcquire(now)) {
+        return false;
+      }
+    }
+    IntObjectMap<Limit> routeLimits = this.routeLimits;
+    if (!routeLimits.isEmpty()) {
+      PacketTokenBucket bucket = buckets.route(routeLimits, PacketRoute.pack(group, cmd), now);
+      return Objects.isNull(bucket) || bucket.tryAcquire(now);
+    }
+    return true;
+  }
+
+  public int size() {
+    return this.sockets.size();
+  }
+
+  private static final class Limit {
+    private final double permitsPerSecond;
+    private final int burst;
+
+    Limit(double permitsPerSecond, int burst) {
+      if (permitsPerSecond <= 0) {
+        throw new IllegalArgumentException(
+            "permitsPerSecond must be positive: " + permitsPerSecond);
+      }
+      if (burst <= 0) {
+        throw new IllegalArgumentException("burst must be positive: " + burst);
+      }
+      this.permitsPerSecond = permitsPerSecond;
+      this.burst = burst;
+    }
+
+    PacketTokenBucket newBucket(long nowNanos) {
+      return new PacketTokenBucket(this.permitsPerSecond, this.burst, nowNanos);
+    }
+  }
+
+  private static final class Buckets {
+    @Nullable private final PacketTokenBucket socket;
+    private volatile IntObjectMap<PacketTokenBucket> groups = new IntObjectHashMap<>();
+    private volatile IntObjectMap<PacketTokenBucket> routes = new IntObjectHashMap<>();
+
+    Buckets(@Nullable Limit socketLimit, long nowNanos) {
+      this.socket = Objects.nonNull(socketLimit) ? socketLimit.newBucket(nowNanos) : null;
+    }
+
+    @Nullable
+    PacketTokenBucket group(IntObjectMap<Limit> limits, int key, long nowNanos) {
+      PacketTokenBucket bucket = this.groups.get(key);
+      if (Objects.nonNull(bucket)) {
+        return bucket;
+      }
+      Limit limit = limits.get(key);
+      return Objects.nonNull(limit) ? addBucket(true, key, limit, nowNanos) : null;
+    }
+
+    @Nullable
+    PacketTokenBucket route(IntObjectMap<Limit> limits, int key, long nowNanos) {
+      PacketTokenBucket bucket = this.routes.get(key);
+      if (Objects.nonNull(bucket)) {
+        return bucket;
+      }
+      Limit limit = limits.get(key);
+      return Objects.nonNull(limit) ? addBucket(false, key, limit, nowNanos) : null;
+    }
+
+    private synchronized PacketTokenBucket addBucket(
+        boolean group, int key, Limit limit, long nowNanos) {
+      IntObjectMap<PacketTokenBucket> buckets = group ? this.groups : this.routes;
+      PacketTokenBucket bucket = buckets.get(key);
+      if (Objects.isNull(bucket)) {
+        IntObjectMap<PacketTokenBucket> copy = new IntObjectHashMap<>(buckets.size() + 1);
+        copy.putAll(buckets);
+        bucket = limit.newBucket(nowNanos);
+        copy.put(key, bucket);
+        if (group) {
+          this.groups = copy;
+        } else {
+          this.routes = copy;
+        }
+      }
+      return bucket;
+    }
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.state;
+
+import io.netty.buffer.ByteBuf;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+public interface PacketStateCodec<T> {
+
+  PacketStateCodec<Boolean> BOOLEAN =
+      of((out, value) -> out.writeBoolean(value), ByteBuf::readBoolean);
+
+  PacketStateCodec<Integer> INT = of((out, value) -> out.writeInt(value), ByteBuf::readInt);
+
+  PacketStateCodec<Long> LONG = of((out, value) -> out.writeLong(value), ByteBuf::readLong);
+
+  PacketStateCodec<String> STRING =
+      of(
+          (out, value) -> {
+            if (Objects.isNull(value)) {
+              out.writeInt(-1);
+              return;
+            }
+            int lengthIndex = out.writerIndex();
+            out.writeInt(0);
+            int length = out.writeCharSequence(value, StandardCharsets.UTF_8);
+            out.setInt(lengthIndex, length);
+          },
+          in -> {
+            int length = in.readInt();
+            return length < 0
+                ? null
+                : in.readCharSequence(length, StandardCharsets.UTF_8).toString();
+          });
+
+  void write(ByteBuf out, T value);
+
+  T read(ByteBuf in);
+
+  static <T> PacketStateCodec<T> of(Writer<T> writer, Reader<T> reader) {
+    Objects.requireNonNull(writer);
+    Objects.requireNonNull(reader);
+    return new PacketStateCodec<>() {
+      @Override
+      public void write(ByteBuf out, T value) {
+        writer.write(out, value);
+      }
+
+      @Override
+      public T read(ByteBuf in) {
+        return reader.read(in);
+      }
+    };
+  }
+
+  @FunctionalInterface
+  interface Writer<T> {
+    void write(ByteBuf out, T value);
+  }
+
+  @FunctionalInterface
+  interface Reader<T> {
+    T read(ByteBuf in);
+  }
+}
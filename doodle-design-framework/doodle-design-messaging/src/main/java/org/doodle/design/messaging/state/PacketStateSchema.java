@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.state;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.collection.IntObjectMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import org.doodle.design.messaging.BinaryPacketMetadataEncoder;
+import org.doodle.design.messaging.ByteBufPacketPayload;
+import org.doodle.design.messaging.PacketPayload;
+import org.doodle.design.messaging.PacketPayloads;
+import org.doodle.design.messaging.PacketStrategies;
+import org.springframework.lang.Nullable;
+
+public final class PacketStateSchema<S extends PacketStateful> {
+  public static final byte SNAPSHOT = 0;
+  public static final byte DELTA = 1;
+  public static final byte SNAPSHOT_REQUEST = 2;
+  public static final int DEFAULT_SNAPSHOT_INTERVAL = 100;
+
+  private final Field<S>[] fields;
+  private final long allFields;
+  private final int snapshotInterval;
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private PacketStateSchema(Builder<S> builder) {
+    this.fields = new Field[PacketStateTracker.MAX_FIELDS];
+    long allFields = 0;
+    for (Field<S> field : builder.fields) {
+      this.fields[field.id] = field;
+      allFields |= 1L << field.id;
+    }
+    this.allFields = allFields;
+    this.snapshotInterval = builder.snapshotInterval;
+  }
+
+  public static <S extends PacketStateful> Builder<S> builder() {
+    return new Builder<>();
+  }
+
+  @Nullable
+  public ByteBuf encode(S state, ByteBufAllocator allocator) {
+    PacketStateTracker tracker = state.stateTracker();
+    if (!tracker.isDirty()) {
+      return null;
+    }
+    boolean snapshot =
+        tracker.isSnapshotRequested() || tracker.deltasSinceSnapshot() >= this.snapshotInterval;
+    long mask = snapshot ? this.allFields : tracker.dirtyFields() & this.allFields;
+    int version = tracker.version() + 1;
+    ByteBuf out = allocator.buffer();
+    try {
+      out.writeByte(snapshot ? SNAPSHOT : DELTA);
+      out.writeInt(version);
+      out.writeLong(mask);
+      for (long remaining = mask; remaining != 0; remaining &= remaining - 1) {
+        Field<S> field = this.fields[Long.numberOfTrailingZeros(remaining)];
+        field.write(out, state, snapshot ? null : tracker);
+      }
+    } catch (Throwable ex) {
+      out.release();
+      throw ex;
+    }
+    if (snapshot) {
+      tracker.snapshotted(version);
+    } else {
+      tracker.delta(version);
+    }
+    return out;
+  }
+
+  @Nullable
+  public PacketPayload encode(PacketStrategies strategies, S state, short group, short cmd) {
+    ByteBufAllocator allocator = PacketPayloads.allocator(strategies);
+    ByteBuf data = encode(state, allocator);
+    if (Objects.isNull(data)) {
+      return null;
+    }
+    try {
+      return ByteBufPacketPayload.create(
+          data, new BinaryPacketMetadataEncoder(strategies).route(group, cmd).encode(allocator));
+    } catch (Throwable ex) {
+      data.release();
+      throw ex;
+    }
+  }
+
+  public ByteBuf encodeSnapshotRequest(S state, ByteBufAllocator allocator) {
+    return allocator
+        .buffer(Byte.BYTES + Integer.BYTES)
+        .writeByte(SNAPSHOT_REQUEST)
+        .writeInt(state.stateTracker().version());
+  }
+
+  public PacketPayload encodeSnapshotRequest(
+      PacketStrategies strategies, S state, short group, short cmd) {
+    ByteBufAllocator allocator = PacketPayloads.allocator(strategies);
+    ByteBuf data = encodeSnapshotRequest(state, allocator);
+    try {
+      return ByteBufPacketPayload.create(
+          data, new BinaryPacketMetadataEncoder(strategies).route(group, cmd).encode(allocator));
+    } catch (Throwable ex) {
+      data.release();
+      throw ex;
+    }
+  }
+
+  // Applies a frame from the peer. Only the replicated version is updated, so local dirty marks
+  // survive. On GAP the caller should send encodeSnapshotRequest to the peer.
+  public Result apply(S state, ByteBuf in) {
+    PacketStateTracker tracker = state.stateTracker();
+    byte kind = in.readByte();
+    int version = in.readInt();
+    if (kind == SNAPSHOT_REQUEST) {
+      tracker.requestSnapshot();
+      return Result.SNAPSHOT_REQUESTED;
+    }
+    if (kind != SNAPSHOT && kind != DELTA) {
+      throw new IllegalStateException("Unknown state frame: " + kind);
+    }
+    long mask = in.readLong();
+    if (kind == DELTA) {
+      int expected = tracker.version() + 1;
+      if (version != expected) {
+        in.skipBytes(in.readableBytes());
+        return version - expected < 0 ? Result.STALE : Result.GAP;
+      }
+    }
+    if ((mask & ~this.allFields) != 0) {
+      throw new IllegalStateException("Unknown state fields: " + Long.toHexString(mask));
+    }
+    for (long remaining = mask; remaining != 0; remaining &= remaining - 1) {
+      this.fields[Long.numberOfTrailingZeros(remaining)].read(in, state);
+    }
+    tracker.received(version);
+    return Result.APPLIED;
+  }
+
+  public enum Result {
+    APPLIED,
+    STALE,
+    GAP,
+    SNAPSHOT_REQUESTED
+  }
+
+  public static final class Builder<S extends PacketStateful> {
+    private final List<Field<S>> fields = new ArrayList<>();
+    private long ids;
+    private int snapshotInterval = DEFAULT_SNAPSHOT_INTERVAL;
+
+    private Builder() {}
+
+    public <T> Builder<S> field(
+        int id, Function<S, T> getter, BiConsumer<S, T> setter, PacketStateCodec<T> codec) {
+      return add(new ValueField<>(id, getter, setter, codec));
+    }
+
+    public <V> Builder<S> entries(
+        int id, Function<S, Map<Integer, V>> getter, PacketStateCodec<V> codec) {
+      return add(new EntriesField<>(id, getter, codec));
+    }
+
+    public Builder<S> snapshotInterval(int snapshotInterval) {
+      if (snapshotInterval <= 0) {
+        throw new IllegalArgumentException(
+            "snapshotInterval must be positive: " + snapshotInterval);
+      }
+      this.snapshotInterval = snapshotInterval;
+      return this;
+    }
+
+    private Builder<S> add(Field<S> field) {
+      if (field.id < 0 || field.id >= PacketStateTracker.MAX_FIELDS) {
+        throw new IllegalArgumentException(
+            "field must be in [0, " + PacketStateTracker.MAX_FIELDS + "): " + field.id);
+      }
+      long bit = 1L << field.id;
+      if ((this.ids & bit) != 0) {
+        throw new IllegalStateException("Duplicate state field: " + field.id);
+      }
+      this.ids |= bit;
+      this.fields.add(field);
+      return this;
+    }
+
+    public PacketStateSchema<S> build() {
+      return new PacketStateSchema<>(this);
+    }
+  }
+
+  private abstract static class Field<S> {
+    final int id;
+
+    Field(int id) {
+      this.id = id;
+    }
+
+    abstract void write(ByteBuf out, S state, @Nullable PacketStateTracker tracker);
+
+    abstract void read(ByteBuf in, S state);
+  }
+
+  private static final class ValueField<S, T> extends Field<S> {
+    private final Function<S, T> getter;
+    private final BiConsumer<S, T> setter;
+    private final PacketStateCodec<T> codec;
+
+    ValueField(int id, Function<S, T> getter, BiConsumer<S, T> setter, PacketStateCodec<T> codec) {
+      super(id);
+      this.getter = Objects.requireNonNull(getter);
+      this.setter = Objects.requireNonNull(setter);
+      this.codec = Objects.requireNonNull(codec);
+    }
+
+    @Override
+    void write(ByteBuf out, S state, @Nullable PacketStateTracker tracker) {
+      this.codec.write(out, this.getter.apply(state));
+    }
+
+    @Override
+    void read(ByteBuf in, S state) {
+      this.setter.accept(state, this.codec.read(in));
+    }
+  }
+
+  private static final class EntriesField<S, V> extends Field<S> {
+    private final Function<S, Map<Integer, V>> getter;
+    private final PacketStateCodec<V> codec;
+
+    EntriesField(int id, Function<S, Map<Integer, V>> getter, PacketStateCodec<V> codec) {
+      super(id);
+      this.getter = Objects.requireNonNull(getter);
+      this.codec = Objects.requireNonNull(codec);
+    }
+
+    @Override
+    void write(ByteBuf out, S state, @Nullable PacketStateTracker tracker) {
+      Map<Integer, V> entries = this.getter.apply(state);
+      IntObjectMap<Boolean> keys = Objects.nonNull(tracker) ? tracker.dirtyEntries(this.id) : null;
+      if (Objects.isNull(tracker) || tracker.isReplaced(this.id) || Objects.isNull(keys)) {
+        out.writeBoolean(true);
+        out.writeInt(entries.size());
+        for (Map.Entry<Integer, V> entry : entries.entrySet()) {
+          out.writeInt(entry.getKey());
+          this.codec.write(out, entry.getValue());
+        }
+        out.writeInt(0);
+        return;
+      }
+      out.writeBoolean(false);
+      int upsertsIndex = out.writerIndex();
+      out.writeInt(0);
+      int upserts = 0;
+      for (int key : keys.keySet()) {
+        if (entries.containsKey(key)) {
+          out.writeInt(key);
+          this.codec.write(out, entries.get(key));
+          upserts++;
+        }
+      }
+      out.setInt(upsertsIndex, upserts);
+      out.writeInt(keys.size() - upserts);
+      for (int key : keys.keySet()) {
+        if (!entries.containsKey(key)) {
+          out.writeInt(key);
+        }
+      }
+    }
+
+    @Override
+    void read(ByteBuf in, S state) {
+      Map<Integer, V> entries = this.getter.apply(state);
+      if (in.readBoolean()) {
+        entries.clear();
+      }
+      for (int upserts = in.readInt(); upserts > 0; upserts--) {
+        int key = in.readInt();
+        entries.put(key, this.codec.read(in));
+      }
+      for (int removals = in.readInt(); removals > 0; removals--) {
+        entries.remove(in.readInt());
+      }
+    }
+  }
+}
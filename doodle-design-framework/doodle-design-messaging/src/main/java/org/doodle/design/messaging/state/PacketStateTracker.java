@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.state;
+
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import java.util.Objects;
+
+public class PacketStateTracker {
+  public static final int MAX_FIELDS = Long.SIZE;
+
+  private long dirtyFields;
+  private long replacedFields;
+  private IntObjectMap<IntObjectMap<Boolean>> dirtyEntries;
+  private int version;
+  private int deltasSinceSnapshot;
+  private boolean snapshotRequested = true;
+
+  private static long bit(int field) {
+    if (field < 0 || field >= MAX_FIELDS) {
+      throw new IllegalArgumentException("field must be in [0, " + MAX_FIELDS + "): " + field);
+    }
+    return 1L << field;
+  }
+
+  public void markDirty(int field) {
+    long bit = bit(field);
+    this.dirtyFields |= bit;
+    this.replacedFields |= bit;
+  }
+
+  public void markEntry(int field, int key) {
+    long bit = bit(field);
+    if (Objects.isNull(this.dirtyEntries)) {
+      this.dirtyEntries = new IntObjectHashMap<>();
+    }
+    IntObjectMap<Boolean> keys = this.dirtyEntries.get(field);
+    if (Objects.isNull(keys)) {
+      keys = new IntObjectHashMap<>();
+      this.dirtyEntries.put(field, keys);
+    }
+    keys.put(key, Boolean.TRUE);
+    this.dirtyFields |= bit;
+  }
+
+  public void requestSnapshot() {
+    this.snapshotRequested = true;
+  }
+
+  public boolean isSnapshotRequested() {
+    return this.snapshotRequested;
+  }
+
+  public boolean isDirty() {
+    return this.dirtyFields != 0 || this.snapshotRequested;
+  }
+
+  public long dirtyFields() {
+    return this.dirtyFields;
+  }
+
+  public boolean isDirty(int field) {
+    return (this.dirtyFields & bit(field)) != 0;
+  }
+
+  boolean isReplaced(int field) {
+    return (this.replacedFields & bit(field)) != 0;
+  }
+
+  IntObjectMap<Boolean> dirtyEntries(int field) {
+    return Objects.nonNull(this.dirtyEntries) ? this.dirtyEntries.get(field) : null;
+  }
+
+  public int version() {
+    return this.version;
+  }
+
+  public int deltasSinceSnapshot() {
+    return this.deltasSinceSnapshot;
+  }
+
+  void snapshotted(int version) {
+    this.version = version;
+    this.deltasSinceSnapshot = 0;
+    this.snapshotRequested = false;
+    clear();
+  }
+
+  void delta(int version) {
+    this.version = version;
+    this.deltasSinceSnapshot++;
+    clear();
+  }
+
+  void received(int version) {
+    this.version = version;
+  }
+
+  private void clear() {
+    this.dirtyFields = 0;
+    this.replacedFields = 0;
+    if (Objects.nonNull(this.dirtyEntries)) {
+      for (IntObjectMap<Boolean> keys : this.dirtyEntries.values()) {
+        keys.clear();
+      }
+    }
+  }
+}
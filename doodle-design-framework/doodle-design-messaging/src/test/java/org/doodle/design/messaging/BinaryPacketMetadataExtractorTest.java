@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.util.Map;
+import org.junit.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.util.MimeTypeUtils;
+
+public class BinaryPacketMetadataExtractorTest {
+  private final PacketStrategies strategies = PacketStrategies.builder().build();
+  private final BinaryPacketMetadataExtractor extractor = new BinaryPacketMetadataExtractor();
+
+  @Test
+  public void roundTripsOptionalFields() {
+    ByteBuf metadata =
+        new BinaryPacketMetadataEncoder(this.strategies)
+            .route((short) 3, (short) -7)
+            .sequence(11)
+            .flags(PacketMetadata.FLAG_REPLY)
+            .traceId(0x1234_5678_9abc_def0L)
+            .correlationId(42)
+            .encode(PooledByteBufAllocator.DEFAULT);
+    short flags =
+        PacketMetadata.FLAG_REPLY
+            | PacketMetadata.FLAG_TRACE_ID
+            | PacketMetadata.FLAG_CORRELATION_ID;
+    assertEquals(PacketMetadata.length(flags), metadata.readableBytes());
+
+    Map<String, Object> headers = extract(metadata);
+    assertEquals(
+        PacketRoute.destination((short) 3, (short) -7),
+        headers.get(PacketMetadataExtractor.ROUTE_KEY));
+    assertEquals(11, headers.get(PacketMetadataExtractor.SEQUENCE_KEY));
+    assertEquals(flags, headers.get(PacketMetadataExtractor.FLAGS_KEY));
+    assertEquals(0x1234_5678_9abc_def0L, headers.get(PacketMetadataExtractor.TRACE_ID_KEY));
+    assertEquals(42, headers.get(PacketMetadataExtractor.CORRELATION_ID_KEY));
+  }
+
+  @Test
+  public void roundTripsEachOptionalFieldOnItsOwn() {
+    Map<String, Object> traced =
+        extract(
+            new BinaryPacketMetadataEncoder(this.strategies)
+                .route((short) 1, (short) 2)
+                .traceId(-1L)
+                .encode(PooledByteBufAllocator.DEFAULT));
+    assertEquals(-1L, traced.get(PacketMetadataExtractor.TRACE_ID_KEY));
+    assertFalse(traced.containsKey(PacketMetadataExtractor.CORRELATION_ID_KEY));
+
+    Map<String, Object> correlated =
+        extract(
+            new BinaryPacketMetadataEncoder(this.strategies)
+                .route((short) 1, (short) 2)
+                .correlationId(-5)
+                .encode(PooledByteBufAllocator.DEFAULT));
+    assertEquals(-5, correlated.get(PacketMetadataExtractor.CORRELATION_ID_KEY));
+    assertFalse(correlated.containsKey(PacketMetadataExtractor.TRACE_ID_KEY));
+  }
+
+  @Test
+  public void omitsAbsentOptionalFields() {
+    ByteBuf metadata =
+        new BinaryPacketMetadataEncoder(this.strategies)
+            .route((short) 1, (short) 2)
+            .sequence(5)
+            .encode(PooledByteBufAllocator.DEFAULT);
+    assertEquals(PacketMetadata.HEADER_LENGTH, metadata.readableBytes());
+
+    Map<String, Object> headers = extract(metadata);
+    assertEquals("1.2", headers.get(PacketMetadataExtractor.ROUTE_KEY));
+    assertEquals(5, headers.get(PacketMetadataExtractor.SEQUENCE_KEY));
+    assertEquals((short) 0, headers.get(PacketMetadataExtractor.FLAGS_KEY));
+    assertFalse(headers.containsKey(PacketMetadataExtractor.TRACE_ID_KEY));
+    assertFalse(headers.containsKey(PacketMetadataExtractor.CORRELATION_ID_KEY));
+  }
+
+  @Test
+  public void roundTripsThroughDataBuffers() {
+    DataBuffer netty =
+        new BinaryPacketMetadataEncoder(this.strategies)
+            .route((short) 4, (short) 5)
+            .traceId(9L)
+            .correlationId(10)
+            .encode()
+            .block();
+    assertTrue(netty instanceof NettyDataBuffer);
+    Map<String, Object> headers = extract(((NettyDataBuffer) netty).getNativeBuffer());
+    assertEquals(9L, headers.get(PacketMetadataExtractor.TRACE_ID_KEY));
+    assertEquals(10, headers.get(PacketMetadataExtractor.CORRELATION_ID_KEY));
+
+    PacketStrategies heap =
+        PacketStrategies.builder()
+            .dataBufferFactory(DefaultDataBufferFactory.sharedInstance)
+            .build();
+    DataBuffer copied =
+        new BinaryPacketMetadataEncoder(heap)
+            .route((short) 4, (short) 5)
+            .traceId(9L)
+            .correlationId(10)
+            .encode()
+            .block();
+    byte[] bytes = new byte[copied.readableByteCount()];
+    copied.read(bytes);
+    DataBufferUtils.release(copied);
+    assertEquals(headers, extract(Unpooled.wrappedBuffer(bytes)));
+  }
+
+  @Test
+  public void rejectsTruncatedHeader() {
+    ByteBuf metadata =
+        new BinaryPacketMetadataEncoder(this.strategies)
+            .route((short) 1, (short) 2)
+            .traceId(1L)
+            .correlationId(2)
+            .encode(PooledByteBufAllocator.DEFAULT);
+    // drop the correlation id, then the trace id, then part of the fixed header
+    int[] lengths = {
+      metadata.readableBytes() - PacketMetadata.CORRELATION_ID_LENGTH,
+      PacketMetadata.HEADER_LENGTH,
+      PacketMetadata.HEADER_LENGTH - 1
+    };
+    try {
+      for (int length : lengths) {
+        ByteBuf truncated = metadata.retainedSlice(0, length);
+        assertThrows(
+            String.valueOf(length), IllegalArgumentException.class, () -> extract(truncated));
+      }
+    } finally {
+      metadata.release();
+    }
+  }
+
+  @Test
+  public void ignoresOtherMetadataMimeTypes() {
+    ByteBuf metadata =
+        new BinaryPacketMetadataEncoder(this.strategies)
+            .route((short) 1, (short) 2)
+            .encode(PooledByteBufAllocator.DEFAULT);
+    PacketPayload payload = ByteBufPacketPayload.create(Unpooled.EMPTY_BUFFER, metadata);
+    try {
+      assertTrue(this.extractor.extract(payload, MimeTypeUtils.APPLICATION_JSON).isEmpty());
+    } finally {
+      payload.release();
+    }
+  }
+
+  private Map<String, Object> extract(ByteBuf metadata) {
+    PacketPayload payload = ByteBufPacketPayload.create(Unpooled.EMPTY_BUFFER, metadata);
+    try {
+      return this.extractor.extract(payload, PacketMetadata.MIME_TYPE);
+    } finally {
+      payload.release();
+    }
+  }
+}
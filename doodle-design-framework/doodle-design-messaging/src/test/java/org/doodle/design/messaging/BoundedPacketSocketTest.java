@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class BoundedPacketSocketTest {
+  private final TestPacketSocket delegate = new TestPacketSocket();
+  private final List<BoundedPacketSocket.OverloadPolicy> overloads = new ArrayList<>();
+
+  private BoundedPacketSocket socket(int maxPackets, BoundedPacketSocket.OverloadPolicy policy) {
+    return new BoundedPacketSocket(delegate, maxPackets, 1 << 20, policy, group -> group == 9)
+        .onOverload(overloads::add);
+  }
+
+  private static PacketPayload packet(int group, String data) {
+    return ByteBufPacketPayload.create(
+        Unpooled.copiedBuffer(data, StandardCharsets.UTF_8),
+        PacketMetadata.write(Unpooled.buffer(), (short) group, (short) 1, (short) 0, 0, 0, 0));
+  }
+
+  @Test
+  public void passesThroughWhileWritable() {
+    BoundedPacketSocket socket = socket(2, BoundedPacketSocket.OverloadPolicy.REJECT);
+    socket.send(packet(1, "a"));
+    socket.send(packet(1, "b"));
+    socket.send(packet(1, "c"));
+    assertEquals(List.of("a", "b", "c"), delegate.sentData());
+    assertEquals(0, socket.queuedPackets());
+    delegate.releaseSent();
+  }
+
+  @Test
+  public void queuesWhileNotWritableAndDrainsInOrder() {
+    BoundedPacketSocket socket = socket(4, BoundedPacketSocket.OverloadPolicy.REJECT);
+    delegate.setWritable(false);
+    socket.send(packet(1, "a"));
+    socket.send(packet(1, "b"));
+    assertTrue(delegate.sent.isEmpty());
+    assertEquals(2, socket.queuedPackets());
+    assertTrue(socket.isUnderPressure());
+    Boolean[] resumed = {false};
+    socket.whenWritable().subscribe(null, null, () -> resumed[0] = true);
+    delegate.setWritable(true);
+    assertEquals(List.of("a", "b"), delegate.sentData());
+    assertFalse(socket.isUnderPressure());
+    assertTrue(resumed[0]);
+    delegate.releaseSent();
+  }
+
+  @Test
+  public void rejectReleasesPacketWithoutThrowing() {
+    BoundedPacketSocket socket = socket(1, BoundedPacketSocket.OverloadPolicy.REJECT);
+    delegate.setWritable(false);
+    socket.send(packet(1, "a"));
+    PacketPayload rejected = packet(1, "b");
+    socket.send(rejected);
+    assertEquals(0, rejected.refCnt());
+    assertEquals(List.of(BoundedPacketSocket.OverloadPolicy.REJECT), overloads);
+    assertFalse(delegate.isDisposed());
+    socket.dispose();
+  }
+
+  @Test
+  public void disconnectDisposesDelegateAndReleasesQueue() {
+    BoundedPacketSocket socket = socket(1, BoundedPacketSocket.OverloadPolicy.DISCONNECT);
+    delegate.setWritable(false);
+    PacketPayload queued = packet(1, "a");
+    socket.send(queued);
+    PacketPayload overflow = packet(1, "b");
+    socket.send(overflow);
+    assertTrue(delegate.isDisposed());
+    assertEquals(0, queued.refCnt());
+    assertEquals(0, overflow.refCnt());
+    assertEquals(List.of(BoundedPacketSocket.OverloadPolicy.DISCONNECT), overloads);
+  }
+
+  @Test
+  public void dropOldestOnlyDropsDroppableGroups() {
+    BoundedPacketSocket socket = socket(2, BoundedPacketSocket.OverloadPolicy.DROP_OLDEST);
+    delegate.setWritable(false);
+    socket.send(packet(1, "keep"));
+    PacketPayload droppable = packet(9, "drop");
+    socket.send(droppable);
+    socket.send(packet(1, "new"));
+    assertEquals(0, droppable.refCnt());
+    assertEquals(List.of(BoundedPacketSocket.OverloadPolicy.DROP_OLDEST), overloads);
+    delegate.setWritable(true);
+    assertEquals(List.of("keep", "new"), delegate.sentData());
+    delegate.releaseSent();
+  }
+
+  @Test(timeout = 10_000)
+  public void writabilityCallbackFromDelegateLockDoesNotDeadlock() throws InterruptedException {
+    BoundedPacketSocket socket = socket(1 << 16, BoundedPacketSocket.OverloadPolicy.REJECT);
+    long end = System.nanoTime() + Duration.ofMillis(300).toNanos();
+    Thread flipper =
+        new Thread(
+            () -> {
+              boolean writable = false;
+              while (System.nanoTime() < end) {
+                synchronized (delegate) {
+                  delegate.setWritable(writable = !writable);
+                }
+              }
+              synchronized (delegate) {
+                delegate.setWritable(true);
+              }
+            });
+    flipper.start();
+    int sent = 0;
+    while (System.nanoTime() < end) {
+      socket.send(packet(1, "x"));
+      sent++;
+    }
+    flipper.join();
+    socket.send(packet(1, "x"));
+    assertEquals(sent + 1, delegate.sent.size());
+    delegate.releaseSent();
+  }
+}
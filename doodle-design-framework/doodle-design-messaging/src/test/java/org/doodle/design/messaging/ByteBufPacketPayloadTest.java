@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.ResourceLeakDetector;
+import org.junit.After;
+import org.junit.Test;
+
+public class ByteBufPacketPayloadTest {
+  private final ResourceLeakDetector.Level level = ResourceLeakDetector.getLevel();
+  private final boolean leakDetection = ByteBufPacketPayload.isLeakDetection();
+
+  @After
+  public void tearDown() {
+    ResourceLeakDetector.setLevel(level);
+    ByteBufPacketPayload.setLeakDetection(leakDetection);
+  }
+
+  @Test
+  public void leakDetectionTracksEveryPayloadEvenWhenSamplingIsDisabled() {
+    ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.DISABLED);
+    ByteBufPacketPayload.setLeakDetection(true);
+    ByteBufPacketPayload payload = ByteBufPacketPayload.create("data");
+    try {
+      assertTrue(payload.isTracked());
+    } finally {
+      payload.release();
+    }
+  }
+
+  @Test
+  public void trackingFollowsNettyLevelWithoutOptIn() {
+    ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.DISABLED);
+    ByteBufPacketPayload.setLeakDetection(false);
+    ByteBufPacketPayload payload = ByteBufPacketPayload.create("data");
+    try {
+      assertFalse(payload.isTracked());
+    } finally {
+      payload.release();
+    }
+  }
+
+  @Test
+  public void releaseFreesDataAndMetadata() {
+    ByteBuf data = Unpooled.buffer().writeInt(1);
+    ByteBuf metadata = Unpooled.buffer().writeInt(2);
+    ByteBufPacketPayload payload = ByteBufPacketPayload.create(data, metadata);
+    payload.retain();
+    assertFalse(payload.release());
+    assertEquals(1, data.refCnt());
+    assertTrue(payload.release());
+    assertEquals(0, data.refCnt());
+    assertEquals(0, metadata.refCnt());
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+public class CoalescingPacketSocketTest {
+  private final Queue<Runnable> tasks = new ArrayDeque<>();
+  private final TestPacketSocket delegate = new TestPacketSocket();
+
+  {
+    delegate.executor = tasks::add;
+  }
+
+  private void runTasks() {
+    Runnable task;
+    while ((task = tasks.poll()) != null) {
+      task.run();
+    }
+  }
+
+  @Test
+  public void flushesOnSocketExecutorAsOneBatch() {
+    CoalescingPacketSocket socket = new CoalescingPacketSocket(delegate);
+    socket.send(ByteBufPacketPayload.create("a"));
+    socket.send(ByteBufPacketPayload.create("b"));
+    socket.send(ByteBufPacketPayload.create("c"));
+    assertTrue(delegate.sent.isEmpty());
+    assertEquals(1, tasks.size());
+    runTasks();
+    assertEquals(List.of("a", "b", "c"), delegate.sentData());
+    assertEquals(List.of(3), delegate.batches);
+    delegate.releaseSent();
+  }
+
+  @Test
+  public void splitsBatchesAtMaxBatchSize() {
+    CoalescingPacketSocket socket = new CoalescingPacketSocket(delegate, null, Duration.ZERO, 2);
+    for (String data : List.of("a", "b", "c", "d", "e")) {
+      socket.send(ByteBufPacketPayload.create(data));
+    }
+    runTasks();
+    assertEquals(List.of(2, 2, 1), delegate.batches);
+    delegate.releaseSent();
+  }
+
+  @Test
+  public void releasesQueuedPayloadsAndRecoversWhenExecutorRejects() {
+    delegate.executor =
+        task -> {
+          throw new RejectedExecutionException();
+        };
+    CoalescingPacketSocket socket = new CoalescingPacketSocket(delegate);
+    ByteBufPacketPayload rejected = ByteBufPacketPayload.create("a");
+    socket.send(rejected);
+    assertEquals(0, rejected.refCnt());
+
+    delegate.executor = tasks::add;
+    socket.send(ByteBufPacketPayload.create("b"));
+    runTasks();
+    assertEquals(List.of("b"), delegate.sentData());
+    delegate.releaseSent();
+  }
+
+  @Test
+  public void windowTimerHandsFlushToSocketExecutor() throws InterruptedException {
+    delegate.executor =
+        task -> {
+          synchronized (tasks) {
+            tasks.add(task);
+          }
+        };
+    Scheduler timer = Schedulers.newSingle("coalescing-test");
+    try {
+      CoalescingPacketSocket socket =
+          new CoalescingPacketSocket(delegate, timer, Duration.ofMillis(20), 64);
+      socket.send(ByteBufPacketPayload.create("a"));
+      socket.send(ByteBufPacketPayload.create("b"));
+      long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+      while (tasksEmpty() && System.nanoTime() < deadline) {
+        Thread.sleep(5);
+      }
+      assertTrue(delegate.sent.isEmpty());
+      synchronized (tasks) {
+        runTasks();
+      }
+      assertEquals(List.of(2), delegate.batches);
+      delegate.releaseSent();
+    } finally {
+      timer.dispose();
+    }
+  }
+
+  @Test
+  public void forwardsWritabilityToDelegate() {
+    CoalescingPacketSocket socket = new CoalescingPacketSocket(delegate);
+    AtomicInteger changes = new AtomicInteger();
+    assertSame(socket, socket.onWritabilityChanged(changes::incrementAndGet));
+    assertTrue(socket.isWritable());
+    delegate.setWritable(false);
+    assertFalse(socket.isWritable());
+    delegate.setWritable(true);
+    assertTrue(socket.isWritable());
+    assertEquals(2, changes.get());
+  }
+
+  private boolean tasksEmpty() {
+    synchronized (tasks) {
+      return tasks.isEmpty();
+    }
+  }
+}
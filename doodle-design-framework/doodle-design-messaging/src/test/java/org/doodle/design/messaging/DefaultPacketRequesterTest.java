@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.util.MimeTypeUtils;
+
+public class DefaultPacketRequesterTest {
+  private final TestPacketSocket socket = new TestPacketSocket();
+
+  private DefaultPacketRequester requester(PacketStrategies strategies) {
+    return new DefaultPacketRequester(
+        socket,
+        MimeTypeUtils.APPLICATION_OCTET_STREAM,
+        PacketMetadata.MIME_TYPE,
+        strategies,
+        Duration.ofMillis(50));
+  }
+
+  @Test
+  public void requestTimesOutAndForgetsCorrelation() {
+    DefaultPacketRequester requester = requester(PacketStrategies.builder().build());
+    Throwable error =
+        assertThrows(
+            RuntimeException.class,
+            () ->
+                requester
+                    .route((short) 1, (short) 1)
+                    .data("ping")
+                    .retrieveMono(String.class)
+                    .block(Duration.ofSeconds(5)));
+    assertEquals(TimeoutException.class, error.getCause().getClass());
+    long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+    while (requester.correlator().size() > 0 && System.nanoTime() < deadline) {
+      Thread.onSpinWait();
+    }
+    assertEquals(0, requester.correlator().size());
+    assertEquals(1, socket.sent.size());
+    socket.releaseSent();
+  }
+
+  @Test
+  public void replyIsDecodedForMatchingRequest() throws Exception {
+    DefaultPacketRequester requester = requester(PacketStrategies.builder().build());
+    CompletableFuture<String> reply =
+        requester.route((short) 1, (short) 1).data("ping").retrieveMono(String.class).toFuture();
+    int correlationId = new PacketMetadata().wrap(socket.sent.get(0).metadata()).correlationId();
+    short flags = PacketMetadata.FLAG_REPLY | PacketMetadata.FLAG_CORRELATION_ID;
+    PacketMetadata metadata =
+        new PacketMetadata()
+            .wrap(
+                PacketMetadata.write(
+                    Unpooled.buffer(), (short) 1, (short) 1, flags, 0, 0, correlationId));
+    requester.handleReply(metadata, ByteBufPacketPayload.create("pong"));
+    assertEquals("pong", reply.get(5, TimeUnit.SECONDS));
+    assertEquals(0, requester.correlator().size());
+    socket.releaseSent();
+  }
+
+  @Test
+  public void decodedDataBufferOutlivesPooledPayload() {
+    assertDataBufferOwned(
+        PacketStrategies.builder()
+            .dataBufferFactory(new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT))
+            .build());
+  }
+
+  @Test
+  public void decodedDataBufferIsCopiedForNonNettyFactory() {
+    assertDataBufferOwned(
+        PacketStrategies.builder()
+            .dataBufferFactory(DefaultDataBufferFactory.sharedInstance)
+            .build());
+  }
+
+  private void assertDataBufferOwned(PacketStrategies strategies) {
+    DefaultPacketRequester requester = requester(strategies);
+    ByteBufPacketPayload payload = ByteBufPacketPayload.create("bag");
+    DataBuffer data = requester.decodeData(payload, DataBuffer.class);
+    assertEquals(0, payload.refCnt());
+    ByteBufPacketPayload.create("recycled").release();
+    assertEquals("bag", data.toString(StandardCharsets.UTF_8));
+    DataBufferUtils.release(data);
+  }
+}
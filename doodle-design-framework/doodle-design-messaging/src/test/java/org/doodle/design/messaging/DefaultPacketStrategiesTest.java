@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+import com.google.protobuf.Timestamp;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractDecoder;
+import org.springframework.core.codec.AbstractEncoder;
+import org.springframework.core.codec.Decoder;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.RouteMatcher;
+import reactor.core.publisher.Flux;
+
+public class DefaultPacketStrategiesTest {
+  private static final ResolvableType CUSTOM = ResolvableType.forClass(Custom.class);
+  private static final ResolvableType UNKNOWN = ResolvableType.forClass(Unknown.class);
+
+  private final CountingEncoder customEncoder = new CountingEncoder();
+  private final CountingDecoder customDecoder = new CountingDecoder();
+  private final PacketStrategies strategies =
+      PacketStrategies.builder().encoder(this.customEncoder).decoder(this.customDecoder).build();
+
+  @Test
+  public void returnsTheSameCodecOnRepeatLookups() {
+    Encoder<Object> encoder = this.strategies.encoder(CUSTOM, null);
+    Decoder<Object> decoder = this.strategies.decoder(CUSTOM, null);
+    assertSame(this.customEncoder, encoder);
+    assertSame(this.customDecoder, decoder);
+    assertSame(encoder, this.strategies.encoder(CUSTOM, null));
+    assertSame(decoder, this.strategies.decoder(CUSTOM, null));
+    assertEquals(1, this.customEncoder.lookups.get());
+    assertEquals(1, this.customDecoder.lookups.get());
+  }
+
+  @Test
+  public void cachesMissesWithoutRescanning() {
+    assertThrows(IllegalArgumentException.class, () -> this.strategies.encoder(UNKNOWN, null));
+    assertThrows(IllegalArgumentException.class, () -> this.strategies.decoder(UNKNOWN, null));
+    assertEquals(1, this.customEncoder.lookups.get());
+    assertEquals(1, this.customDecoder.lookups.get());
+
+    assertThrows(IllegalArgumentException.class, () -> this.strategies.encoder(UNKNOWN, null));
+    assertThrows(IllegalArgumentException.class, () -> this.strategies.decoder(UNKNOWN, null));
+    assertEquals(1, this.customEncoder.lookups.get());
+    assertEquals(1, this.customDecoder.lookups.get());
+  }
+
+  @Test
+  public void cachesEachTypeAndMimeTypeSeparately() {
+    this.strategies.encoder(CUSTOM, null);
+    this.strategies.encoder(CUSTOM, MimeTypeUtils.APPLICATION_OCTET_STREAM);
+    this.strategies.encoder(CUSTOM, MimeTypeUtils.APPLICATION_OCTET_STREAM);
+    assertEquals(2, this.customEncoder.lookups.get());
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> this.strategies.encoder(CUSTOM, MimeTypeUtils.TEXT_PLAIN));
+    assertEquals(3, this.customEncoder.lookups.get());
+
+    Encoder<?> string = this.strategies.encoder(ResolvableType.forClass(String.class), null);
+    Encoder<?> bytes = this.strategies.encoder(ResolvableType.forClass(byte[].class), null);
+    assertNotSame(string, bytes);
+  }
+
+  @Test
+  public void matchesTheLinearScan() {
+    PacketStrategies uncached = new LinearPacketStrategies(this.strategies);
+    List<ResolvableType> types =
+        List.of(
+            ResolvableType.forClass(String.class),
+            ResolvableType.forClass(StringBuilder.class),
+            ResolvableType.forClass(byte[].class),
+            ResolvableType.forClass(ByteBuffer.class),
+            ResolvableType.forClass(DataBuffer.class),
+            ResolvableType.forClass(Timestamp.class),
+            CUSTOM,
+            UNKNOWN);
+    List<MimeType> mimeTypes =
+        Arrays.asList(
+            null,
+            MimeTypeUtils.TEXT_PLAIN,
+            MimeTypeUtils.APPLICATION_OCTET_STREAM,
+            MimeTypeUtils.APPLICATION_JSON);
+    for (int round = 0; round < 2; round++) {
+      for (ResolvableType type : types) {
+        for (MimeType mimeType : mimeTypes) {
+          String message = type + " " + mimeType;
+          assertEquals(
+              message,
+              lookup(() -> uncached.encoder(type, mimeType)),
+              lookup(() -> this.strategies.encoder(type, mimeType)));
+          assertEquals(
+              message,
+              lookup(() -> uncached.decoder(type, mimeType)),
+              lookup(() -> this.strategies.decoder(type, mimeType)));
+        }
+      }
+    }
+  }
+
+  private static Object lookup(Supplier<?> lookup) {
+    try {
+      return lookup.get();
+    } catch (IllegalArgumentException ex) {
+      return ex.getMessage();
+    }
+  }
+
+  static class Custom {}
+
+  static class Unknown {}
+
+  static class CountingEncoder extends AbstractEncoder<Custom> {
+    final AtomicInteger lookups = new AtomicInteger();
+
+    CountingEncoder() {
+      super(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+    }
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, @Nullable MimeType mimeType) {
+      this.lookups.incrementAndGet();
+      return Custom.class.equals(elementType.toClass()) && super.canEncode(elementType, mimeType);
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(
+        Publisher<? extends Custom> inputStream,
+        DataBufferFactory bufferFactory,
+        ResolvableType elementType,
+        @Nullable MimeType mimeType,
+        @Nullable Map<String, Object> hints) {
+      return Flux.error(new UnsupportedOperationException());
+    }
+  }
+
+  static class CountingDecoder extends AbstractDecoder<Custom> {
+    final AtomicInteger lookups = new AtomicInteger();
+
+    CountingDecoder() {
+      super(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+    }
+
+    @Override
+    public boolean canDecode(ResolvableType elementType, @Nullable MimeType mimeType) {
+      this.lookups.incrementAndGet();
+      return Custom.class.equals(elementType.toClass()) && super.canDecode(elementType, mimeType);
+    }
+
+    @Override
+    public Flux<Custom> decode(
+        Publisher<DataBuffer> inputStream,
+        ResolvableType elementType,
+        @Nullable MimeType mimeType,
+        @Nullable Map<String, Object> hints) {
+      return Flux.error(new UnsupportedOperationException());
+    }
+  }
+
+  // relies on the interface's linear scan instead of the cache
+  static class LinearPacketStrategies implements PacketStrategies {
+    private final PacketStrategies delegate;
+
+    LinearPacketStrategies(PacketStrategies delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public List<Encoder<?>> encoders() {
+      return this.delegate.encoders();
+    }
+
+    @Override
+    public List<Decoder<?>> decoders() {
+      return this.delegate.decoders();
+    }
+
+    @Override
+    public RouteMatcher routeMatcher() {
+      return this.delegate.routeMatcher();
+    }
+
+    @Override
+    public DataBufferFactory dataBufferFactory() {
+      return this.delegate.dataBufferFactory();
+    }
+
+    @Override
+    public PacketMetadataExtractor metadataExtractor() {
+      return this.delegate.metadataExtractor();
+    }
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import org.junit.Test;
+import org.springframework.util.MimeTypeUtils;
+
+public class PacketBroadcasterTest {
+  private final PacketStrategies strategies = PacketStrategies.builder().build();
+  private final PacketBroadcaster broadcaster =
+      new PacketBroadcaster(strategies, MimeTypeUtils.APPLICATION_OCTET_STREAM);
+
+  private PacketRequester requester(TestPacketSocket socket) {
+    return PacketRequester.wrap(
+        socket, MimeTypeUtils.APPLICATION_OCTET_STREAM, PacketMetadata.MIME_TYPE, strategies);
+  }
+
+  @Test
+  public void membershipSurvivesExecutorChange() {
+    TestPacketSocket socket = new TestPacketSocket();
+    PacketRequester requester = requester(socket);
+    assertTrue(broadcaster.add(requester));
+
+    Executor resumed = Runnable::run;
+    socket.executor = resumed;
+    assertTrue(broadcaster.contains(requester));
+    assertFalse(broadcaster.add(requester));
+    assertEquals(1, broadcaster.size());
+
+    broadcaster.broadcast((short) 1, (short) 1, "hello").block(Duration.ofSeconds(5));
+    assertEquals(1, socket.sent.size());
+
+    assertTrue(broadcaster.remove(requester));
+    assertFalse(broadcaster.contains(requester));
+    assertEquals(0, broadcaster.size());
+    assertEquals(0, broadcaster.partitionCount());
+    socket.releaseSent();
+  }
+
+  @Test
+  public void emptyPartitionsAreDropped() {
+    TestPacketSocket first = new TestPacketSocket();
+    TestPacketSocket second = new TestPacketSocket();
+    second.executor = Runnable::run;
+    PacketRequester a = requester(first);
+    PacketRequester b = requester(second);
+    broadcaster.add(a);
+    broadcaster.add(b);
+    assertEquals(2, broadcaster.partitionCount());
+    broadcaster.remove(a);
+    assertEquals(1, broadcaster.partitionCount());
+    broadcaster.remove(b);
+    assertEquals(0, broadcaster.partitionCount());
+  }
+
+  @Test
+  public void disposedMembersAreRemovedOnBroadcast() {
+    TestPacketSocket live = new TestPacketSocket();
+    TestPacketSocket closed = new TestPacketSocket();
+    broadcaster.add(requester(live));
+    broadcaster.add(requester(closed));
+    closed.dispose();
+    broadcaster.broadcast((short) 1, (short) 1, "hello").block(Duration.ofSeconds(5));
+    assertEquals(1, live.sent.size());
+    assertEquals(0, closed.sent.size());
+    assertEquals(1, broadcaster.size());
+    live.releaseSent();
+  }
+}
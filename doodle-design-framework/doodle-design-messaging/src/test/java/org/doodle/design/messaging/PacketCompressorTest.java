@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+import org.junit.Test;
+
+public class PacketCompressorTest {
+  private static final ByteBufAllocator ALLOC = ByteBufAllocator.DEFAULT;
+
+  private final PacketCompressor compressor = new PacketCompressor(64, 1 << 20);
+
+  @Test
+  public void compressedPacketsRoundTrip() throws DataFormatException {
+    byte[] bytes = "doodle-packet-".repeat(300).getBytes();
+    PacketPayload payload = packet(bytes, PacketMetadata.FLAG_CORRELATION_ID);
+    PacketPayload compressed = compressor.compress(ALLOC, payload);
+    assertNotNull(compressed);
+    assertTrue(compressed.data().readableBytes() < bytes.length);
+    PacketMetadata metadata = new PacketMetadata().wrap(compressed.metadata());
+    assertTrue(metadata.hasFlag(PacketMetadata.FLAG_COMPRESSED));
+    assertEquals(42, metadata.correlationId());
+    PacketPayload decompressed = compressor.decompress(ALLOC, compressed);
+    assertEquals(ByteBufUtil.hexDump(bytes), ByteBufUtil.hexDump(decompressed.data()));
+    metadata = new PacketMetadata().wrap(decompressed.metadata());
+    assertFalse(metadata.hasFlag(PacketMetadata.FLAG_COMPRESSED));
+    assertTrue(metadata.hasFlag(PacketMetadata.FLAG_CORRELATION_ID));
+    assertEquals(7, metadata.group());
+    assertEquals(42, metadata.correlationId());
+    release(payload, compressed, decompressed);
+  }
+
+  @Test
+  public void smallIncompressibleOrCompressedPacketsAreLeftAlone() {
+    PacketPayload small = packet(new byte[32], (short) 0);
+    assertNull(compressor.compress(ALLOC, small));
+    assertNull(new PacketCompressor(0, 1 << 20).compress(ALLOC, small));
+    byte[] random = new byte[4096];
+    new Random(1).nextBytes(random);
+    PacketPayload incompressible = packet(random, (short) 0);
+    assertNull(compressor.compress(ALLOC, incompressible));
+    PacketPayload compressed = packet(new byte[4096], PacketMetadata.FLAG_COMPRESSED);
+    assertNull(compressor.compress(ALLOC, compressed));
+    release(small, incompressible, compressed);
+  }
+
+  @Test
+  public void decompressRejectsLengthsAboveTheCap() {
+    PacketPayload payload = packet(new byte[4096], (short) 0);
+    PacketPayload compressed = compressor.compress(ALLOC, payload);
+    assertNotNull(compressed);
+    PacketCompressor capped = new PacketCompressor(64, 1024);
+    DataFormatException error =
+        assertThrows(DataFormatException.class, () -> capped.decompress(ALLOC, compressed));
+    assertTrue(error.getMessage(), error.getMessage().contains("4096"));
+    release(payload, compressed);
+  }
+
+  @Test
+  public void decompressRejectsMismatchedOrTruncatedData() {
+    PacketPayload payload = packet(new byte[4096], (short) 0);
+    PacketPayload compressed = compressor.compress(ALLOC, payload);
+    assertNotNull(compressed);
+    compressed.data().setInt(compressed.data().readerIndex(), 100);
+    assertThrows(DataFormatException.class, () -> compressor.decompress(ALLOC, compressed));
+    compressed.data().setInt(compressed.data().readerIndex(), -1);
+    assertThrows(DataFormatException.class, () -> compressor.decompress(ALLOC, compressed));
+    PacketPayload truncated = packet(new byte[2], PacketMetadata.FLAG_COMPRESSED);
+    assertThrows(DataFormatException.class, () -> compressor.decompress(ALLOC, truncated));
+    release(payload, compressed, truncated);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsInvalidLevel() {
+    new PacketCompressor(64, 10, 1024);
+  }
+
+  private static PacketPayload packet(byte[] data, short flags) {
+    ByteBuf metadata =
+        PacketMetadata.write(Unpooled.buffer(), (short) 7, (short) 1, flags, 0, 0, 42);
+    return ByteBufPacketPayload.create(Unpooled.wrappedBuffer(data), metadata);
+  }
+
+  private static void release(PacketPayload... payloads) {
+    for (PacketPayload payload : payloads) {
+      payload.release();
+    }
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import org.junit.Test;
+
+public class PacketCorrelatorTest {
+  private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+  private final PacketCorrelator correlator = new PacketCorrelator();
+
+  private static PacketMetadata reply(int correlationId, boolean complete) {
+    short flags = PacketMetadata.FLAG_REPLY | PacketMetadata.FLAG_CORRELATION_ID;
+    if (complete) {
+      flags |= PacketMetadata.FLAG_COMPLETE;
+    }
+    ByteBuf buffer =
+        PacketMetadata.write(Unpooled.buffer(), (short) 1, (short) 1, flags, 0, 0, correlationId);
+    return new PacketMetadata().wrap(buffer);
+  }
+
+  @Test
+  public void routesRepliesByCorrelationId() {
+    PacketCorrelator.Pending first = correlator.register(true);
+    PacketCorrelator.Pending second = correlator.register(true);
+    assertTrue(correlator.handleReply(reply(second.id(), false), ByteBufPacketPayload.create("2")));
+    assertTrue(correlator.handleReply(reply(first.id(), false), ByteBufPacketPayload.create("1")));
+    assertEquals("1", take(first));
+    assertEquals("2", take(second));
+    assertEquals(0, correlator.size());
+  }
+
+  @Test
+  public void streamsUntilCompleteReply() {
+    PacketCorrelator.Pending pending = correlator.register(false);
+    correlator.handleReply(reply(pending.id(), false), ByteBufPacketPayload.create("a"));
+    correlator.handleReply(reply(pending.id(), false), ByteBufPacketPayload.create("b"));
+    assertEquals(1, correlator.size());
+    correlator.handleReply(reply(pending.id(), true), ByteBufPacketPayload.create(""));
+    assertEquals(0, correlator.size());
+    List<String> replies =
+        pending
+            .replies()
+            .map(
+                payload -> {
+                  try {
+                    return payload.getDataUtf8();
+                  } finally {
+                    payload.release();
+                  }
+                })
+            .collectList()
+            .block(TIMEOUT);
+    assertEquals(List.of("a", "b"), replies);
+  }
+
+  @Test
+  public void releasesRepliesForUnknownRequests() {
+    ByteBufPacketPayload payload = ByteBufPacketPayload.create("late");
+    assertTrue(correlator.handleReply(reply(42, false), payload));
+    assertEquals(0, payload.refCnt());
+  }
+
+  @Test
+  public void releasesRepliesForCancelledRequests() {
+    PacketCorrelator.Pending pending = correlator.register(false);
+    pending.replies().subscribe().dispose();
+    ByteBufPacketPayload payload = ByteBufPacketPayload.create("dropped");
+    correlator.handleReply(reply(pending.id(), false), payload);
+    assertEquals(0, payload.refCnt());
+  }
+
+  @Test
+  public void ignoresPacketsThatAreNotReplies() {
+    ByteBuf buffer =
+        PacketMetadata.write(Unpooled.buffer(), (short) 1, (short) 1, (short) 0, 0, 0, 0);
+    ByteBufPacketPayload payload = ByteBufPacketPayload.create("request");
+    try {
+      assertEquals(false, correlator.handleReply(new PacketMetadata().wrap(buffer), payload));
+    } finally {
+      payload.release();
+    }
+  }
+
+  @Test
+  public void disposeFailsPendingRequestsAndRejectsNewOnes() {
+    PacketCorrelator.Pending pending = correlator.register(true);
+    correlator.dispose();
+    assertThrows(CancellationException.class, () -> pending.replies().blockFirst(TIMEOUT));
+    assertThrows(CancellationException.class, () -> correlator.register(true));
+  }
+
+  @Test
+  public void concurrentRegistrationsGetDistinctIds() throws InterruptedException {
+    int threads = 8;
+    int perThread = 1_000;
+    Thread[] workers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      workers[t] =
+          new Thread(
+              () -> {
+                for (int i = 0; i < perThread; i++) {
+                  correlator.register(true);
+                }
+              });
+      workers[t].start();
+    }
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    assertEquals(threads * perThread, correlator.size());
+  }
+
+  private static String take(PacketCorrelator.Pending pending) {
+    PacketPayload payload = pending.replies().blockFirst(TIMEOUT);
+    try {
+      return payload.getDataUtf8();
+    } finally {
+      payload.release();
+    }
+  }
+}
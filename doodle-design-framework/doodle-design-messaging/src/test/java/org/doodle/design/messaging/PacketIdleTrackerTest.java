@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+public class PacketIdleTrackerTest {
+  // 8 slots of 10ms, so one rotation of the wheel is 80ms
+  private final PacketIdleTracker tracker = new PacketIdleTracker(Duration.ofMillis(10), 8);
+  private final AtomicInteger executions = new AtomicInteger();
+  private final Executor executor =
+      command -> {
+        this.executions.incrementAndGet();
+        command.run();
+      };
+
+  @After
+  public void tearDown() {
+    this.tracker.dispose();
+  }
+
+  @Test
+  public void firesAfterTimeout() throws InterruptedException {
+    CountDownLatch fired = new CountDownLatch(1);
+    long start = System.nanoTime();
+    this.tracker.register(50, this.executor, fired::countDown);
+    assertTrue(fired.await(5, TimeUnit.SECONDS));
+    assertTrue(elapsedMillis(start) >= 40);
+  }
+
+  @Test
+  public void touchPushesDeadlineBack() throws InterruptedException {
+    CountDownLatch fired = new CountDownLatch(1);
+    PacketIdleTracker.Entry entry = this.tracker.register(100, this.executor, fired::countDown);
+    long start = System.nanoTime();
+    while (elapsedMillis(start) < 300) {
+      entry.touch();
+      Thread.sleep(5);
+    }
+    assertEquals(1, fired.getCount());
+    long idle = System.nanoTime();
+    assertTrue(fired.await(5, TimeUnit.SECONDS));
+    assertTrue(elapsedMillis(idle) >= 80);
+  }
+
+  @Test
+  public void timeoutsLongerThanOneRotationWaitForTheirDeadline() throws InterruptedException {
+    CountDownLatch fired = new CountDownLatch(1);
+    long start = System.nanoTime();
+    this.tracker.register(250, this.executor, fired::countDown);
+    assertTrue(fired.await(5, TimeUnit.SECONDS));
+    assertTrue(elapsedMillis(start) >= 240);
+  }
+
+  @Test
+  public void keepsFiringWhileIdle() throws InterruptedException {
+    CountDownLatch fired = new CountDownLatch(3);
+    this.tracker.register(20, this.executor, fired::countDown);
+    assertTrue(fired.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void disposedEntriesDoNotFireAndAreRemoved() throws InterruptedException {
+    AtomicInteger fired = new AtomicInteger();
+    PacketIdleTracker.Entry entry =
+        this.tracker.register(30, this.executor, fired::incrementAndGet);
+    entry.dispose();
+    assertEquals(1, this.tracker.size());
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (this.tracker.size() > 0 && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals(0, this.tracker.size());
+    Thread.sleep(100);
+    assertEquals(0, fired.get());
+  }
+
+  @Test
+  public void batchesCallbacksPerExecutor() throws InterruptedException {
+    int sockets = 20;
+    CountDownLatch fired = new CountDownLatch(sockets);
+    PacketIdleTracker.Entry[] entries = new PacketIdleTracker.Entry[sockets];
+    for (int i = 0; i < sockets; i++) {
+      int socket = i;
+      entries[i] =
+          this.tracker.register(
+              50,
+              this.executor,
+              () -> {
+                // fire once so later rounds cannot add executions
+                entries[socket].dispose();
+                fired.countDown();
+              });
+    }
+    assertTrue(fired.await(5, TimeUnit.SECONDS));
+    // registrations may straddle one tick boundary, which splits them into two batches
+    assertTrue(String.valueOf(this.executions.get()), this.executions.get() <= 2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsWheelSizesThatAreNotPowersOfTwo() {
+    new PacketIdleTracker(Duration.ofMillis(10), 6);
+  }
+
+  private static long elapsedMillis(long startNanos) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+  }
+}
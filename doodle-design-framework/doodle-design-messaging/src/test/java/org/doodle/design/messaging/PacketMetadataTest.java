@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+public class PacketMetadataTest {
+
+  @Test
+  public void readsOptionalFieldsAfterHeader() {
+    short flags = PacketMetadata.FLAG_TRACE_ID | PacketMetadata.FLAG_CORRELATION_ID;
+    ByteBuf buffer =
+        PacketMetadata.write(Unpooled.buffer(), (short) 2, (short) 3, flags, 7, 99L, 42);
+    PacketMetadata metadata = new PacketMetadata().wrap(buffer);
+    assertEquals(2, metadata.group());
+    assertEquals(3, metadata.cmd());
+    assertEquals(7, metadata.sequence());
+    assertEquals(99L, metadata.traceId());
+    assertEquals(42, metadata.correlationId());
+    assertEquals(PacketMetadata.length(flags), buffer.readableBytes());
+  }
+
+  @Test
+  public void rejectsHeaderShorterThanFixedLength() {
+    ByteBuf buffer = Unpooled.buffer().writeZero(PacketMetadata.HEADER_LENGTH - 1);
+    assertThrows(IllegalArgumentException.class, () -> new PacketMetadata().wrap(buffer));
+  }
+
+  @Test
+  public void rejectsTraceIdFlagWithoutTraceId() {
+    assertTruncatedRejected(PacketMetadata.FLAG_TRACE_ID);
+  }
+
+  @Test
+  public void rejectsCorrelationIdFlagWithoutCorrelationId() {
+    assertTruncatedRejected(PacketMetadata.FLAG_CORRELATION_ID);
+  }
+
+  private static void assertTruncatedRejected(short flags) {
+    ByteBuf buffer = Unpooled.buffer();
+    buffer.writeShort(1).writeShort(1).writeShort(flags).writeInt(0);
+    assertThrows(IllegalArgumentException.class, () -> new PacketMetadata().wrap(buffer));
+  }
+}
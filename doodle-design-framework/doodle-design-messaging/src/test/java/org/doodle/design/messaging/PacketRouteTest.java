@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class PacketRouteTest {
+
+  @Test
+  public void packRoundTripsGroupAndCmd() {
+    short[] values = {0, 1, 255, 256, Short.MAX_VALUE, -1, Short.MIN_VALUE};
+    for (short group : values) {
+      for (short cmd : values) {
+        int route = PacketRoute.pack(group, cmd);
+        assertEquals(group, PacketRoute.group(route));
+        assertEquals(cmd, PacketRoute.cmd(route));
+      }
+    }
+  }
+
+  @Test
+  public void packKeepsNegativeCmdOutOfGroupBits() {
+    assertEquals(0x0001FFFF, PacketRoute.pack((short) 1, (short) -1));
+    assertEquals(0xFFFF0001, PacketRoute.pack((short) -1, (short) 1));
+  }
+
+  @Test
+  public void destinationJoinsGroupAndCmd() {
+    assertEquals("3.7", PacketRoute.destination((short) 3, (short) 7));
+    assertEquals("3.7", PacketRoute.destination(PacketRoute.pack((short) 3, (short) 7)));
+  }
+}
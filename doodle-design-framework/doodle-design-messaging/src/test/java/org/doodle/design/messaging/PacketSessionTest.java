@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class PacketSessionTest {
+  private final TestPacketSocket first = new TestPacketSocket();
+  private final TestPacketSocket second = new TestPacketSocket();
+
+  @Test
+  public void resumeReplaysWhatThePeerMissed() {
+    PacketSession session = new PacketSession(ByteBufAllocator.DEFAULT, 8);
+    assertTrue(session.resume(first, 0, false));
+    session.send(packet("a"));
+    session.send(packet("b"));
+    session.send(packet("c"));
+    assertEquals(List.of(1, 2, 3), sequences(first));
+    assertTrue(session.detach(first));
+    assertFalse(session.isWritable());
+    session.send(packet("d"));
+    assertTrue(session.resume(second, 1, false));
+    assertEquals(List.of("b", "c", "d"), second.sentData());
+    assertEquals(List.of(2, 3, 4), sequences(second));
+    assertEquals(3, session.pending());
+    release(session);
+  }
+
+  @Test
+  public void resumeFailsOnceTheReplayRingOverflowed() {
+    AtomicInteger resets = new AtomicInteger();
+    PacketSession session = new PacketSession(ByteBufAllocator.DEFAULT, 2);
+    session.onReset(resets::incrementAndGet);
+    assertTrue(session.resume(first, 0, false));
+    for (String data : List.of("a", "b", "c", "d")) {
+      session.send(packet(data));
+    }
+    assertEquals(2, session.pending());
+    session.detach(first);
+    assertFalse(session.resume(second, 1, false));
+    assertTrue(second.sent.isEmpty());
+    session.reset();
+    assertEquals(1, resets.get());
+    assertEquals(0, session.pending());
+    assertTrue(session.resume(second, 0, false));
+    session.send(packet("e"));
+    assertEquals(List.of(1), sequences(second));
+    release(session);
+  }
+
+  @Test
+  public void receiveDropsDuplicatesAndAcknowledges() {
+    PacketSession session = new PacketSession(ByteBufAllocator.DEFAULT, 8, 2);
+    session.resume(first, 0, false);
+    session.send(packet("a"));
+    session.send(packet("b"));
+    assertTrue(session.receive(metadata((short) 0, 1)));
+    assertFalse(session.receive(metadata((short) 0, 1)));
+    assertEquals(1, session.duplicates());
+    assertTrue(session.receive(metadata((short) 0, 3)));
+    assertEquals(3, session.lastReceived());
+    PacketMetadata ack = new PacketMetadata().wrap(first.sent.get(2).metadata());
+    assertTrue(ack.hasFlag(PacketMetadata.FLAG_ACK));
+    assertEquals(3, ack.sequence());
+    assertFalse(session.receive(metadata(PacketMetadata.FLAG_ACK, 1)));
+    assertEquals(1, session.pending());
+    release(session);
+  }
+
+  @Test
+  public void plainAttachFlushesPendingAndStopsSequencing() {
+    AtomicInteger writable = new AtomicInteger();
+    PacketSession session = new PacketSession(ByteBufAllocator.DEFAULT, 8);
+    session.onWritabilityChanged(writable::incrementAndGet);
+    session.send(packet("a"));
+    assertFalse(session.isWritable());
+    assertTrue(session.attachPlain(first));
+    assertTrue(session.isPlain());
+    assertTrue(session.isWritable());
+    assertEquals(1, writable.get());
+    session.send(packet("b"));
+    assertEquals(List.of("a", "b"), first.sentData());
+    assertEquals(List.of(1, 0), sequences(first));
+    assertEquals(0, session.pending());
+    assertTrue(session.receive(metadata((short) 0, 1)));
+    assertTrue(session.receive(metadata((short) 0, 1)));
+    assertFalse(session.resume(second, 0, true));
+    assertFalse(session.attachPlain(second));
+    release(session);
+  }
+
+  private void release(PacketSession session) {
+    session.dispose();
+    first.releaseSent();
+    second.releaseSent();
+  }
+
+  private static PacketPayload packet(String data) {
+    return ByteBufPacketPayload.create(
+        Unpooled.copiedBuffer(data, StandardCharsets.UTF_8),
+        PacketMetadata.write(Unpooled.buffer(), (short) 1, (short) 1, (short) 0, 0, 0, 0));
+  }
+
+  private static PacketMetadata metadata(short flags, int sequence) {
+    return new PacketMetadata()
+        .wrap(PacketMetadata.write(Unpooled.buffer(), (short) 1, (short) 1, flags, sequence, 0, 0));
+  }
+
+  private static List<Integer> sequences(TestPacketSocket socket) {
+    List<Integer> sequences = new ArrayList<>();
+    for (PacketPayload payload : socket.sent) {
+      sequences.add(new PacketMetadata().wrap(payload.metadata()).sequence());
+    }
+    return sequences;
+  }
+}
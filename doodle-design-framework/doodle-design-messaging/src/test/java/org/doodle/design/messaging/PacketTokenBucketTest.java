@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class PacketTokenBucketTest {
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  public void burstIsAvailableImmediately() {
+    long now = 1_000 * SECOND;
+    PacketTokenBucket bucket = new PacketTokenBucket(10, 3, now);
+    assertTrue(bucket.tryAcquire(now));
+    assertTrue(bucket.tryAcquire(now));
+    assertTrue(bucket.tryAcquire(now));
+    assertFalse(bucket.tryAcquire(now));
+    assertEquals(SECOND / 10, bucket.nanosUntilPermit(now));
+  }
+
+  @Test
+  public void permitsRefillWithTimeUpToTheBurst() {
+    long now = 1_000 * SECOND;
+    PacketTokenBucket bucket = new PacketTokenBucket(10, 2, now);
+    assertTrue(bucket.tryAcquire(now));
+    assertTrue(bucket.tryAcquire(now));
+    assertFalse(bucket.tryAcquire(now + SECOND / 10 - 1));
+    assertTrue(bucket.tryAcquire(now + SECOND / 10));
+    assertFalse(bucket.tryAcquire(now + SECOND / 10));
+    now += 10 * SECOND;
+    assertTrue(bucket.tryAcquire(now));
+    assertTrue(bucket.tryAcquire(now));
+    assertFalse(bucket.tryAcquire(now));
+  }
+
+  @Test
+  public void oversizedRequestsRunIntoDebt() {
+    long now = 1_000 * SECOND;
+    PacketTokenBucket bucket = new PacketTokenBucket(10, 1, now);
+    assertTrue(bucket.tryAcquire(now, 5));
+    assertFalse(bucket.tryAcquire(now + SECOND / 10));
+    assertEquals(SECOND / 10, bucket.nanosUntilPermit(now + 4 * SECOND / 10));
+    assertTrue(bucket.tryAcquire(now + 5 * SECOND / 10));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsNonPositiveRate() {
+    new PacketTokenBucket(0, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsNonPositiveBurst() {
+    new PacketTokenBucket(1, 0);
+  }
+}
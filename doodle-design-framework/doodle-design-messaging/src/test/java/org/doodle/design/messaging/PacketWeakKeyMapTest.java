@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class PacketWeakKeyMapTest {
+
+  @Test
+  public void keysCompareByIdentity() {
+    PacketWeakKeyMap<Object, String> map = new PacketWeakKeyMap<>();
+    String first = new String("socket");
+    String second = new String("socket");
+    assertEquals("first", map.computeIfAbsent(first, key -> "first"));
+    assertEquals("second", map.computeIfAbsent(second, key -> "second"));
+    assertEquals("first", map.get(first));
+    assertEquals(2, map.size());
+    assertEquals("second", map.remove(second));
+    assertNull(map.get(second));
+  }
+
+  @Test
+  public void computesOncePerKey() {
+    PacketWeakKeyMap<Object, Object> map = new PacketWeakKeyMap<>();
+    AtomicInteger computed = new AtomicInteger();
+    Object key = new Object();
+    Object value = map.computeIfAbsent(key, ignored -> computed.incrementAndGet());
+    assertSame(value, map.computeIfAbsent(key, ignored -> computed.incrementAndGet()));
+    assertEquals(1, computed.get());
+  }
+
+  @Test
+  public void reachableKeysSurviveGarbageCollection() {
+    PacketWeakKeyMap<Object, Object> map = new PacketWeakKeyMap<>();
+    Object key = new Object();
+    Object value = map.computeIfAbsent(key, ignored -> new Object());
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+    }
+    assertSame(value, map.get(key));
+    assertEquals(1, map.size());
+  }
+
+  @Test
+  public void collectedKeysArePurged() throws InterruptedException {
+    PacketWeakKeyMap<Object, Object> map = new PacketWeakKeyMap<>();
+    map.computeIfAbsent(new Object(), ignored -> new Object());
+    long deadline = System.nanoTime() + 5_000_000_000L;
+    while (map.size() > 0 && System.nanoTime() < deadline) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertEquals(0, map.size());
+  }
+}
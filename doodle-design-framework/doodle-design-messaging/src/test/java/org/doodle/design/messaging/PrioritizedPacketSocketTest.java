@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+public class PrioritizedPacketSocketTest {
+  private final TestPacketSocket delegate = new TestPacketSocket();
+  private final PacketPriorities priorities =
+      new PacketPriorities()
+          .group((short) 1, PacketPriority.HIGH)
+          .group((short) 3, PacketPriority.BULK)
+          .route((short) 3, (short) 9, PacketPriority.HIGH);
+
+  @Test
+  public void sendsDirectlyWhileWritable() {
+    PrioritizedPacketSocket socket = new PrioritizedPacketSocket(delegate, priorities);
+    socket.send(packet(2, 1, "a"));
+    socket.send(List.of(packet(3, 1, "b"), packet(1, 1, "c")));
+    assertEquals(List.of("a", "b", "c"), delegate.sentData());
+    assertEquals(List.of(1, 2), delegate.batches);
+    delegate.releaseSent();
+  }
+
+  @Test
+  public void drainsQueuedLanesByPriorityOnceWritable() {
+    AtomicInteger writabilityChanges = new AtomicInteger();
+    PrioritizedPacketSocket socket = new PrioritizedPacketSocket(delegate, priorities);
+    socket.onWritabilityChanged(writabilityChanges::incrementAndGet);
+    delegate.writable = false;
+    socket.send(packet(3, 1, "bulk-1"));
+    socket.send(packet(2, 1, "normal-1"));
+    socket.send(packet(1, 1, "high-1"));
+    socket.send(List.of(packet(3, 9, "high-2"), packet(2, 2, "normal-2")));
+    assertTrue(delegate.sent.isEmpty());
+    assertEquals(2, socket.queued(PacketPriority.HIGH));
+    assertEquals(2, socket.queued(PacketPriority.NORMAL));
+    assertEquals(1, socket.queued(PacketPriority.BULK));
+    delegate.setWritable(true);
+    assertEquals(
+        List.of("high-1", "high-2", "normal-1", "normal-2", "bulk-1"), delegate.sentData());
+    assertEquals(1, writabilityChanges.get());
+    assertEquals(0, socket.queued(PacketPriority.HIGH));
+    delegate.releaseSent();
+  }
+
+  @Test
+  public void queuedLanesKeepLowerPrioritiesBehind() {
+    PrioritizedPacketSocket socket = new PrioritizedPacketSocket(delegate, priorities);
+    delegate.writable = false;
+    socket.send(packet(2, 1, "normal-1"));
+    delegate.writable = true;
+    socket.send(packet(3, 1, "bulk-1"));
+    assertEquals(List.of("normal-1", "bulk-1"), delegate.sentData());
+    delegate.releaseSent();
+  }
+
+  @Test
+  public void bulkLaneIsRateLimited() throws InterruptedException {
+    Scheduler scheduler = Schedulers.newSingle("bulk-test");
+    PacketPayload first = packet(3, 1, "bulk-1");
+    int bytes = first.data().readableBytes() + first.metadata().readableBytes();
+    // one packet every 500ms so a slow test thread cannot earn a second permit early
+    PrioritizedPacketSocket socket =
+        new PrioritizedPacketSocket(delegate, priorities, bytes * 2L, bytes, scheduler);
+    try {
+      socket.send(first);
+      socket.send(packet(3, 1, "bulk-2"));
+      socket.send(packet(2, 1, "normal-1"));
+      assertEquals(List.of("bulk-1", "normal-1"), delegate.sentData());
+      assertEquals(1, socket.queued(PacketPriority.BULK));
+      long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+      while (socket.queued(PacketPriority.BULK) > 0 && System.nanoTime() < deadline) {
+        Thread.sleep(1);
+      }
+      assertEquals(List.of("bulk-1", "normal-1", "bulk-2"), delegate.sentData());
+    } finally {
+      scheduler.dispose();
+      delegate.releaseSent();
+      socket.dispose();
+    }
+  }
+
+  @Test
+  public void disposeReleasesQueuedPackets() {
+    PrioritizedPacketSocket socket = new PrioritizedPacketSocket(delegate, priorities);
+    delegate.writable = false;
+    PacketPayload queued = packet(1, 1, "a");
+    socket.send(queued);
+    socket.dispose();
+    assertTrue(delegate.isDisposed());
+    assertEquals(0, socket.queued(PacketPriority.HIGH));
+    assertEquals(0, ((ByteBufPacketPayload) queued).refCnt());
+  }
+
+  private static PacketPayload packet(int group, int cmd, String data) {
+    return ByteBufPacketPayload.create(
+        Unpooled.copiedBuffer(data, StandardCharsets.UTF_8),
+        PacketMetadata.write(Unpooled.buffer(), (short) group, (short) cmd, (short) 0, 0, 0, 0));
+  }
+}
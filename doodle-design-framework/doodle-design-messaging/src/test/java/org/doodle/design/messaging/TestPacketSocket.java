@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging;
+
+import io.netty.util.concurrent.ImmediateExecutor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+class TestPacketSocket implements PacketSocket {
+  final List<PacketPayload> sent = new ArrayList<>();
+  final List<Integer> batches = new ArrayList<>();
+  Executor executor = ImmediateExecutor.INSTANCE;
+  Runnable onWritabilityChanged = () -> {};
+  volatile boolean writable = true;
+  volatile boolean disposed;
+
+  @Override
+  public synchronized void send(PacketPayload payload) {
+    this.sent.add(payload);
+    this.batches.add(1);
+  }
+
+  @Override
+  public synchronized void send(Iterable<? extends PacketPayload> payloads) {
+    int size = 0;
+    for (PacketPayload payload : payloads) {
+      this.sent.add(payload);
+      size++;
+    }
+    this.batches.add(size);
+  }
+
+  synchronized List<String> sentData() {
+    List<String> data = new ArrayList<>();
+    for (PacketPayload payload : this.sent) {
+      data.add(payload.getDataUtf8());
+    }
+    return data;
+  }
+
+  synchronized void releaseSent() {
+    this.sent.forEach(PacketPayload::release);
+    this.sent.clear();
+  }
+
+  void setWritable(boolean writable) {
+    this.writable = writable;
+    this.onWritabilityChanged.run();
+  }
+
+  @Override
+  public PacketSocket onReadIdle(long idleTimeout, Runnable onReadIdle) {
+    return this;
+  }
+
+  @Override
+  public Executor executor() {
+    return this.executor;
+  }
+
+  @Override
+  public boolean isWritable() {
+    return this.writable && !this.disposed;
+  }
+
+  @Override
+  public PacketSocket onWritabilityChanged(Runnable onWritabilityChanged) {
+    this.onWritabilityChanged = onWritabilityChanged;
+    return this;
+  }
+
+  @Override
+  public void dispose() {
+    this.disposed = true;
+  }
+
+  @Override
+  public boolean isDisposed() {
+    return this.disposed;
+  }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.capture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+public class PacketCaptureWriterTest {
+  // 8 byte data header plus two 12 byte records with 16 byte payloads
+  private static final int TWO_RECORDS = 8 + 2 * (12 + 16);
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private final Scheduler scheduler = Schedulers.newSingle("capture-test");
+
+  @After
+  public void tearDown() {
+    this.scheduler.dispose();
+  }
+
+  @Test
+  public void capturesRoundTripThroughReader() throws Exception {
+    Path directory = this.folder.getRoot().toPath();
+    Object first = new Object();
+    Object second = new Object();
+    PacketCaptureWriter writer = new PacketCaptureWriter(directory, "t", 4096, 0, this.scheduler);
+    drain();
+    writer.capture(first, (short) 1, (short) 2, payload("first-payload-01"));
+    writer.capture(second, (short) 3, (short) -4, payload("second-payload-2"));
+    writer.capture(null, (short) 5, (short) 6, payload("third-payload-03"));
+    writer.dispose();
+    drain();
+
+    assertEquals(3, writer.captured());
+    assertEquals(0, writer.dropped());
+    List<PacketCaptureEntry> entries = read(directory);
+    assertEquals(3, entries.size());
+    assertEntry(entries.get(0), writer.socketId(first), 1, 2, "first-payload-01");
+    assertEntry(entries.get(1), writer.socketId(second), 3, -4, "second-payload-2");
+    assertEntry(entries.get(2), 0, 5, 6, "third-payload-03");
+    assertTrue(entries.get(0).timestamp() <= entries.get(1).timestamp());
+    assertTrue(entries.get(1).timestamp() <= entries.get(2).timestamp());
+    release(entries);
+  }
+
+  @Test
+  public void socketIdsAreStableAcrossGarbageCollection() {
+    PacketCaptureWriter writer =
+        new PacketCaptureWriter(this.folder.getRoot().toPath(), "t", 4096, 0, this.scheduler);
+    Object socket = new Object();
+    int id = writer.socketId(socket);
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+    }
+    assertEquals(id, writer.socketId(socket));
+    assertEquals(0, writer.socketId(null));
+    writer.dispose();
+  }
+
+  @Test
+  public void rollsToPreallocatedSegmentWhenFull() throws Exception {
+    Path directory = this.folder.getRoot().toPath();
+    PacketCaptureWriter writer =
+        new PacketCaptureWriter(directory, "t", TWO_RECORDS, 0, this.scheduler);
+    drain();
+    for (int i = 0; i < 5; i++) {
+      writer.capture(null, (short) 1, (short) i, payload("payload-number-" + i));
+      drain();
+    }
+    writer.dispose();
+    drain();
+
+    assertEquals(Arrays.asList(1, 2, 3), new PacketCaptureReader(directory, "t").segments());
+    List<PacketCaptureEntry> entries = read(directory);
+    assertEquals(5, entries.size());
+    for (int i = 0; i < 5; i++) {
+      assertEntry(entries.get(i), 0, 1, i, "payload-number-" + i);
+    }
+    release(entries);
+  }
+
+  @Test
+  public void dropsWhileNextSegmentIsNotReady() throws Exception {
+    Path directory = this.folder.getRoot().toPath();
+    CountDownLatch blocked = new CountDownLatch(1);
+    this.scheduler.schedule(
+        () -> {
+          try {
+            blocked.await(5, TimeUnit.SECONDS);
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          }
+        });
+    PacketCaptureWriter writer = new PacketCaptureWriter(directory, "t", 4096, 0, this.scheduler);
+    writer.capture(null, (short) 1, (short) 1, payload("dropped-payload!"));
+    blocked.countDown();
+    drain();
+    writer.capture(null, (short) 1, (short) 2, payload("kept-payload-002"));
+    writer.dispose();
+    drain();
+
+    assertEquals(1, writer.dropped());
+    assertEquals(1, writer.captured());
+    List<PacketCaptureEntry> entries = read(directory);
+    assertEquals(1, entries.size());
+    assertEntry(entries.get(0), 0, 1, 2, "kept-payload-002");
+    release(entries);
+  }
+
+  @Test
+  public void retentionCountsSegmentsFromPreviousWriters() throws Exception {
+    Path directory = this.folder.getRoot().toPath();
+    PacketCaptureWriter previous =
+        new PacketCaptureWriter(directory, "t", TWO_RECORDS, 2, this.scheduler);
+    drain();
+    for (int i = 0; i < 4; i++) {
+      previous.capture(null, (short) 1, (short) i, payload("payload-number-" + i));
+      drain();
+    }
+    previous.dispose();
+    drain();
+    assertEquals(Arrays.asList(1, 2), new PacketCaptureReader(directory, "t").segments());
+
+    PacketCaptureWriter writer =
+        new PacketCaptureWriter(directory, "t", TWO_RECORDS, 2, this.scheduler);
+    drain();
+    writer.capture(null, (short) 2, (short) 0, payload("payload-number-4"));
+    writer.dispose();
+    drain();
+
+    assertEquals(Arrays.asList(2, 3), new PacketCaptureReader(directory, "t").segments());
+    List<PacketCaptureEntry> entries = read(directory);
+    assertEquals(3, entries.size());
+    assertEntry(entries.get(0), 0, 1, 2, "payload-number-2");
+    assertEntry(entries.get(2), 0, 2, 0, "payload-number-4");
+    release(entries);
+  }
+
+  @Test
+  public void dropsRecordsLargerThanASegment() throws Exception {
+    Path directory = this.folder.getRoot().toPath();
+    PacketCaptureWriter writer =
+        new PacketCaptureWriter(directory, "t", TWO_RECORDS, 0, this.scheduler);
+    drain();
+    writer.capture(null, (short) 1, (short) 1, payload(new String(new char[TWO_RECORDS])));
+    writer.dispose();
+    drain();
+
+    assertEquals(1, writer.dropped());
+    assertEquals(0, writer.captured());
+    assertFalse(new PacketCaptureReader(directory, "t").iterator().hasNext());
+  }
+
+  private void drain() throws InterruptedException {
+    CountDownLatch latch = new CountDownLatch(1);
+    this.scheduler.schedule(latch::countDown);
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+  }
+
+  private static DataBuffer payload(String value) {
+    return DefaultDataBufferFactory.sharedInstance.wrap(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static List<PacketCaptureEntry> read(Path directory) {
+    List<PacketCaptureEntry> entries = new ArrayList<>();
+    new PacketCaptureReader(directory, "t").forEach(entries::add);
+    return entries;
+  }
+
+  private static void assertEntry(
+      PacketCaptureEntry entry, int socketId, int group, int cmd, String data) {
+    assertEquals(socketId, entry.socketId());
+    assertEquals((short) group, entry.group());
+    assertEquals((short) cmd, entry.cmd());
+    assertEquals(data, entry.data().toString(StandardCharsets.UTF_8));
+  }
+
+  private static void release(List<PacketCaptureEntry> entries) {
+    entries.forEach(entry -> entry.data().release());
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.loopback;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.doodle.design.messaging.PacketMapping;
+import org.doodle.design.messaging.PacketStrategies;
+import org.doodle.design.messaging.metrics.PacketMetrics;
+import org.doodle.design.messaging.metrics.PacketMetricsReporter;
+import org.doodle.design.messaging.reactive.PacketMappingMessageHandler;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Mono;
+
+public class PacketBotSwarmTest {
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+  private static final short GROUP = 1;
+  private static final short LOGIN = 1;
+  private static final short PING = 2;
+  private static final short BAG = 3;
+  private static final short SLOW = 4;
+
+  private final PacketStrategies strategies = PacketStrategies.builder().build();
+  private final BotController controller = new BotController();
+  private LoopbackPacketTransport transport;
+
+  @After
+  public void tearDown() {
+    if (transport != null) {
+      transport.dispose();
+    }
+  }
+
+  @Test
+  public void runsSetupOnceAndWeightedStepsPerBot() {
+    PacketBotScenario scenario =
+        PacketBotScenario.builder("weighted")
+            .setup(
+                PacketBotStep.request(
+                    GROUP,
+                    LOGIN,
+                    bot -> "bot-" + bot.id(),
+                    String.class,
+                    (bot, reply) -> bot.attribute("session", reply)))
+            .step(PacketBotStep.send(GROUP, PING, bot -> bot.attribute("session")), 3)
+            .step(PacketBotStep.request(GROUP, BAG, bot -> "bag", String.class))
+            .build();
+    PacketBotSwarm swarm = swarm(scenario);
+    swarm.setBots(2);
+    swarm.setRate(400);
+    swarm.setDuration(Duration.ofMillis(300));
+    PacketMetrics metrics = swarm.run().block(TIMEOUT);
+
+    long logins = metrics.command(GROUP, LOGIN).getRequests().sum();
+    long pings = metrics.command(GROUP, PING).getRequests().sum();
+    long bags = metrics.command(GROUP, BAG).getRequests().sum();
+    assertEquals(2, logins);
+    assertTrue(bags > 0);
+    // each bot cycles ping, ping, ping, bag, so pings trail three per bag by at most one cycle
+    assertTrue(pings + " pings, " + bags + " bags", pings >= 3 * bags);
+    assertTrue(pings + " pings, " + bags + " bags", pings <= 3 * bags + 3 * 2);
+    assertEquals(0, metrics.command(GROUP, LOGIN).getErrors().sum());
+    assertEquals(2, this.controller.logins.get());
+    // the request in flight when the duration ends is cancelled on the bot but still handled
+    long handled = this.controller.bags.get();
+    assertTrue(handled + " handled, " + bags + " bags", handled >= bags && handled <= bags + 2);
+    assertTrue(this.controller.sessionPings.get() > 0);
+  }
+
+  @Test
+  public void countsDroppedTicksWhenStepsAreSlowerThanThePeriod() {
+    PacketBotScenario scenario =
+        PacketBotScenario.builder("slow")
+            .step(PacketBotStep.request(GROUP, SLOW, bot -> "slow", String.class))
+            .build();
+    PacketBotSwarm swarm = swarm(scenario);
+    swarm.setBots(1);
+    swarm.setRate(200);
+    swarm.setDuration(Duration.ofMillis(300));
+    PacketMetrics metrics = swarm.run().block(TIMEOUT);
+
+    assertTrue(swarm.droppedTicks() > 0);
+    Map<String, Long> gauges = new HashMap<>();
+    metrics.report(
+        new PacketMetricsReporter() {
+          @Override
+          public void reportGauge(String name, long value) {
+            gauges.put(name, value);
+          }
+        });
+    assertEquals(swarm.droppedTicks(), (long) gauges.get(PacketBotSwarm.DROPPED_GAUGE));
+    assertTrue(metrics.command(GROUP, SLOW).getRequests().sum() > 0);
+  }
+
+  private PacketBotSwarm swarm(PacketBotScenario scenario) {
+    PacketMappingMessageHandler handler = new PacketMappingMessageHandler();
+    handler.setHandlers(List.of(this.controller));
+    handler.setDecoders(this.strategies.decoders());
+    handler.setEncoders(this.strategies.encoders());
+    handler.afterPropertiesSet();
+    transport = new LoopbackPacketTransport();
+    transport.setStrategies(this.strategies);
+    transport.setMessageHandler(handler);
+    return new PacketBotSwarm(transport::connect, scenario);
+  }
+
+  @Controller
+  @PacketMapping(inbound = @PacketMapping.Inbound(GROUP), outbound = @PacketMapping.Outbound(GROUP))
+  static class BotController {
+    final AtomicInteger logins = new AtomicInteger();
+    final AtomicInteger sessionPings = new AtomicInteger();
+    final AtomicInteger bags = new AtomicInteger();
+
+    @PacketMapping(
+        inbound = @PacketMapping.Inbound(LOGIN),
+        outbound = @PacketMapping.Outbound(LOGIN))
+    String login(String name) {
+      this.logins.incrementAndGet();
+      return "session-" + name;
+    }
+
+    @PacketMapping(inbound = @PacketMapping.Inbound(PING))
+    void ping(String session) {
+      if (session.startsWith("session-bot-")) {
+        this.sessionPings.incrementAndGet();
+      }
+    }
+
+    @PacketMapping(inbound = @PacketMapping.Inbound(BAG), outbound = @PacketMapping.Outbound(BAG))
+    String bag(String name) {
+      this.bags.incrementAndGet();
+      return name;
+    }
+
+    @PacketMapping(inbound = @PacketMapping.Inbound(SLOW), outbound = @PacketMapping.Outbound(SLOW))
+    Mono<String> slow(String name) {
+      return Mono.just(name).delayElement(Duration.ofMillis(40));
+    }
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.loopback;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.doodle.design.messaging.PacketMapping;
+import org.doodle.design.messaging.PacketRequester;
+import org.doodle.design.messaging.PacketStrategies;
+import org.doodle.design.messaging.capture.PacketCaptureReader;
+import org.doodle.design.messaging.capture.PacketCaptureWriter;
+import org.doodle.design.messaging.reactive.PacketMappingMessageHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Controller;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+public class PacketCaptureReplayerTest {
+  private static final Duration TIMEOUT = Duration.ofSeconds(10);
+  private static final short GROUP = 5;
+  private static final short MOVE = 1;
+  private static final short CHAT = 2;
+  private static final long SPACING_MILLIS = 150;
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private final PacketStrategies strategies = PacketStrategies.builder().build();
+  private final Scheduler scheduler = Schedulers.newSingle("replay-test");
+  private final ReplayController controller = new ReplayController();
+  private LoopbackPacketTransport transport;
+
+  @Before
+  public void setUp() {
+    PacketMappingMessageHandler handler = new PacketMappingMessageHandler();
+    handler.setHandlers(List.of(this.controller));
+    handler.setDecoders(this.strategies.decoders());
+    handler.setEncoders(this.strategies.encoders());
+    handler.afterPropertiesSet();
+    this.transport = new LoopbackPacketTransport();
+    this.transport.setStrategies(this.strategies);
+    this.transport.setMessageHandler(handler);
+  }
+
+  @After
+  public void tearDown() {
+    this.transport.dispose();
+    this.scheduler.dispose();
+  }
+
+  @Test
+  public void replaysEveryPacketOnOneRequesterPerCapturedSocket() throws Exception {
+    Path directory = this.folder.getRoot().toPath();
+    Object first = new Object();
+    Object second = new Object();
+    PacketCaptureWriter writer = new PacketCaptureWriter(directory, "t", 4096, 0, this.scheduler);
+    drain();
+    writer.capture(first, GROUP, MOVE, payload("first-1"));
+    writer.capture(second, GROUP, CHAT, payload("second-1"));
+    writer.capture(first, GROUP, CHAT, payload("first-2"));
+    writer.capture(second, GROUP, MOVE, payload("second-2"));
+    writer.capture(first, GROUP, MOVE, payload("first-3"));
+    writer.dispose();
+    drain();
+
+    List<Received> received = replay(directory, PacketCaptureReplayer.MAX_SPEED, 5);
+
+    assertEquals(List.of("first-1", "first-2", "first-3"), payloads(received, "first-"));
+    assertEquals(List.of("second-1", "second-2"), payloads(received, "second-"));
+    for (Received packet : received) {
+      short cmd =
+          packet.payload.equals("second-1") || packet.payload.equals("first-2") ? CHAT : MOVE;
+      assertEquals(packet.payload, cmd, packet.cmd);
+    }
+    PacketRequester firstRequester = requester(received, "first-");
+    PacketRequester secondRequester = requester(received, "second-");
+    assertNotSame(firstRequester, secondRequester);
+    for (Received packet : received) {
+      PacketRequester expected =
+          packet.payload.startsWith("first-") ? firstRequester : secondRequester;
+      assertSame(packet.payload, expected, packet.requester);
+    }
+  }
+
+  @Test
+  public void pacedReplayKeepsTheRecordedSpacing() throws Exception {
+    Path directory = this.folder.getRoot().toPath();
+    Object socket = new Object();
+    PacketCaptureWriter writer = new PacketCaptureWriter(directory, "t", 4096, 0, this.scheduler);
+    drain();
+    writer.capture(socket, GROUP, MOVE, payload("first-1"));
+    Thread.sleep(SPACING_MILLIS);
+    writer.capture(socket, GROUP, MOVE, payload("first-2"));
+    Thread.sleep(SPACING_MILLIS);
+    writer.capture(socket, GROUP, MOVE, payload("first-3"));
+    writer.dispose();
+    drain();
+
+    List<Received> received = replay(directory, 1, 3);
+
+    assertEquals(List.of("first-1", "first-2", "first-3"), payloads(received, "first-"));
+    long elapsed = received.get(2).nanos - received.get(0).nanos;
+    // the transport adds latency on top of the schedule but never sends ahead of it
+    assertTrue(
+        TimeUnit.NANOSECONDS.toMillis(elapsed) + "ms",
+        elapsed >= TimeUnit.MILLISECONDS.toNanos(2 * SPACING_MILLIS - 20));
+  }
+
+  private List<Received> replay(Path directory, double speed, int expected) throws Exception {
+    this.controller.expect(expected);
+    PacketCaptureReplayer replayer =
+        new PacketCaptureReplayer(this.transport::connect, new PacketCaptureReader(directory, "t"));
+    replayer.setSpeed(speed);
+    assertEquals(expected, (long) replayer.replay().block(TIMEOUT));
+    assertTrue(this.controller.latch.await(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS));
+    synchronized (this.controller) {
+      return new ArrayList<>(this.controller.received);
+    }
+  }
+
+  private void drain() throws InterruptedException {
+    CountDownLatch latch = new CountDownLatch(1);
+    this.scheduler.schedule(latch::countDown);
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+  }
+
+  private static DataBuffer payload(String value) {
+    return DefaultDataBufferFactory.sharedInstance.wrap(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static List<String> payloads(List<Received> received, String prefix) {
+    return received.stream()
+        .map(packet -> packet.payload)
+        .filter(payload -> payload.startsWith(prefix))
+        .collect(Collectors.toList());
+  }
+
+  private static PacketRequester requester(List<Received> received, String prefix) {
+    return received.stream()
+        .filter(packet -> packet.payload.startsWith(prefix))
+        .findFirst()
+        .orElseThrow()
+        .requester;
+  }
+
+  static final class Received {
+    final short cmd;
+    final String payload;
+    final PacketRequester requester;
+    final long nanos;
+
+    Received(short cmd, String payload, PacketRequester requester, long nanos) {
+      this.cmd = cmd;
+      this.payload = payload;
+      this.requester = requester;
+      this.nanos = nanos;
+    }
+  }
+
+  @Controller
+  @PacketMapping(inbound = @PacketMapping.Inbound(GROUP))
+  static class ReplayController {
+    final List<Received> received = new ArrayList<>();
+    volatile CountDownLatch latch;
+
+    void expect(int count) {
+      this.latch = new CountDownLatch(count);
+    }
+
+    @PacketMapping(inbound = @PacketMapping.Inbound(MOVE))
+    void move(String payload, PacketRequester requester) {
+      record(MOVE, payload, requester);
+    }
+
+    @PacketMapping(inbound = @PacketMapping.Inbound(CHAT))
+    void chat(String payload, PacketRequester requester) {
+      record(CHAT, payload, requester);
+    }
+
+    private void record(short cmd, String payload, PacketRequester requester) {
+      synchronized (this) {
+        this.received.add(new Received(cmd, payload, requester, System.nanoTime()));
+      }
+      this.latch.countDown();
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class PacketMetricsTest {
+
+  @Test
+  public void unregisteredRoutesShareTheUnknownEntry() {
+    PacketMetrics metrics = new PacketMetrics();
+    PacketCommandMetrics unknown = metrics.command((short) 7, (short) 7);
+    assertEquals(PacketMetrics.UNKNOWN, unknown.getGroup());
+    assertSame(unknown, metrics.command((short) 8, (short) 8));
+    assertSame(metrics.group((short) 7), metrics.group((short) 8));
+    for (short cmd = 0; cmd < 1000; cmd++) {
+      metrics.recordThrottled((short) 9, cmd);
+      metrics.recordInbound(cmd, 1);
+    }
+    assertEquals(1000, unknown.getThrottled().sum());
+    assertEquals(List.of("-1.-1"), commands(metrics));
+  }
+
+  @Test
+  public void registeredRoutesGetTheirOwnEntries() {
+    PacketMetrics metrics = new PacketMetrics().register((short) 1, (short) 2);
+    metrics.recordDispatch((short) 1, (short) 2, 1000, false);
+    metrics.recordDispatch((short) 1, (short) 3, 1000, true);
+    PacketCommandMetrics command = metrics.command((short) 1, (short) 2);
+    assertEquals(1, command.getGroup());
+    assertEquals(2, command.getCmd());
+    assertEquals(1, command.getRequests().sum());
+    assertEquals(0, command.getErrors().sum());
+    assertEquals(1, metrics.command((short) 1, (short) 3).getErrors().sum());
+    assertEquals(1, metrics.group((short) 1).getGroup());
+    assertSame(
+        metrics.command((short) 1, (short) 2),
+        metrics.register((short) 1, (short) 2).command((short) 1, (short) 2));
+    assertEquals(List.of("1.2", "-1.-1"), commands(metrics));
+  }
+
+  private static List<String> commands(PacketMetrics metrics) {
+    List<String> commands = new ArrayList<>();
+    metrics.report(
+        new PacketMetricsReporter() {
+          @Override
+          public void reportCommand(PacketCommandMetrics command) {
+            commands.add(command.getGroup() + "." + command.getCmd());
+          }
+        });
+    return commands;
+  }
+}
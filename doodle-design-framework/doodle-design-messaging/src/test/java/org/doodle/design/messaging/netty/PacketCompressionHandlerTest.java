@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.netty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.CorruptedFrameException;
+import java.nio.charset.StandardCharsets;
+import org.doodle.design.messaging.ByteBufPacketPayload;
+import org.doodle.design.messaging.PacketCompressor;
+import org.doodle.design.messaging.PacketMetadata;
+import org.doodle.design.messaging.PacketPayload;
+import org.doodle.design.messaging.metrics.PacketGroupMetrics;
+import org.doodle.design.messaging.metrics.PacketMetrics;
+import org.junit.Test;
+
+public class PacketCompressionHandlerTest {
+  private static final String DATA = "doodle-packet-".repeat(200);
+
+  private final PacketMetrics metrics = new PacketMetrics().registerGroup((short) 7);
+  private final PacketCompressionHandler handler =
+      new PacketCompressionHandler(new PacketCompressor(64, 1 << 20), metrics);
+
+  @Test
+  public void outboundPacketsAreCompressedAndInflatedOnRead() {
+    EmbeddedChannel channel = new EmbeddedChannel(handler);
+    assertTrue(channel.writeOutbound(packet(DATA)));
+    PacketPayload compressed = channel.readOutbound();
+    assertTrue(
+        new PacketMetadata().wrap(compressed.metadata()).hasFlag(PacketMetadata.FLAG_COMPRESSED));
+    assertTrue(compressed.data().readableBytes() < DATA.length());
+    assertTrue(channel.writeInbound(compressed));
+    PacketPayload inflated = channel.readInbound();
+    assertEquals(DATA, inflated.getDataUtf8());
+    assertFalse(
+        new PacketMetadata().wrap(inflated.metadata()).hasFlag(PacketMetadata.FLAG_COMPRESSED));
+    inflated.release();
+    PacketGroupMetrics group = metrics.group((short) 7);
+    assertEquals(7, group.getGroup());
+    assertTrue(group.compressionRatio() < 1.0);
+    assertFalse(channel.finish());
+  }
+
+  @Test
+  public void smallPacketsPassThrough() {
+    EmbeddedChannel channel = new EmbeddedChannel(handler);
+    PacketPayload small = packet("small");
+    assertTrue(channel.writeOutbound(small));
+    PacketPayload written = channel.readOutbound();
+    assertEquals(small, written);
+    written.release();
+    assertFalse(channel.finish());
+  }
+
+  @Test
+  public void corruptCompressedPacketsFailTheRead() {
+    EmbeddedChannel channel = new EmbeddedChannel(handler);
+    PacketPayload corrupt =
+        ByteBufPacketPayload.create(
+            Unpooled.buffer().writeInt(1 << 30).writeLong(0),
+            PacketMetadata.write(
+                Unpooled.buffer(), (short) 7, (short) 1, PacketMetadata.FLAG_COMPRESSED, 0, 0, 0));
+    assertThrows(CorruptedFrameException.class, () -> channel.writeInbound(corrupt));
+    assertEquals(0, ((ByteBufPacketPayload) corrupt).refCnt());
+    assertFalse(channel.finish());
+  }
+
+  private static PacketPayload packet(String data) {
+    return ByteBufPacketPayload.create(
+        Unpooled.copiedBuffer(data, StandardCharsets.UTF_8),
+        PacketMetadata.write(Unpooled.buffer(), (short) 7, (short) 1, (short) 0, 0, 0, 0));
+  }
+}
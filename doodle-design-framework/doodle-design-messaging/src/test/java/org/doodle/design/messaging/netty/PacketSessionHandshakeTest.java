@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.netty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.doodle.design.messaging.PacketMapping;
+import org.doodle.design.messaging.PacketRequester;
+import org.doodle.design.messaging.PacketSession;
+import org.doodle.design.messaging.PacketSessionRegistry;
+import org.doodle.design.messaging.PacketStrategies;
+import org.doodle.design.messaging.reactive.PacketMappingMessageHandler;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.stereotype.Controller;
+
+public class PacketSessionHandshakeTest {
+  private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+  private final PacketStrategies strategies = PacketStrategies.builder().build();
+  private NettyPacketServer server;
+  private NettyPacketClient client;
+  private PacketRequester requester;
+
+  @After
+  public void tearDown() {
+    if (requester != null) {
+      requester.dispose();
+    }
+    if (client != null) {
+      client.dispose();
+    }
+    if (server != null) {
+      server.dispose();
+    }
+  }
+
+  @Test
+  public void sessionPeersCompleteTheHandshake() throws Exception {
+    startServer(16).setSessionHandshakeTimeout(TIMEOUT);
+    client = client(16);
+    client.setSessionHandshakeTimeout(TIMEOUT);
+    PacketRequester requester = connect();
+    assertEquals("echo:a", echo(requester, "a"));
+    PacketSession session = PacketSessionRegistry.session(requester);
+    assertFalse(session.isPlain());
+    assertNotEquals(0L, session.id());
+  }
+
+  @Test
+  public void sessionClientFallsBackForPlainServer() throws Exception {
+    startServer(0);
+    client = client(16);
+    PacketRequester requester = connect();
+    assertEquals("echo:a", echo(requester, "a"));
+    assertEquals("echo:b", echo(requester, "b"));
+  }
+
+  @Test
+  public void sessionServerFallsBackForPlainClient() throws Exception {
+    CompletableFuture<PacketRequester> connected = new CompletableFuture<>();
+    startServer(16).setOnConnect(connected::complete);
+    client = client(0);
+    PacketRequester requester = connect();
+    assertEquals("echo:a", echo(requester, "a"));
+    connected.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  private NettyPacketServer startServer(int sessionCapacity) throws InterruptedException {
+    PacketMappingMessageHandler handler = new PacketMappingMessageHandler();
+    handler.setHandlers(List.of(new EchoController()));
+    handler.setDecoders(strategies.decoders());
+    handler.setEncoders(strategies.encoders());
+    handler.afterPropertiesSet();
+    server = new NettyPacketServer();
+    server.setHost("127.0.0.1");
+    server.setPreferNative(false);
+    server.setWorkerThreads(1);
+    server.setStrategies(strategies);
+    server.setMessageHandler(handler);
+    server.setSessionCapacity(sessionCapacity);
+    server.setSessionHandshakeTimeout(Duration.ofMillis(100));
+    return server.start();
+  }
+
+  private NettyPacketClient client(int sessionCapacity) {
+    NettyPacketClient client = new NettyPacketClient();
+    client.setPreferNative(false);
+    client.setWorkerThreads(1);
+    client.setStrategies(strategies);
+    client.setSessionCapacity(sessionCapacity);
+    client.setSessionHandshakeTimeout(Duration.ofMillis(100));
+    return client;
+  }
+
+  private PacketRequester connect() {
+    int port = ((InetSocketAddress) server.channel().localAddress()).getPort();
+    requester = client.connect("127.0.0.1", port).block(TIMEOUT);
+    return requester;
+  }
+
+  private static String echo(PacketRequester requester, String data) {
+    return requester
+        .route((short) 1, (short) 1)
+        .data(data)
+        .retrieveMono(String.class)
+        .block(TIMEOUT);
+  }
+
+  @Controller
+  @PacketMapping(inbound = @PacketMapping.Inbound(1), outbound = @PacketMapping.Outbound(1))
+  static class EchoController {
+
+    @PacketMapping(inbound = @PacketMapping.Inbound(1), outbound = @PacketMapping.Outbound(1))
+    String echo(String data) {
+      return "echo:" + data;
+    }
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.protobuf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.protobuf.Message;
+import com.google.protobuf.StringValue;
+import com.google.protobuf.Timestamp;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.doodle.design.messaging.ByteBufPacketPayload;
+import org.doodle.design.messaging.PacketMetadata;
+import org.doodle.design.messaging.PacketPayload;
+import org.junit.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+
+public class ProtobufPacketCodecTest {
+  private static final ResolvableType TIMESTAMP = ResolvableType.forClass(Timestamp.class);
+  private static final Timestamp MESSAGE =
+      Timestamp.newBuilder().setSeconds(1_700_000_000L).setNanos(123_456_789).build();
+
+  private final NettyDataBufferFactory factory =
+      new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT);
+  private final ProtobufPacketEncoder encoder = new ProtobufPacketEncoder();
+  private final ProtobufPacketDecoder decoder = new ProtobufPacketDecoder();
+
+  @Test
+  public void roundTripsThroughPacketPayload() {
+    NettyDataBuffer encoded =
+        (NettyDataBuffer) this.encoder.encodeValue(MESSAGE, this.factory, TIMESTAMP, null, null);
+    PacketPayload payload =
+        ByteBufPacketPayload.create(
+            encoded.getNativeBuffer(),
+            PacketMetadata.write(Unpooled.buffer(), (short) 1, (short) 2, (short) 0, 0, 0, 0));
+    try {
+      DataBuffer data = this.factory.wrap(payload.data().retain());
+      assertEquals(MESSAGE, this.decoder.decode(data, TIMESTAMP, null, null));
+      // the decoder releases the reference it was handed, the payload keeps its own
+      assertEquals(1, payload.data().refCnt());
+    } finally {
+      payload.release();
+    }
+  }
+
+  @Test
+  public void encodesIntoRightSizedBuffer() {
+    NettyDataBuffer encoded =
+        (NettyDataBuffer) this.encoder.encodeValue(MESSAGE, this.factory, TIMESTAMP, null, null);
+    try {
+      assertEquals(MESSAGE.getSerializedSize(), encoded.readableByteCount());
+      assertEquals(0, encoded.getNativeBuffer().writableBytes());
+    } finally {
+      encoded.release();
+    }
+  }
+
+  @Test
+  public void decodesAcrossMultipleNioBuffers() {
+    byte[] bytes = MESSAGE.toByteArray();
+    int split = bytes.length / 2;
+    CompositeByteBuf composite = Unpooled.compositeBuffer();
+    composite.addComponent(true, Unpooled.wrappedBuffer(bytes, 0, split));
+    composite.addComponent(true, Unpooled.wrappedBuffer(bytes, split, bytes.length - split));
+    assertTrue(composite.nioBufferCount() > 1);
+    NettyDataBuffer buffer = this.factory.wrap(composite);
+    assertEquals(MESSAGE, this.decoder.decode(buffer, TIMESTAMP, null, null));
+    assertEquals(0, composite.refCnt());
+  }
+
+  @Test
+  public void fallsBackToCopyingNonNettyBuffers() {
+    DefaultDataBufferFactory factory = DefaultDataBufferFactory.sharedInstance;
+    DataBuffer encoded = this.encoder.encodeValue(MESSAGE, factory, TIMESTAMP, null, null);
+    assertEquals(MESSAGE.getSerializedSize(), encoded.readableByteCount());
+    assertEquals(MESSAGE, this.decoder.decode(encoded, TIMESTAMP, null, null));
+  }
+
+  @Test
+  public void releasesInputWhenParsingFails() {
+    // declares a 5 byte string field but carries only one byte
+    ByteBuf truncated = Unpooled.wrappedBuffer(new byte[] {0x0A, 0x05, 'a'});
+    try {
+      this.decoder.decode(
+          this.factory.wrap(truncated), ResolvableType.forClass(StringValue.class), null, null);
+      fail("Expected a truncated message to be rejected");
+    } catch (DecodingException ex) {
+      assertEquals(0, truncated.refCnt());
+    }
+  }
+
+  @Test
+  public void cachesParserPerMessageType() {
+    assertSame(Timestamp.parser(), this.decoder.getParser(Timestamp.class));
+    assertSame(
+        this.decoder.getParser(StringValue.class), this.decoder.getParser(StringValue.class));
+    assertSame(StringValue.parser(), this.decoder.getParser(StringValue.class));
+  }
+
+  @Test
+  public void supportsOnlyProtobufMessages() {
+    assertTrue(this.decoder.canDecode(TIMESTAMP, null));
+    assertTrue(this.encoder.canEncode(ResolvableType.forClass(Message.class), null));
+    assertFalse(this.decoder.canDecode(ResolvableType.forClass(String.class), null));
+  }
+}
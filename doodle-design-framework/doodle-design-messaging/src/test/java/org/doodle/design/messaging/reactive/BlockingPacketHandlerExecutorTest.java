@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.reactive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+public class BlockingPacketHandlerExecutorTest {
+  private final Scheduler scheduler = Schedulers.newBoundedElastic(32, 1024, "blocking-test");
+
+  @After
+  public void tearDown() {
+    scheduler.dispose();
+  }
+
+  @Test
+  public void gateBoundsThreadsBeforeSubmitting() throws InterruptedException {
+    BlockingPacketHandlerExecutor executor = new BlockingPacketHandlerExecutor(scheduler, 2);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    Flux<Void> tasks =
+        Flux.range(0, 10)
+            .flatMap(
+                i ->
+                    executor.execute(
+                        MessageBuilder.withPayload(i).build(),
+                        () -> {
+                          maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                          try {
+                            release.await();
+                          } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                          }
+                          running.decrementAndGet();
+                          return Mono.empty();
+                        }));
+    CountDownLatch done = new CountDownLatch(1);
+    tasks.subscribe(null, null, done::countDown);
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (running.get() < 2 && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals(2, running.get());
+    assertEquals(8, executor.waiting());
+    release.countDown();
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertEquals(2, maxRunning.get());
+    assertEquals(0, executor.waiting());
+  }
+
+  @Test
+  public void failedInvocationReleasesPermit() {
+    BlockingPacketHandlerExecutor executor = new BlockingPacketHandlerExecutor(scheduler, 1);
+    for (int i = 0; i < 3; i++) {
+      Mono<Void> result =
+          executor.execute(
+              MessageBuilder.withPayload(i).build(),
+              () -> {
+                throw new IllegalStateException("boom");
+              });
+      try {
+        result.block();
+      } catch (IllegalStateException expected) {
+        continue;
+      }
+      throw new AssertionError("Expected failure");
+    }
+  }
+}
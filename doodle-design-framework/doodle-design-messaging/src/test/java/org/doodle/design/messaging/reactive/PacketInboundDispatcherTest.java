@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.reactive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import org.doodle.design.messaging.ByteBufPacketPayload;
+import org.doodle.design.messaging.DefaultPacketRequester;
+import org.doodle.design.messaging.PacketMetadata;
+import org.doodle.design.messaging.PacketMetadataExtractor;
+import org.doodle.design.messaging.PacketPayload;
+import org.doodle.design.messaging.PacketSocket;
+import org.doodle.design.messaging.PacketStrategies;
+import org.doodle.design.messaging.metrics.PacketMetrics;
+import org.junit.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.publisher.Mono;
+
+public class PacketInboundDispatcherTest {
+  private final PacketMetrics metrics = new PacketMetrics().registerGroup((short) 1);
+  private final PacketInboundDispatcher dispatcher =
+      new PacketInboundDispatcher(new NettyDataBufferFactory(ByteBufAllocator.DEFAULT), metrics);
+  private final DefaultPacketRequester requester =
+      new DefaultPacketRequester(
+          new PacketSocket() {
+            @Override
+            public void send(PacketPayload payload) {
+              payload.release();
+            }
+
+            @Override
+            public PacketSocket onReadIdle(long idleTimeout, Runnable onReadIdle) {
+              return this;
+            }
+
+            @Override
+            public void dispose() {}
+          },
+          MimeTypeUtils.TEXT_PLAIN,
+          PacketMetadata.MIME_TYPE,
+          PacketStrategies.builder().build(),
+          Duration.ofSeconds(5));
+
+  @Test
+  public void packetsWithoutValidMetadataAreDropped() {
+    ByteBuf data = Unpooled.copiedBuffer("a", StandardCharsets.UTF_8);
+    assertNull(dispatcher.read("test", ByteBufPacketPayload.create(data)));
+    assertEquals(0, data.refCnt());
+    ByteBuf invalid = Unpooled.copiedBuffer("b", StandardCharsets.UTF_8);
+    assertNull(
+        dispatcher.read(
+            "test", ByteBufPacketPayload.create(invalid, Unpooled.wrappedBuffer(new byte[] {1}))));
+    assertEquals(0, invalid.refCnt());
+  }
+
+  @Test
+  public void readRecordsInboundBytes() {
+    PacketPayload payload = packet(PacketMetadata.FLAG_CORRELATION_ID, "abc");
+    int bytes = payload.data().readableBytes() + payload.metadata().readableBytes();
+    PacketMetadata metadata = dispatcher.read("test", payload);
+    assertNotNull(metadata);
+    assertEquals(1, metadata.group());
+    assertEquals(2, metadata.cmd());
+    assertEquals(bytes, metrics.group((short) 1).getInboundBytes().sum());
+    metadata.clear();
+    payload.release();
+  }
+
+  @Test
+  public void dispatchHandsTheHandlerOneClaimableReference() {
+    CapturingHandler handler = new CapturingHandler();
+    ByteBufPacketPayload payload = packet(PacketMetadata.FLAG_CORRELATION_ID, "abc");
+    dispatcher.receive("test", payload, requester, handler);
+    assertEquals(0, payload.refCnt());
+    assertNotNull(handler.data);
+    assertEquals("abc", handler.data.toString(StandardCharsets.UTF_8));
+    MessageHeaders headers = handler.headers;
+    assertSame(
+        requester, headers.get(PacketRequesterMethodArgumentResolver.PACKET_REQUESTER_HEADER));
+    assertEquals(7, headers.get(PacketMetadataExtractor.CORRELATION_ID_KEY));
+    assertNotNull(PacketPayloadClaim.of(headers));
+    DataBufferUtils.release(handler.data);
+  }
+
+  @Test
+  public void packetsWithoutHandlerAreReleased() {
+    ByteBufPacketPayload payload = packet((short) 0, "abc");
+    dispatcher.receive("test", payload, requester, null);
+    assertEquals(0, payload.refCnt());
+  }
+
+  private static ByteBufPacketPayload packet(short flags, String data) {
+    return ByteBufPacketPayload.create(
+        Unpooled.copiedBuffer(data, StandardCharsets.UTF_8),
+        PacketMetadata.write(Unpooled.buffer(), (short) 1, (short) 2, flags, 0, 0, 7));
+  }
+
+  static class CapturingHandler extends PacketMappingMessageHandler {
+    DataBuffer data;
+    MessageHeaders headers;
+
+    @Override
+    public Mono<Void> handlePacket(
+        short group, short cmd, DataBuffer data, MessageHeaders headers) {
+      this.data = data;
+      this.headers = headers;
+      return Mono.empty();
+    }
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.reactive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+public class PacketMailboxExecutorTest {
+  private static final String KEY = "key";
+
+  private final PacketMailboxExecutor executor =
+      new PacketMailboxExecutor(2, message -> message.getHeaders().get(KEY));
+
+  @After
+  public void tearDown() {
+    this.executor.dispose();
+  }
+
+  @Test
+  public void runsInOrderPerKeyWhileHandlerIsPending() throws Exception {
+    List<String> started = new CopyOnWriteArrayList<>();
+    Sinks.Empty<Void> first = Sinks.empty();
+    CountDownLatch firstStarted = new CountDownLatch(1);
+    CompletableFuture<Void> firstDone =
+        execute(
+            "a",
+            () -> {
+              started.add("first");
+              firstStarted.countDown();
+              return first.asMono();
+            });
+    CompletableFuture<Void> secondDone =
+        execute(
+            "a",
+            () -> {
+              started.add("second");
+              return Mono.empty();
+            });
+    assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+    Thread.sleep(50);
+    assertEquals(List.of("first"), started);
+    assertEquals(1, this.executor.mailboxCount());
+    assertEquals(1, this.executor.queueDepth("a"));
+    assertEquals(1, this.executor.totalQueueDepth());
+    assertEquals(Map.of("a", 1), this.executor.queueDepths());
+    assertFalse(secondDone.isDone());
+
+    first.tryEmitEmpty();
+    firstDone.get(5, TimeUnit.SECONDS);
+    secondDone.get(5, TimeUnit.SECONDS);
+    assertEquals(List.of("first", "second"), started);
+  }
+
+  @Test
+  public void runsDifferentKeysInParallel() throws Exception {
+    CountDownLatch bothRunning = new CountDownLatch(2);
+    Supplier<Mono<Void>> invocation =
+        () -> {
+          bothRunning.countDown();
+          try {
+            // only returns when the other key's handler runs at the same time
+            assertTrue(bothRunning.await(5, TimeUnit.SECONDS));
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          }
+          return Mono.empty();
+        };
+    // 0 and 1 hash onto different workers
+    CompletableFuture<Void> first = execute(0, invocation);
+    CompletableFuture<Void> second = execute(1, invocation);
+    first.get(5, TimeUnit.SECONDS);
+    second.get(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void pendingKeyDoesNotDelayOtherKeys() throws Exception {
+    Sinks.Empty<Void> pending = Sinks.empty();
+    CompletableFuture<Void> blocked = execute("a", pending::asMono);
+    execute("b", Mono::empty).get(5, TimeUnit.SECONDS);
+    assertFalse(blocked.isDone());
+    pending.tryEmitEmpty();
+    blocked.get(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void dropsMailboxOnceDrained() throws Exception {
+    for (int i = 0; i < 10; i++) {
+      execute("a", Mono::empty);
+    }
+    execute("a", Mono::empty).get(5, TimeUnit.SECONDS);
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (this.executor.mailboxCount() > 0 && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertEquals(0, this.executor.mailboxCount());
+    assertEquals(0, this.executor.queueDepth("a"));
+    assertEquals(0, this.executor.totalQueueDepth());
+  }
+
+  @Test
+  public void failedHandlerDoesNotStallTheMailbox() throws Exception {
+    CompletableFuture<Void> failed =
+        execute(
+            "a",
+            () -> {
+              throw new IllegalStateException("boom");
+            });
+    CompletableFuture<Void> errored = execute("a", () -> Mono.error(new IllegalStateException()));
+    CompletableFuture<Void> next = execute("a", Mono::empty);
+    next.get(5, TimeUnit.SECONDS);
+    assertFailed(failed);
+    assertFailed(errored);
+  }
+
+  private CompletableFuture<Void> execute(Object key, Supplier<Mono<Void>> invocation) {
+    Message<String> message = MessageBuilder.withPayload("packet").setHeader(KEY, key).build();
+    return this.executor.execute(message, invocation).toFuture();
+  }
+
+  private static void assertFailed(CompletableFuture<Void> future) throws Exception {
+    try {
+      future.get(5, TimeUnit.SECONDS);
+      fail("Expected the handler to fail");
+    } catch (ExecutionException ex) {
+      assertTrue(ex.getCause() instanceof IllegalStateException);
+    }
+  }
+}
@@ -0,0 +1,417 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.reactive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import org.doodle.design.messaging.PacketMapping;
+import org.doodle.design.messaging.PacketRequester;
+import org.doodle.design.messaging.PacketStrategies;
+import org.doodle.design.messaging.loopback.LoopbackPacketTransport;
+import org.doodle.design.messaging.metrics.PacketCommandMetrics;
+import org.doodle.design.messaging.metrics.PacketMetrics;
+import org.doodle.design.messaging.metrics.PacketMetricsReporter;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.publisher.Mono;
+
+public class PacketMappingMessageHandlerTest {
+  private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private final PacketStrategies strategies = PacketStrategies.builder().build();
+  private LoopbackPacketTransport transport;
+
+  @After
+  public void tearDown() {
+    if (transport != null) {
+      transport.dispose();
+    }
+  }
+
+  private PacketMappingMessageHandler handler(Object controller, boolean routeTableEnabled) {
+    PacketMappingMessageHandler handler = new PacketMappingMessageHandler();
+    handler.setHandlers(List.of(controller));
+    handler.setDecoders(strategies.decoders());
+    handler.setEncoders(strategies.encoders());
+    handler.setRouteTableEnabled(routeTableEnabled);
+    handler.afterPropertiesSet();
+    return handler;
+  }
+
+  private PacketRequester connect(PacketMappingMessageHandler handler) {
+    transport = new LoopbackPacketTransport();
+    transport.setStrategies(strategies);
+    transport.setMessageHandler(handler);
+    return transport.connect().block(TIMEOUT);
+  }
+
+  @Test
+  public void routeTableDispatchesToExactRoute() {
+    assertRoutes(true);
+  }
+
+  @Test
+  public void destinationLookupDispatchesToExactRoute() {
+    assertRoutes(false);
+  }
+
+  private void assertRoutes(boolean routeTableEnabled) {
+    PacketRequester requester = connect(handler(new RoleController(), routeTableEnabled));
+    assertEquals(
+        "login:a",
+        requester.route((short) 1, (short) 1).data("a").retrieveMono(String.class).block(TIMEOUT));
+    assertEquals(
+        "bag:b",
+        requester.route((short) 1, (short) 2).data("b").retrieveMono(String.class).block(TIMEOUT));
+  }
+
+  @Test
+  public void invokersAreBuiltWhenHandlersAreRegistered() {
+    PacketMappingMessageHandler handler = handler(new RoleController(), true);
+    assertTrue(handler.hasInvoker((short) 1, (short) 1));
+    assertTrue(handler.hasInvoker((short) 1, (short) 2));
+  }
+
+  @Test
+  public void invokersAreSkippedWhenFastInvocationIsDisabled() {
+    PacketMappingMessageHandler handler = new PacketMappingMessageHandler();
+    handler.setHandlers(List.of(new RoleController()));
+    handler.setDecoders(strategies.decoders());
+    handler.setEncoders(strategies.encoders());
+    handler.setFastInvocationEnabled(false);
+    handler.afterPropertiesSet();
+    assertFalse(handler.hasInvoker((short) 1, (short) 1));
+    assertEquals(
+        "login:a",
+        connect(handler)
+            .route((short) 1, (short) 1)
+            .data("a")
+            .retrieveMono(String.class)
+            .block(TIMEOUT));
+  }
+
+  @Test
+  public void mappingIndexRegistersIndexedControllersAndDetectsTheRest() throws Exception {
+    String role = RoleController.class.getName();
+    // login is indexed as 1.9 instead of its annotated 1.1, so only the indexed path registers 1.9
+    assertIndexedRoutes(
+        "1.9=" + role + "#login(java.lang.String)\n1.2=" + role + "#bag(java.lang.String)\n",
+        handler -> {
+          assertTrue(handler.hasInvoker((short) 1, (short) 9));
+          assertFalse(handler.hasInvoker((short) 1, (short) 1));
+          assertTrue(handler.hasInvoker((short) 1, (short) 2));
+          assertTrue(handler.hasInvoker((short) 2, (short) 1));
+        });
+  }
+
+  @Test
+  public void staleMappingIndexFallsBackToDetection() throws Exception {
+    assertIndexedRoutes(
+        "1.9=" + RoleController.class.getName() + "#bag(java.lang.String)\n",
+        handler -> {
+          assertFalse(handler.hasInvoker((short) 1, (short) 9));
+          assertTrue(handler.hasInvoker((short) 1, (short) 1));
+          assertTrue(handler.hasInvoker((short) 1, (short) 2));
+          assertTrue(handler.hasInvoker((short) 2, (short) 1));
+        });
+  }
+
+  private void assertIndexedRoutes(String content, Consumer<PacketMappingMessageHandler> assertions)
+      throws Exception {
+    Path root = folder.getRoot().toPath();
+    Path index = root.resolve(PacketMappingIndex.INDEX_LOCATION);
+    Files.createDirectories(index.getParent());
+    Files.writeString(index, content);
+    try (URLClassLoader loader =
+            new URLClassLoader(new URL[] {root.toUri().toURL()}, getClass().getClassLoader());
+        GenericApplicationContext context = new GenericApplicationContext()) {
+      context.setClassLoader(loader);
+      context.registerBean("role", RoleController.class);
+      context.registerBean("blocking", BlockingController.class);
+      context.refresh();
+      PacketMappingMessageHandler handler = new PacketMappingMessageHandler();
+      handler.setApplicationContext(context);
+      handler.setDecoders(strategies.decoders());
+      handler.setEncoders(strategies.encoders());
+      handler.afterPropertiesSet();
+      try {
+        assertions.accept(handler);
+      } finally {
+        handler.destroy();
+      }
+    }
+  }
+
+  @Test
+  public void handlersRegisteredAfterInitAreDispatched() throws Exception {
+    LateRegisteringHandler handler = new LateRegisteringHandler();
+    handler.setHandlers(List.of(new RoleController()));
+    handler.setDecoders(strategies.decoders());
+    handler.setEncoders(strategies.encoders());
+    handler.afterPropertiesSet();
+    PacketRequester requester = connect(handler);
+    AtomicBoolean running = new AtomicBoolean(true);
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread dispatcher =
+        new Thread(
+            () -> {
+              try {
+                while (running.get()) {
+                  assertEquals(
+                      "login:a",
+                      requester
+                          .route((short) 1, (short) 1)
+                          .data("a")
+                          .retrieveMono(String.class)
+                          .block(TIMEOUT));
+                }
+              } catch (Throwable ex) {
+                failure.set(ex);
+              }
+            });
+    dispatcher.start();
+    try {
+      handler.register(new LateController());
+      assertThrows(IllegalStateException.class, () -> handler.register(new RoleController()));
+    } finally {
+      running.set(false);
+      dispatcher.join(TIMEOUT.toMillis());
+    }
+    assertNull(failure.get());
+    assertTrue(handler.hasInvoker((short) 4, (short) 1));
+    assertEquals(
+        "late:b",
+        requester.route((short) 4, (short) 1).data("b").retrieveMono(String.class).block(TIMEOUT));
+    assertEquals(
+        "bag:c",
+        requester.route((short) 1, (short) 2).data("c").retrieveMono(String.class).block(TIMEOUT));
+  }
+
+  @Test
+  public void ambiguousRoutesAreRejected() {
+    try {
+      handler(new AmbiguousController(), true);
+    } catch (IllegalStateException ex) {
+      assertTrue(ex.getMessage(), ex.getMessage().contains("1.1"));
+      return;
+    }
+    throw new AssertionError("Expected ambiguous route to be rejected");
+  }
+
+  @Test
+  public void blockingHandlersRunOffTheSocketThreadOnOwnedExecutor() {
+    PacketMappingMessageHandler handler = handler(new BlockingController(), true);
+    PacketHandlerExecutor executor = handler.getBlockingExecutor();
+    assertTrue(executor instanceof BlockingPacketHandlerExecutor);
+    String thread =
+        connect(handler)
+            .route((short) 2, (short) 1)
+            .data("a")
+            .retrieveMono(String.class)
+            .block(TIMEOUT);
+    assertTrue(thread, !thread.startsWith("packet-loopback"));
+    handler.destroy();
+    assertTrue(((BlockingPacketHandlerExecutor) executor).isDisposed());
+    assertEquals(null, handler.getBlockingExecutor());
+  }
+
+  @Test
+  public void metricsTrackOnlyRegisteredRoutes() throws InterruptedException {
+    PacketMetrics metrics = new PacketMetrics();
+    PacketMappingMessageHandler handler = new PacketMappingMessageHandler();
+    handler.setHandlers(List.of(new RoleController()));
+    handler.setDecoders(strategies.decoders());
+    handler.setEncoders(strategies.encoders());
+    handler.setMetrics(metrics);
+    handler.setRateLimiter(new PacketRateLimiter().routeLimit((short) 1, (short) 2, 0.001, 1));
+    handler.afterPropertiesSet();
+    PacketRequester requester = connect(handler);
+    requester.route((short) 1, (short) 2).data("a").retrieveMono(String.class).block(TIMEOUT);
+    requester.route((short) 1, (short) 2).data("b").send().block(TIMEOUT);
+    requester.route((short) 7, (short) 7).data("c").send().block(TIMEOUT);
+    PacketCommandMetrics unknown = metrics.command((short) 7, (short) 7);
+    PacketCommandMetrics bag = metrics.command((short) 1, (short) 2);
+    long deadline = System.nanoTime() + TIMEOUT.toNanos();
+    while ((unknown.getRequests().sum() == 0 || bag.getThrottled().sum() == 0)
+        && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertEquals(PacketMetrics.UNKNOWN, unknown.getGroup());
+    assertEquals(1, unknown.getRequests().sum());
+    assertEquals(1, bag.getRequests().sum());
+    assertEquals(1, bag.getThrottled().sum());
+    List<String> commands = new ArrayList<>();
+    metrics.report(
+        new PacketMetricsReporter() {
+          @Override
+          public void reportCommand(PacketCommandMetrics command) {
+            commands.add(command.getGroup() + "." + command.getCmd());
+          }
+        });
+    commands.sort(null);
+    assertEquals(List.of("-1.-1", "1.1", "1.2"), commands);
+  }
+
+  @Test
+  public void payloadRetainedByHandlerIsNotReleased() {
+    OwnershipController controller = new OwnershipController();
+    PacketMappingMessageHandler handler = handler(controller, true);
+    ByteBuf buf = Unpooled.copiedBuffer("kept", StandardCharsets.UTF_8);
+    handlePacket(handler, (short) 1, buf);
+    assertEquals(1, buf.refCnt());
+    assertEquals("kept", controller.kept.toString(StandardCharsets.UTF_8));
+    DataBufferUtils.release(controller.kept);
+    assertEquals(0, buf.refCnt());
+  }
+
+  @Test
+  public void decodedPayloadIsReleasedOnce() {
+    OwnershipController controller = new OwnershipController();
+    ByteBuf buf = Unpooled.copiedBuffer("text", StandardCharsets.UTF_8);
+    handlePacket(handler(controller, true), (short) 2, buf);
+    assertEquals("text", controller.text);
+    assertEquals(0, buf.refCnt());
+  }
+
+  @Test
+  public void unclaimedPayloadIsReleasedByTheDispatcher() {
+    PacketMappingMessageHandler handler = handler(new OwnershipController(), true);
+    ByteBuf ignored = Unpooled.copiedBuffer("ignored", StandardCharsets.UTF_8);
+    handlePacket(handler, (short) 3, ignored);
+    assertEquals(0, ignored.refCnt());
+    ByteBuf unmapped = Unpooled.copiedBuffer("unmapped", StandardCharsets.UTF_8);
+    handlePacket(handler, (short) 9, unmapped);
+    assertEquals(0, unmapped.refCnt());
+  }
+
+  private void handlePacket(PacketMappingMessageHandler handler, short cmd, ByteBuf buf) {
+    MessageHeaders headers =
+        new MessageHeaders(Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.TEXT_PLAIN));
+    handler
+        .handlePacket((short) 3, cmd, new NettyDataBufferFactory(buf.alloc()).wrap(buf), headers)
+        .onErrorResume(error -> Mono.empty())
+        .block(TIMEOUT);
+  }
+
+  @Test
+  public void handlerWithoutBlockingRoutesCreatesNoBlockingExecutor() {
+    assertEquals(null, handler(new RoleController(), true).getBlockingExecutor());
+  }
+
+  @Controller
+  @PacketMapping(inbound = @PacketMapping.Inbound(3))
+  static class OwnershipController {
+    DataBuffer kept;
+    String text;
+
+    @PacketMapping(inbound = @PacketMapping.Inbound(1))
+    void keep(DataBuffer data) {
+      kept = data;
+    }
+
+    @PacketMapping(inbound = @PacketMapping.Inbound(2))
+    void text(String data) {
+      text = data;
+    }
+
+    @PacketMapping(inbound = @PacketMapping.Inbound(3))
+    void ignore() {}
+  }
+
+  @Controller
+  @PacketMapping(inbound = @PacketMapping.Inbound(2), outbound = @PacketMapping.Outbound(2))
+  static class BlockingController {
+
+    @PacketMapping(
+        inbound = @PacketMapping.Inbound(1),
+        outbound = @PacketMapping.Outbound(1),
+        blocking = true)
+    String thread(String name) {
+      return Thread.currentThread().getName();
+    }
+  }
+
+  @Controller
+  @PacketMapping(inbound = @PacketMapping.Inbound(1), outbound = @PacketMapping.Outbound(1))
+  static class RoleController {
+
+    @PacketMapping(inbound = @PacketMapping.Inbound(1), outbound = @PacketMapping.Outbound(1))
+    String login(String name) {
+      return "login:" + name;
+    }
+
+    @PacketMapping(inbound = @PacketMapping.Inbound(2), outbound = @PacketMapping.Outbound(2))
+    String bag(String name) {
+      return "bag:" + name;
+    }
+  }
+
+  @Controller
+  @PacketMapping(inbound = @PacketMapping.Inbound(1))
+  static class AmbiguousController {
+
+    @PacketMapping(inbound = @PacketMapping.Inbound(1))
+    void first(String name) {}
+
+    @PacketMapping(inbound = @PacketMapping.Inbound(1))
+    void second(String name) {}
+  }
+
+  static class LateRegisteringHandler extends PacketMappingMessageHandler {
+    void register(Object handler) {
+      detectHandlerMethods(handler);
+    }
+  }
+
+  @Controller
+  @PacketMapping(inbound = @PacketMapping.Inbound(4), outbound = @PacketMapping.Outbound(4))
+  static class LateController {
+
+    @PacketMapping(inbound = @PacketMapping.Inbound(1), outbound = @PacketMapping.Outbound(1))
+    String late(String name) {
+      return "late:" + name;
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.reactive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PacketRateLimiterTest {
+  private static final double SLOW = 0.001;
+
+  @Test
+  public void firstPacketPassesOnLazilyCreatedBuckets() {
+    PacketRateLimiter limiter =
+        new PacketRateLimiter()
+            .socketLimit(SLOW, 1)
+            .groupLimit((short) 2, SLOW, 1)
+            .routeLimit((short) 1, (short) 1, SLOW, 1);
+    assertTrue(limiter.tryAcquire("a", (short) 1, (short) 1));
+    assertFalse(limiter.tryAcquire("a", (short) 1, (short) 1));
+    assertTrue(limiter.tryAcquire("b", (short) 2, (short) 1));
+    assertFalse(limiter.tryAcquire("b", (short) 2, (short) 1));
+  }
+
+  @Test
+  public void routeLimitsApplyPerSocketAndRoute() {
+    PacketRateLimiter limiter = new PacketRateLimiter().routeLimit((short) 1, (short) 1, SLOW, 2);
+    assertTrue(limiter.tryAcquire("a", (short) 1, (short) 1));
+    assertTrue(limiter.tryAcquire("a", (short) 1, (short) 1));
+    assertFalse(limiter.tryAcquire("a", (short) 1, (short) 1));
+    assertTrue(limiter.tryAcquire("a", (short) 1, (short) 2));
+    assertTrue(limiter.tryAcquire("b", (short) 1, (short) 1));
+    assertEquals(2, limiter.size());
+  }
+
+  @Test
+  public void groupLimitsAreSharedByEveryCommand() {
+    PacketRateLimiter limiter = new PacketRateLimiter().groupLimit((short) 3, SLOW, 2);
+    assertTrue(limiter.tryAcquire("a", (short) 3, (short) 1));
+    assertTrue(limiter.tryAcquire("a", (short) 3, (short) 2));
+    assertFalse(limiter.tryAcquire("a", (short) 3, (short) 3));
+    assertTrue(limiter.tryAcquire("a", (short) 4, (short) 1));
+  }
+
+  @Test
+  public void socketLimitCoversAllRoutes() {
+    PacketRateLimiter limiter = new PacketRateLimiter().socketLimit(SLOW, 2);
+    assertTrue(limiter.tryAcquire("a", (short) 1, (short) 1));
+    assertTrue(limiter.tryAcquire("a", (short) 2, (short) 2));
+    assertFalse(limiter.tryAcquire("a", (short) 3, (short) 3));
+    assertTrue(limiter.tryAcquire("b", (short) 3, (short) 3));
+  }
+
+  @Test
+  public void changingLimitsResetsBuckets() {
+    PacketRateLimiter limiter = new PacketRateLimiter().socketLimit(SLOW, 1);
+    assertTrue(limiter.tryAcquire("a", (short) 1, (short) 1));
+    assertFalse(limiter.tryAcquire("a", (short) 1, (short) 1));
+    limiter.routeLimit((short) 9, (short) 9, SLOW, 1);
+    assertEquals(0, limiter.size());
+    assertTrue(limiter.tryAcquire("a", (short) 1, (short) 1));
+  }
+
+  @Test
+  public void bucketsSurviveGarbageCollection() {
+    PacketRateLimiter limiter = new PacketRateLimiter().routeLimit((short) 1, (short) 1, SLOW, 1);
+    Object socket = new Object();
+    assertTrue(limiter.tryAcquire(socket, (short) 1, (short) 1));
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+    }
+    assertFalse(limiter.tryAcquire(socket, (short) 1, (short) 1));
+    assertEquals(1, limiter.size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsInvalidLimits() {
+    new PacketRateLimiter().groupLimit((short) 1, 1, 0);
+  }
+}
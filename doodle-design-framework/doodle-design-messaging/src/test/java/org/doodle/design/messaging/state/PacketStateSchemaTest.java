@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2022-present Doodle. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.doodle.design.messaging.state;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import org.junit.Test;
+
+public class PacketStateSchemaTest {
+  private static final ByteBufAllocator ALLOC = ByteBufAllocator.DEFAULT;
+  private static final int LEVEL = 0;
+  private static final int NAME = 1;
+  private static final int ITEMS = 2;
+
+  private final PacketStateSchema<Player> schema =
+      PacketStateSchema.<Player>builder()
+          .field(LEVEL, Player::getLevel, Player::setLevel, PacketStateCodec.INT)
+          .field(NAME, Player::getName, Player::setName, PacketStateCodec.STRING)
+          .entries(ITEMS, Player::getItems, PacketStateCodec.LONG)
+          .snapshotInterval(3)
+          .build();
+
+  @Test
+  public void firstEncodeIsASnapshotThenOnlyDirtyFieldsAreSent() {
+    Player source = new Player();
+    Player mirror = new Player();
+    source.setLevel(3);
+    source.setName("doodle");
+    source.putItem(1, 10L);
+    assertEquals(
+        PacketStateSchema.Result.APPLIED, sync(source, mirror, PacketStateSchema.SNAPSHOT));
+    assertEquals(mirror, source);
+    assertNull(schema.encode(source, ALLOC));
+
+    source.setLevel(4);
+    source.putItem(2, 20L);
+    source.removeItem(1);
+    mirror.getItems().put(99, 99L);
+    assertEquals(PacketStateSchema.Result.APPLIED, sync(source, mirror, PacketStateSchema.DELTA));
+    assertEquals(4, mirror.getLevel());
+    assertEquals("doodle", mirror.getName());
+    assertEquals(Map.of(2, 20L, 99, 99L), mirror.getItems());
+    assertEquals(2, mirror.stateTracker().version());
+  }
+
+  @Test
+  public void gapIsReportedAndResolvedBySnapshotRequest() {
+    Player source = new Player();
+    Player mirror = new Player();
+    source.setLevel(1);
+    sync(source, mirror, PacketStateSchema.SNAPSHOT);
+    source.setLevel(2);
+    schema.encode(source, ALLOC).release();
+    source.setName("lost");
+    ByteBuf delta = schema.encode(source, ALLOC);
+    assertEquals(PacketStateSchema.Result.GAP, apply(mirror, delta));
+    assertEquals(1, mirror.getLevel());
+    assertEquals(1, mirror.stateTracker().version());
+    assertFalse(source.stateTracker().isSnapshotRequested());
+
+    ByteBuf request = schema.encodeSnapshotRequest(mirror, ALLOC);
+    assertEquals(PacketStateSchema.Result.SNAPSHOT_REQUESTED, apply(source, request));
+    assertTrue(source.stateTracker().isSnapshotRequested());
+    assertEquals(
+        PacketStateSchema.Result.APPLIED, sync(source, mirror, PacketStateSchema.SNAPSHOT));
+    assertEquals(source, mirror);
+    assertEquals(source.stateTracker().version(), mirror.stateTracker().version());
+  }
+
+  @Test
+  public void staleDeltasAreIgnored() {
+    Player source = new Player();
+    Player mirror = new Player();
+    source.setLevel(1);
+    sync(source, mirror, PacketStateSchema.SNAPSHOT);
+    source.setLevel(2);
+    ByteBuf delta = schema.encode(source, ALLOC);
+    ByteBuf duplicate = delta.copy();
+    assertEquals(PacketStateSchema.Result.APPLIED, apply(mirror, delta));
+    mirror.setLevel(5);
+    assertEquals(PacketStateSchema.Result.STALE, apply(mirror, duplicate));
+    assertEquals(5, mirror.getLevel());
+  }
+
+  @Test
+  public void applyingKeepsLocalDirtyMarks() {
+    Player source = new Player();
+    Player mirror = new Player();
+    source.setLevel(1);
+    mirror.setName("local");
+    sync(source, mirror, PacketStateSchema.SNAPSHOT);
+    assertTrue(mirror.stateTracker().isDirty(NAME));
+  }
+
+  @Test
+  public void snapshotIntervalForcesSnapshots() {
+    Player source = new Player();
+    Player mirror = new Player();
+    source.setLevel(0);
+    sync(source, mirror, PacketStateSchema.SNAPSHOT);
+    for (int level = 1; level <= 3; level++) {
+      source.setLevel(level);
+      sync(source, mirror, PacketStateSchema.DELTA);
+    }
+    source.setLevel(4);
+    sync(source, mirror, PacketStateSchema.SNAPSHOT);
+    assertEquals(4, mirror.getLevel());
+  }
+
+  @Test
+  public void unknownFieldsAreRejected() {
+    ByteBuf in =
+        Unpooled.buffer().writeByte(PacketStateSchema.SNAPSHOT).writeInt(1).writeLong(1L << 40);
+    try {
+      assertThrows(IllegalStateException.class, () -> schema.apply(new Player(), in));
+    } finally {
+      in.release();
+    }
+  }
+
+  private PacketStateSchema.Result sync(Player source, Player mirror, byte expectedKind) {
+    ByteBuf out = schema.encode(source, ALLOC);
+    assertEquals(expectedKind, out.getByte(out.readerIndex()));
+    return apply(mirror, out);
+  }
+
+  private PacketStateSchema.Result apply(Player state, ByteBuf in) {
+    try {
+      return schema.apply(state, in);
+    } finally {
+      in.release();
+    }
+  }
+
+  static class Player implements PacketStateful {
+    private final PacketStateTracker tracker = new PacketStateTracker();
+    private final Map<Integer, Long> items = new HashMap<>();
+    private int level;
+    private String name;
+
+    @Override
+    public PacketStateTracker stateTracker() {
+      return tracker;
+    }
+
+    int getLevel() {
+      return level;
+    }
+
+    void setLevel(int level) {
+      this.level = level;
+      tracker.markDirty(LEVEL);
+    }
+
+    String getName() {
+      return name;
+    }
+
+    void setName(String name) {
+      this.name = name;
+      tracker.markDirty(NAME);
+    }
+
+    Map<Integer, Long> getItems() {
+      return items;
+    }
+
+    void putItem(int key, long value) {
+      items.put(key, value);
+      tracker.markEntry(ITEMS, key);
+    }
+
+    void removeItem(int key) {
+      items.remove(key);
+      tracker.markEntry(ITEMS, key);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Player)) {
+        return false;
+      }
+      Player player = (Player) other;
+      return level == player.level
+          && Objects.equals(name, player.name)
+          && items.equals(player.items);
+    }
+
+    @Override
+    public int hashCode() {
+      return level;
+    }
+  }
+}
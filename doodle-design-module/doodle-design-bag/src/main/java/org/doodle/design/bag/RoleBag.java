@@ -15,7 +15,24 @@
  */
 package org.doodle.design.bag;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.doodle.design.messaging.state.PacketStateTracker;
+import org.doodle.design.messaging.state.PacketStateful;
 
 @Data
-public abstract class RoleBag {}
+public abstract class RoleBag implements PacketStateful {
+
+  @Getter(AccessLevel.NONE)
+  @EqualsAndHashCode.Exclude
+  @ToString.Exclude
+  private final transient PacketStateTracker stateTracker = new PacketStateTracker();
+
+  @Override
+  public PacketStateTracker stateTracker() {
+    return this.stateTracker;
+  }
+}